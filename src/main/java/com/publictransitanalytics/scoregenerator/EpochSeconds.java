@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Conversions for the compact time representation used while routing. Times
+ * are seconds since 1970-01-01T00:00 on the same wall clock as the schedule,
+ * so no time zone is ever applied and converting back is exact.
+ *
+ * @author Public Transit Analytics
+ */
+public final class EpochSeconds {
+
+    private EpochSeconds() {
+    }
+
+    public static long of(final LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static long of(final Duration duration) {
+        return duration.getSeconds();
+    }
+
+    public static LocalDateTime toLocalDateTime(final long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+}
@@ -35,7 +35,9 @@ import com.google.common.collect.BiMap;
 import com.publictransitanalytics.scoregenerator.location.Landmark;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.publictransitanalytics.scoregenerator.comparison.ComparisonOperation;
@@ -50,6 +52,7 @@ import com.publictransitanalytics.scoregenerator.publishing.RemoteDataManager;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -57,6 +60,7 @@ import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
@@ -74,6 +78,8 @@ import com.publictransitanalytics.scoregenerator.datalayer.environment.GridIdKey
 import com.publictransitanalytics.scoregenerator.datalayer.environment.GridPointAssociationKey;
 import com.publictransitanalytics.scoregenerator.datalayer.environment.SectorKey;
 import com.publictransitanalytics.scoregenerator.environment.Grid;
+import com.publictransitanalytics.scoregenerator.environment.FootGraph;
+import com.publictransitanalytics.scoregenerator.environment.FootGraphReader;
 import com.publictransitanalytics.scoregenerator.environment.StoredGrid;
 import com.publictransitanalytics.scoregenerator.environment.ReadingSegmentFinder;
 import com.publictransitanalytics.scoregenerator.geography.GeoJsonInEnvironmentDetector;
@@ -97,10 +103,24 @@ import java.util.Map;
 import com.publictransitanalytics.scoregenerator.scoring.PathScoreCard;
 import com.publictransitanalytics.scoregenerator.scoring.PathScoreCardFactory;
 import com.publictransitanalytics.scoregenerator.scoring.ScoreCardFactory;
+import com.publictransitanalytics.scoregenerator.scoring.SectorScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorReachability;
 import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingAlgorithm;
+import com.publictransitanalytics.scoregenerator.workflow.ForkJoinRoundRelaxer;
+import com.publictransitanalytics.scoregenerator.workflow.RoundRelaxer;
+import com.publictransitanalytics.scoregenerator.workflow.SequentialRoundRelaxer;
+import com.publictransitanalytics.scoregenerator.workflow.RangeExecutor;
+import com.publictransitanalytics.scoregenerator.workflow.ServiceDensityCostEstimator;
+import com.publictransitanalytics.scoregenerator.workflow.ShardPlan;
+import com.publictransitanalytics.scoregenerator.workflow.ShardedTaskExecutor;
+import com.publictransitanalytics.scoregenerator.workflow.TaskCostEstimator;
+import com.publictransitanalytics.scoregenerator.workflow.TaskCheckpoint;
+import com.publictransitanalytics.scoregenerator.workflow.RangeExecutorFactory;
+import com.publictransitanalytics.scoregenerator.workflow.RaptorAlgorithm;
+import com.publictransitanalytics.scoregenerator.workflow.RaptorRangeExecutor;
 import com.publictransitanalytics.scoregenerator.workflow.ForwardMovementAssembler;
 import com.publictransitanalytics.scoregenerator.workflow.MovementAssembler;
 import com.publictransitanalytics.scoregenerator.workflow.ParallelTaskExecutor;
@@ -109,6 +129,21 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import com.publictransitanalytics.scoregenerator.location.Sector;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.distance.BatchingOsrmDistanceClient;
+import com.publictransitanalytics.scoregenerator.distance.DistanceClient;
+import com.publictransitanalytics.scoregenerator.distance.DistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.distance.EstimatingDistanceClient;
+import com.publictransitanalytics.scoregenerator.distance.FootGraphDistanceClient;
+import com.publictransitanalytics.scoregenerator.distance.ForwardPointSequencer;
+import com.publictransitanalytics.scoregenerator.distance.PipelinedOsrmDistanceClient;
+import com.publictransitanalytics.scoregenerator.distance.RangedCachingReachabilityClient;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.distance.SpatialCandidateSelector;
+import com.publictransitanalytics.scoregenerator.distance.StoreBackedDistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.distance.WalkingTimeMatrixWriter;
+import com.publictransitanalytics.scoregenerator.distance.WalkingTimePrecomputer;
+import com.squareup.okhttp.OkHttpClient;
 import com.publictransitanalytics.scoregenerator.schedule.patching.Patch;
 import com.publictransitanalytics.scoregenerator.schedule.patching.ReferenceDirection;
 import com.publictransitanalytics.scoregenerator.schedule.patching.RouteDeletion;
@@ -138,6 +173,19 @@ public class Main {
 
     private static final double ESTIMATE_WALK_METERS_PER_SECOND = 2.0;
     private static final int RESOLUTION_METERS = 80;
+    private static final double COST_ESTIMATE_RADIUS_METERS = 1200;
+    private static final int DEFAULT_MAX_TRANSFER_MINUTES = 15;
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final int DEFAULT_SHARDS = 64;
+    private static final int OSRM_MAX_CONSIDERED = 1000;
+    private static final int DEFAULT_DISTANCE_REQUESTS = 8;
+    private static final int DEFAULT_DISTANCE_BATCH_LINGER_MILLIS = 10;
+    private static final long DEFAULT_WALKING_COST_CACHE = 5000000;
+    private static final int OSRM_PORT = 5000;
+    /* The walking speed of the OSRM foot profile, 5 km/h. */
+    private static final double FOOT_GRAPH_WALK_METERS_PER_SECOND
+            = 5000.0 / 3600;
 
     private static final String OSM_FILE = "environment.osm.pbf";
 
@@ -173,10 +221,37 @@ public class Main {
         parser.addArgument("-c", "--comparisonParameters");
         parser.addArgument("-o", "--outputName");
         parser.addArgument("-d", "--distanceEndpoint");
+        parser.addArgument("--distanceRequests").type(Integer.class);
+        parser.addArgument("--distanceBatchOrigins").type(Integer.class);
+        parser.addArgument("--distanceBatchLingerMillis").type(Integer.class);
+        parser.addArgument("--walkingCostCache").type(Long.class);
+        parser.addArgument("--maxTransferMinutes").type(Integer.class)
+                .setDefault(DEFAULT_MAX_TRANSFER_MINUTES)
+                .help("Longest walk between two stops, in minutes. Transfers "
+                      + "are never longer than the longest trip length, so a "
+                      + "value at least that long leaves them uncapped.");
+        parser.addArgument("--walkingRouter").choices("osrm", "footGraph")
+                .setDefault("osrm");
+        parser.addArgument("-a", "--algorithm")
+                .choices("progressive", "raptor", "profileRaptor")
+                .setDefault("progressive");
+        parser.addArgument("-p", "--parallelRounds")
+                .action(Arguments.storeTrue());
+        parser.addArgument("-x", "--checkpointDirectory");
+        parser.addArgument("-g", "--shardDirectory");
+        parser.addArgument("-q", "--shards").type(Integer.class);
+        parser.addArgument("-w", "--shardWorker").action(Arguments.storeTrue());
 
         final Subparsers subparsers = parser.addSubparsers().dest("command");
 
         subparsers.addParser("generateNetworkAccessibility");
+        subparsers.addParser("importWalkingTimeMatrix");
+        final Subparser precomputeWalkingTimesParser
+                = subparsers.addParser("precomputeWalkingTimes");
+        precomputeWalkingTimesParser.addArgument("--gridPoints")
+                .action(Arguments.storeTrue());
+        precomputeWalkingTimesParser.addArgument("--threads")
+                .type(Integer.class);
         final Subparser generateSampledNetworkAccessibilityParser
                 = subparsers.addParser("generateSampledNetworkAccessibility");
         generateSampledNetworkAccessibilityParser.addArgument("-m",
@@ -251,6 +326,27 @@ public class Main {
             comparisonDescription = Optional.empty();
         }
 
+        final String checkpointDirectoryString
+                = namespace.get("checkpointDirectory");
+        final Optional<Path> checkpointDirectory
+                = (checkpointDirectoryString == null) ? Optional.empty()
+                          : Optional.of(Paths.get(checkpointDirectoryString));
+
+        final String shardDirectoryString = namespace.get("shardDirectory");
+        final Boolean shardWorkerObject = namespace.getBoolean("shardWorker");
+        final boolean shardWorker
+                = (shardWorkerObject == null) ? false : shardWorkerObject;
+        final Optional<ShardPlan> shardPlan;
+        if (shardDirectoryString != null) {
+            final Integer shards = namespace.getInt("shards");
+            shardPlan = Optional.of(new ShardPlan(
+                    Paths.get(shardDirectoryString),
+                    (shards == null) ? DEFAULT_SHARDS : shards,
+                    !shardWorker));
+        } else {
+            shardPlan = Optional.empty();
+        }
+
         final Boolean backwardObject = namespace.getBoolean("backward");
         final boolean backward
                 = (backwardObject == null) ? false : backwardObject;
@@ -311,9 +407,69 @@ public class Main {
         final Grid grid = getGrid(root, bounds, storeFactory);
 
         final String distanceEndpoint = namespace.get("distanceEndpoint");
+        final Integer distanceRequests = namespace.getInt("distanceRequests");
+        final OkHttpClient httpClient
+                = PipelinedOsrmDistanceClient.buildHttpClient(
+                        (distanceRequests == null) ? DEFAULT_DISTANCE_REQUESTS
+                                : distanceRequests);
+        final Long walkingCostCacheObject = namespace.getLong(
+                "walkingCostCache");
+        final long walkingCostCacheSize = (walkingCostCacheObject == null)
+                ? DEFAULT_WALKING_COST_CACHE : walkingCostCacheObject;
+        final Duration maxTransferDuration = Duration.ofMinutes(
+                namespace.getInt("maxTransferMinutes"));
+        final Integer distanceBatchOrigins
+                = namespace.getInt("distanceBatchOrigins");
+        final DistanceClient distanceClient;
+        if (namespace.getString("walkingRouter").equals("footGraph")) {
+            final FootGraph footGraph = new FootGraphReader(
+                    root.resolve(OSM_FILE), bounds).read();
+            distanceClient = new FootGraphDistanceClient(
+                    footGraph, FOOT_GRAPH_WALK_METERS_PER_SECOND,
+                    durations.last());
+        } else if (distanceBatchOrigins != null && distanceBatchOrigins > 1) {
+            final Integer lingerMillis
+                    = namespace.getInt("distanceBatchLingerMillis");
+            distanceClient = new BatchingOsrmDistanceClient(
+                    httpClient, distanceEndpoint, OSRM_PORT,
+                    distanceBatchOrigins, OSRM_MAX_CONSIDERED + 1,
+                    Duration.ofMillis((lingerMillis == null)
+                            ? DEFAULT_DISTANCE_BATCH_LINGER_MILLIS
+                            : lingerMillis));
+        } else {
+            distanceClient = new PipelinedOsrmDistanceClient(
+                    httpClient, distanceEndpoint, OSRM_PORT,
+                    (origin, destinations) -> new ForwardPointSequencer(
+                            origin, destinations),
+                    OSRM_MAX_CONSIDERED);
+        }
 
         final MapGenerator mapGenerator = new MapGenerator(dataManager);
 
+        final ForkJoinPool pool = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors());
+
+        final String algorithm = namespace.get("algorithm");
+        final RangeExecutorFactory executorFactory;
+        if ("raptor".equals(algorithm)) {
+            executorFactory = environment -> new RaptorRangeExecutor(
+                    new RaptorAlgorithm(), environment, false);
+        } else if ("profileRaptor".equals(algorithm)) {
+            executorFactory = environment -> new RaptorRangeExecutor(
+                    new RaptorAlgorithm(), environment, true);
+        } else {
+            final Boolean parallelRoundsObject
+                    = namespace.getBoolean("parallelRounds");
+            final boolean parallelRounds
+                    = (parallelRoundsObject == null) ? false
+                              : parallelRoundsObject;
+            final RoundRelaxer relaxer = parallelRounds
+                    ? new ForkJoinRoundRelaxer(pool)
+                    : new SequentialRoundRelaxer();
+            executorFactory = environment -> new ProgressiveRangeExecutor(
+                    new DynamicProgrammingAlgorithm(relaxer), environment);
+        }
+
         final TimeTracker timeTracker;
         if (!backward) {
             timeTracker = new ForwardTimeTracker();
@@ -321,36 +477,58 @@ public class Main {
             timeTracker = new BackwardTimeTracker();
         }
 
-        if ("generatePointAccessibility".equals(command)) {
+        if ("importWalkingTimeMatrix".equals(command)) {
+            importWalkingTimeMatrices(serviceDirectoriesMap, grid);
+        } else if ("precomputeWalkingTimes".equals(command)) {
+            final Boolean gridPointsObject = namespace.getBoolean("gridPoints");
+            final boolean gridPoints
+                    = (gridPointsObject == null) ? false : gridPointsObject;
+            final Integer threads = namespace.getInt("threads");
+            precomputeWalkingTimes(
+                    serviceDirectoriesMap, grid, distanceClient,
+                    durations.last(), gridPoints, (threads == null)
+                            ? Runtime.getRuntime().availableProcessors()
+                            : threads);
+        } else if ("generatePointAccessibility".equals(command)) {
 
             generatePointAccessibility(namespace, baseDescription, backward,
                                        samplingInterval, span, durations, grid,
                                        serviceDirectoriesMap,
                                        comparisonDescription, dataManager,
                                        serializer, mapGenerator, outputName,
-                                       consoleFactory, distanceEndpoint);
+                                       consoleFactory, distanceClient,
+                                       walkingCostCacheSize,
+                                       maxTransferDuration, executorFactory,
+                                       pool);
         } else if ("generateNetworkAccessibility".equals(command)) {
             final ScoreCardFactory scoreCardFactory
-                    = new CountScoreCardFactory();
+                    = new CountScoreCardFactory(durations);
             final Set<Center> centers = getAllCenters(grid);
 
-            final BiMap<OperationDescription, Calculation<ScoreCard>> result
-                    = Main.<ScoreCard>runComparison(
+            final BiMap<OperationDescription, Calculation<SectorScoreCard>> result
+                    = Main.<SectorScoreCard>runComparison(
                             baseDescription, scoreCardFactory, centers,
                             samplingInterval, span, backward, timeTracker,
                             grid, serviceDirectoriesMap, durations.last(),
-                            comparisonDescription, consoleFactory,
-                            distanceEndpoint);
-            final Set<Sector> sectors = grid.getReachableSectors();
-            publishNetworkAccessibility(baseDescription, comparisonDescription,
-                                        result, grid, sectors, false,
-                                        durations, span, samplingInterval,
-                                        backward, dataManager, serializer,
-                                        mapGenerator, outputName);
+                            maxTransferDuration, comparisonDescription,
+                            consoleFactory,
+                            distanceClient, walkingCostCacheSize,
+                            executorFactory, pool,
+                            checkpointDirectory, shardPlan);
+            if (shardPlan.isPresent() && !shardPlan.get().isCoordinator()) {
+                log.info("Leaving publication to the shard coordinator.");
+            } else {
+                final Set<Sector> sectors = grid.getReachableSectors();
+                publishNetworkAccessibility(
+                        baseDescription, comparisonDescription, result, grid,
+                        sectors, false, durations, span, samplingInterval,
+                        backward, dataManager, serializer, mapGenerator,
+                        outputName);
+            }
         } else if ("generateSampledNetworkAccessibility".equals(command)) {
 
             final ScoreCardFactory scoreCardFactory
-                    = new CountScoreCardFactory();
+                    = new CountScoreCardFactory(durations);
 
             final int samples = Integer.valueOf(namespace.get("samples"));
 
@@ -362,13 +540,16 @@ public class Main {
                     = ImmutableSet.copyOf(sectorList.subList(0, samples));
             final Set<Center> centers = getSampleCenters(sampleSectors, grid);
 
-            final BiMap<OperationDescription, Calculation<ScoreCard>> result
-                    = Main.<ScoreCard>runComparison(
+            final BiMap<OperationDescription, Calculation<SectorScoreCard>> result
+                    = Main.<SectorScoreCard>runComparison(
                             baseDescription, scoreCardFactory, centers,
                             samplingInterval, span, backward, timeTracker, grid,
                             serviceDirectoriesMap, durations.last(),
-                            comparisonDescription, consoleFactory,
-                            distanceEndpoint);
+                            maxTransferDuration, comparisonDescription,
+                            consoleFactory,
+                            distanceClient, walkingCostCacheSize,
+                            executorFactory, pool,
+                            checkpointDirectory, Optional.empty());
             publishNetworkAccessibility(baseDescription, comparisonDescription,
                                         result, grid, sampleSectors, true,
                                         durations, span, samplingInterval,
@@ -376,9 +557,82 @@ public class Main {
                                         mapGenerator, outputName);
         }
 
+        distanceClient.close();
         dataManager.uploadFileSet(fileSet);
     }
 
+    private static void importWalkingTimeMatrices(
+            final Map<String, ServiceDataDirectory> serviceDirectoriesMap,
+            final Grid grid) throws InterruptedException, IOException {
+        final WalkingTimeMatrixWriter writer = new WalkingTimeMatrixWriter();
+        for (final ServiceDataDirectory serviceDirectory
+                     : serviceDirectoriesMap.values()) {
+            final BiMap<String, PointLocation> pointIdMap
+                    = buildWalkingPointIdMap(serviceDirectory, grid);
+            final DistanceStoreManager storeManager
+                    = new StoreBackedDistanceStoreManager(
+                            serviceDirectory.getWalkingTimeStore(),
+                            serviceDirectory.getMaxWalkingTimeStore(),
+                            pointIdMap);
+            writer.write(serviceDirectory.getWalkingTimeMatrix(), pointIdMap,
+                         storeManager);
+        }
+    }
+
+    private static void precomputeWalkingTimes(
+            final Map<String, ServiceDataDirectory> serviceDirectoriesMap,
+            final Grid grid, final DistanceClient distanceClient,
+            final Duration duration, final boolean includeGridPoints,
+            final int threads) throws InterruptedException {
+        final DistanceClient estimator = new EstimatingDistanceClient(
+                ESTIMATE_WALK_METERS_PER_SECOND, true);
+        int failures = 0;
+        for (final ServiceDataDirectory serviceDirectory
+                     : serviceDirectoriesMap.values()) {
+            final BiMap<String, PointLocation> pointIdMap
+                    = buildWalkingPointIdMap(serviceDirectory, grid);
+            final DistanceStoreManager storeManager
+                    = new StoreBackedDistanceStoreManager(
+                            serviceDirectory.getWalkingTimeStore(),
+                            serviceDirectory.getMaxWalkingTimeStore(),
+                            pointIdMap);
+            final ReachabilityClient reachabilityClient
+                    = new RangedCachingReachabilityClient(
+                            storeManager, new SpatialCandidateSelector(
+                                    pointIdMap.values(),
+                                    ESTIMATE_WALK_METERS_PER_SECOND),
+                            new ForwardTimeTracker(), distanceClient,
+                            estimator);
+
+            final Set<PointLocation> origins = includeGridPoints
+                    ? pointIdMap.values()
+                    : ImmutableSet.copyOf(buildTransitStopIdMap(
+                            grid, serviceDirectory.getStopDetailsDirectory())
+                            .values());
+            failures += new WalkingTimePrecomputer(
+                    storeManager, reachabilityClient, threads)
+                    .precompute(origins, duration);
+        }
+        if (failures > 0) {
+            throw new ScoreGeneratorFatalException(String.format(
+                    "Walking times for %d origins could not be computed.",
+                    failures));
+        }
+    }
+
+    private static BiMap<String, PointLocation> buildWalkingPointIdMap(
+            final ServiceDataDirectory serviceDirectory, final Grid grid)
+            throws InterruptedException {
+        final ImmutableBiMap.Builder<String, PointLocation> pointIdBuilder
+                = ImmutableBiMap.builder();
+        pointIdBuilder.putAll(buildTransitStopIdMap(
+                grid, serviceDirectory.getStopDetailsDirectory()));
+        for (final PointLocation gridPoint : grid.getGridPoints()) {
+            pointIdBuilder.put(gridPoint.getIdentifier(), gridPoint);
+        }
+        return pointIdBuilder.build();
+    }
+
     private static Set<Center> getSampleCenters(
             final Set<Sector> samples, final Grid grid) {
         final ImmutableSet.Builder<Center> builder
@@ -621,17 +875,23 @@ public class Main {
             final TimeTracker timeTracker, final Grid grid,
             final Map<String, ServiceDataDirectory> serviceDirectoriesMap,
             final Duration longestDuration,
+            final Duration maxTransferDuration,
             final Optional<OperationDescription> comparisonDescription,
             final NetworkConsoleFactory consoleFactory,
-            final String distanceEndpoint)
+            final DistanceClient distanceClient,
+            final long walkingCostCacheSize,
+            final RangeExecutorFactory executorFactory,
+            final ForkJoinPool pool, final Optional<Path> checkpointDirectory,
+            final Optional<ShardPlan> shardPlan)
             throws InterruptedException, IOException, ExecutionException {
 
         final ImmutableBiMap.Builder<OperationDescription, Calculation<S>> resultBuilder
                 = ImmutableBiMap.builder();
         final Calculation<S> calculation = buildCalculation(
                 baseDescription, serviceDirectoriesMap, grid, centers,
-                longestDuration, backward, span, samplingInterval, timeTracker,
-                scoreCardFactory, distanceEndpoint);
+                longestDuration, maxTransferDuration, backward, span,
+                samplingInterval, timeTracker, scoreCardFactory,
+                distanceClient, walkingCostCacheSize);
         final NetworkConsole console = consoleFactory.getConsole(
                 calculation.getTransitNetwork(),
                 calculation.getStopIdMap());
@@ -645,8 +905,9 @@ public class Main {
 
             final Calculation trialCalculation = buildCalculation(
                     comparisonDescription.get(), serviceDirectoriesMap, grid,
-                    centers, longestDuration, backward, span, samplingInterval,
-                    timeTracker, scoreCardFactory, distanceEndpoint);
+                    centers, longestDuration, maxTransferDuration, backward,
+                    span, samplingInterval, timeTracker, scoreCardFactory,
+                    distanceClient, walkingCostCacheSize);
             final NetworkConsole trialConsole = consoleFactory.getConsole(
                     trialCalculation.getTransitNetwork(),
                     trialCalculation.getStopIdMap());
@@ -662,12 +923,41 @@ public class Main {
         final BiMap<OperationDescription, Calculation<S>> calculations
                 = resultBuilder.build();
 
-        final Workflow workflow = new ParallelTaskExecutor(
-                new ProgressiveRangeExecutor(
-                        new DynamicProgrammingAlgorithm(),
-                        environment));
+        final RangeExecutor rangeExecutor
+                = executorFactory.getRangeExecutor(environment);
+        final TaskCostEstimator costEstimator
+                = new ServiceDensityCostEstimator(COST_ESTIMATE_RADIUS_METERS);
+        final Workflow workflow;
+        if (shardPlan.isPresent()) {
+            workflow = new ShardedTaskExecutor<>(
+                    rangeExecutor, pool, costEstimator,
+                    Maps.transformValues(calculations.inverse(),
+                                         OperationDescription::getName),
+                    shardPlan.get(), CHECKPOINT_INTERVAL);
+        } else {
+            final ImmutableMap.Builder<Calculation<S>, TaskCheckpoint>
+                    checkpoints = ImmutableMap.builder();
+            if (checkpointDirectory.isPresent()) {
+                for (final Map.Entry<OperationDescription, Calculation<S>> entry
+                             : calculations.entrySet()) {
+                    checkpoints.put(entry.getValue(), new TaskCheckpoint(
+                            checkpointDirectory.get().resolve(
+                                    entry.getKey().getName()
+                                            + CHECKPOINT_SUFFIX),
+                            CHECKPOINT_INTERVAL));
+                }
+            }
+            workflow = new ParallelTaskExecutor<>(
+                    rangeExecutor, pool, costEstimator, checkpoints.build());
+        }
 
         workflow.calculate(calculations.values());
+        for (final Map.Entry<OperationDescription, Calculation<S>> entry
+                     : calculations.entrySet()) {
+            log.info("Walking cost cache for {}: {}",
+                     entry.getKey().getFiles(),
+                     entry.getValue().getWalkingCostCacheStats());
+        }
         return calculations;
     }
 
@@ -675,11 +965,13 @@ public class Main {
             final OperationDescription description,
             final Map<String, ServiceDataDirectory> serviceDirectoriesMap,
             final Grid grid, final Set<Center> centers,
-            final Duration longestDuration, final boolean backward,
+            final Duration longestDuration,
+            final Duration maxTransferDuration, final boolean backward,
             final Duration span, final Duration samplingInterval,
             final TimeTracker timeTracker,
             final ScoreCardFactory scoreCardFactory,
-            final String distanceEndpoint) throws InterruptedException {
+            final DistanceClient distanceClient,
+            final long walkingCostCacheSize) throws InterruptedException {
         final LocalDateTime startTime
                 = LocalDateTime.parse(description.getStartTime());
         final ServiceDataDirectory serviceDirectory = getServiceData(
@@ -701,45 +993,57 @@ public class Main {
                 = getDeletedStops(description, stopIdMap);
 
         final Calculation<S> calculation = new Calculation<>(
-                grid, centers, longestDuration, backward, span,
-                samplingInterval, ESTIMATE_WALK_METERS_PER_SECOND,
+                grid, centers, longestDuration, maxTransferDuration,
+                backward, span, samplingInterval,
+                ESTIMATE_WALK_METERS_PER_SECOND,
                 timeTracker, serviceDirectoriesMap, scoreCardFactory, startTime,
                 serviceDirectory, basePatches, addedStops, deletedStops,
-                stopIdMap, distanceEndpoint);
+                stopIdMap, distanceClient, walkingCostCacheSize);
         return calculation;
     }
 
     private static void publishNetworkAccessibility(
             final OperationDescription base,
             final Optional<OperationDescription> comparison,
-            final BiMap<OperationDescription, Calculation<ScoreCard>> calculations,
+            final BiMap<OperationDescription, Calculation<SectorScoreCard>> calculations,
             final Grid grid, final Set<Sector> centerSectors,
             final boolean markCenters, final NavigableSet<Duration> durations,
             final Duration span, final Duration samplingInterval,
             final boolean backward, final DataManager fileManager,
             final Gson serializer, final MapGenerator mapGenerator,
             final String outputName) throws InterruptedException, IOException {
-        final Calculation baseCalculation = calculations.get(base);
+        final Calculation<SectorScoreCard> baseCalculation
+                = calculations.get(base);
 
-        final ScoreCard scoreCard = baseCalculation.getScoreCard();
+        final SectorScoreCard baseScoreCard = baseCalculation.getScoreCard();
         final Duration inServiceTime = baseCalculation
                 .getTransitNetwork().getInServiceTime();
-        final int taskCount = scoreCard.getTaskCount();
+        final int taskCount = baseScoreCard.getTaskCount();
         final LocalDateTime startTime
                 = LocalDateTime.parse(base.getStartTime());
         final LocalDateTime endTime = startTime.plus(span);
 
-        if (!comparison.isPresent()) {
-            final NetworkAccessibility map = new NetworkAccessibility(
-                    taskCount, scoreCard, grid, centerSectors,
-                    startTime, endTime, durations.last(), samplingInterval,
-                    backward, inServiceTime);
-            fileManager.publish(outputName, serializer.toJson(map));
-
-            mapGenerator.makeRangeMap(grid, scoreCard, Collections.emptySet(),
-                                      0, 0.2, outputName);
-        } else {
-            final BiMap<OperationDescription, Calculation<ScoreCard>> trialCalculations
+        for (final Duration duration : durations) {
+            final String durationOutputName = getDurationOutputName(
+                    outputName, duration, durations);
+            final SectorReachability scoreCard
+                    = baseScoreCard.getDurationScores(duration);
+
+            if (!comparison.isPresent()) {
+                final NetworkAccessibility map = new NetworkAccessibility(
+                        taskCount, scoreCard, grid, centerSectors,
+                        startTime, endTime, duration, samplingInterval,
+                        backward, inServiceTime);
+                fileManager.publish(durationOutputName,
+                                    serializer.toJson(map));
+
+                mapGenerator.makeRangeMap(
+                        grid, scoreCard, Collections.emptySet(), 0, 0.2,
+                        durationOutputName);
+                continue;
+            }
+
+            final BiMap<OperationDescription, Calculation<SectorScoreCard>> trialCalculations
                     = calculations.entrySet().stream()
                             .filter(entry -> !entry.getKey().equals(base))
                             .collect(ImmutableBiMap.toImmutableBiMap(
@@ -748,15 +1052,17 @@ public class Main {
 
             for (final OperationDescription trialComparison
                          : trialCalculations.keySet()) {
-                final Calculation trialCalculation = calculations.get(
-                        trialComparison);
+                final Calculation<SectorScoreCard> trialCalculation
+                        = calculations.get(trialComparison);
 
                 final String name = trialComparison.getName();
                 final Duration trialInServiceTime = trialCalculation
                         .getTransitNetwork().getInServiceTime();
-                final ScoreCard trialScoreCard
+                final SectorScoreCard trialBaseScoreCard
                         = trialCalculation.getScoreCard();
-                final int trialTaskCount = trialScoreCard.getTaskCount();
+                final SectorReachability trialScoreCard
+                        = trialBaseScoreCard.getDurationScores(duration);
+                final int trialTaskCount = trialBaseScoreCard.getTaskCount();
                 final LocalDateTime trialStartTime
                         = LocalDateTime.parse(trialComparison.getStartTime());
                 final LocalDateTime trialEndTime = startTime.plus(span);
@@ -766,17 +1072,31 @@ public class Main {
                                 taskCount, trialTaskCount, scoreCard,
                                 trialScoreCard, grid, centerSectors, startTime,
                                 endTime, trialStartTime, trialEndTime,
-                                durations.last(), samplingInterval,
+                                duration, samplingInterval,
                                 backward, name, inServiceTime,
                                 trialInServiceTime);
-                fileManager.publish(outputName, serializer.toJson(map));
+                fileManager.publish(durationOutputName,
+                                    serializer.toJson(map));
                 mapGenerator.makeComparativeMap(
-                        grid, scoreCard, trialScoreCard, Collections.emptySet(),
-                        0.2, outputName);
+                        grid, scoreCard, trialScoreCard,
+                        Collections.emptySet(), 0.2, durationOutputName);
             }
         }
     }
 
+    /**
+     * Names the output for one trip length. A single trip length keeps the
+     * requested name, so that single-duration runs publish as before.
+     */
+    private static String getDurationOutputName(
+            final String outputName, final Duration duration,
+            final NavigableSet<Duration> durations) {
+        if (durations.size() == 1) {
+            return outputName;
+        }
+        return String.format("%s-%dm", outputName, duration.toMinutes());
+    }
+
     private static void generatePointAccessibility(
             final Namespace namespace,
             final OperationDescription base, final boolean backward,
@@ -787,7 +1107,11 @@ public class Main {
             final DataManager publisher, final Gson serializer,
             final MapGenerator mapGenerator, final String outputName,
             final NetworkConsoleFactory consoleFactory,
-            final String distanceEndpoint)
+            final DistanceClient distanceClient,
+            final long walkingCostCacheSize,
+            final Duration maxTransferDuration,
+            final RangeExecutorFactory executorFactory,
+            final ForkJoinPool pool)
             throws IOException, InterruptedException, ExecutionException {
 
         final String coordinateString = namespace.get("coordinate");
@@ -816,7 +1140,11 @@ public class Main {
                                 Collections.singleton(center),
                                 samplingInterval, span, backward, timeTracker,
                                 grid, serviceDirectoriesMap, durations.last(),
-                                comparison, consoleFactory, distanceEndpoint);
+                                maxTransferDuration, comparison,
+                                consoleFactory, distanceClient,
+                                walkingCostCacheSize,
+                                executorFactory, pool, Optional.empty(),
+                                Optional.empty());
         final Calculation<PathScoreCard> baseCalculation
                 = calculations.get(base);
         final PathScoreCard scoreCard = baseCalculation.getScoreCard();
@@ -17,6 +17,7 @@ package com.publictransitanalytics.scoregenerator.console;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
 import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
@@ -57,7 +58,8 @@ public class InteractiveNetworkConsole implements NetworkConsole {
                         = transitNetwork.getEntryPoints(stop);
                 for (final EntryPoint entryPoint : entryPoints) {
                     System.out.println(String.format(
-                            "%s: %s", entryPoint.getTime(),
+                            "%s: %s", EpochSeconds.toLocalDateTime(
+                                    entryPoint.getTime()),
                             entryPoint.getTrip().getRouteNumber()));
                 }
                 break;
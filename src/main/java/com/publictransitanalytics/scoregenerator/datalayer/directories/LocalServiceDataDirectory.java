@@ -60,6 +60,8 @@ public class LocalServiceDataDirectory implements ServiceDataDirectory {
     private static final String WALKING_TIME_STORE = "walking_time_store";
     private static final String MAX_WALKING_TIME_STORE
             = "max_walking_time_store";
+    private static final String WALKING_TIME_MATRIX
+            = "walking_time_matrix.bin";
     private static final String SERVICE_TYPES_STORE = "service_types_store";
     private static final String ROUTE_DETAILS_STORE = "route_details_store";
     private static final String TRIP_DETAILS_STORE = "trip_details_store";
@@ -89,6 +91,8 @@ public class LocalServiceDataDirectory implements ServiceDataDirectory {
     private final StoreBackedRangedKeyStore<LocationTimeKey> walkingTimeStore;
     @Getter
     private final Store<LocationKey, Integer> maxWalkingTimeStore;
+    @Getter
+    private final Path walkingTimeMatrix;
 
     public LocalServiceDataDirectory(final Path root, final String files,
                                      final StoreFactory storeFactory)
@@ -114,6 +118,7 @@ public class LocalServiceDataDirectory implements ServiceDataDirectory {
                 .resolve(MAX_WALKING_TIME_STORE);
         maxWalkingTimeStore = storeFactory.<LocationKey, Integer>getStore(
                 maxWalkingTimeStorePath, new IntegerSerializer());
+        walkingTimeMatrix = root.resolve(files).resolve(WALKING_TIME_MATRIX);
     }
 
     private static StopDetailsDirectory buildStopDetailsDirectory(
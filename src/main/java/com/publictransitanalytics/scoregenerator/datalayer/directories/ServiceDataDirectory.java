@@ -19,6 +19,7 @@ import com.bitvantage.bitvantagecaching.Store;
 import com.bitvantage.bitvantagecaching.StoreBackedRangedKeyStore;
 import com.publictransitanalytics.scoregenerator.datalayer.distance.LocationKey;
 import com.publictransitanalytics.scoregenerator.datalayer.distance.LocationTimeKey;
+import java.nio.file.Path;
 
 /**
  *
@@ -38,5 +39,7 @@ public interface ServiceDataDirectory {
     
     public StoreBackedRangedKeyStore<LocationTimeKey> getWalkingTimeStore();
     
-    public Store<LocationKey, Integer> getMaxWalkingTimeStore();  
+    public Store<LocationKey, Integer> getMaxWalkingTimeStore();
+
+    public Path getWalkingTimeMatrix();
 }
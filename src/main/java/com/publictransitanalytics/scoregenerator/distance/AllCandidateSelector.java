@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import java.time.Duration;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * CandidateSelector that considers every location.
+ *
+ * @author Public Transit Analytics
+ */
+@RequiredArgsConstructor
+public class AllCandidateSelector implements CandidateSelector {
+
+    private final Set<PointLocation> points;
+
+    @Override
+    public Set<PointLocation> getCandidates(final PointLocation location,
+                                            final Duration duration) {
+        return points;
+    }
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Queries osrm-routed for walking costs by gathering requests from concurrent
+ * callers into many-to-many table requests. A batch is sent once it holds
+ * maxOrigins origins, once adding another request would exceed
+ * maxCoordinates coordinates, or once the oldest request in it has waited
+ * for the linger time. The replies are split back out to each caller.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class BatchingOsrmDistanceClient implements DistanceClient {
+
+    private final OkHttpClient client;
+    private final String host;
+    private final int port;
+    private final int maxOrigins;
+    private final int maxCoordinates;
+    private final Duration linger;
+    private final ScheduledExecutorService lingerExecutor;
+
+    private Batch openBatch;
+
+    public BatchingOsrmDistanceClient(
+            final OkHttpClient client, final String host, final int port,
+            final int maxOrigins, final int maxCoordinates,
+            final Duration linger) {
+        this.client = client;
+        this.host = host;
+        this.port = port;
+        this.maxOrigins = maxOrigins;
+        this.maxCoordinates = maxCoordinates;
+        this.linger = linger;
+        lingerExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("osrm-batcher-%d")
+                        .setDaemon(true).build());
+        openBatch = null;
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> getDistances(
+            final PointLocation point,
+            final Set<PointLocation> consideredPoints)
+            throws DistanceClientException, InterruptedException {
+        final List<PointLocation> consideredList
+                = ImmutableList.copyOf(consideredPoints);
+        final int chunkSize = maxCoordinates - 1;
+        final ImmutableList.Builder<PendingRequest> requestsBuilder
+                = ImmutableList.builder();
+        for (int base = 0; base < consideredList.size(); base += chunkSize) {
+            final int end = Math.min(base + chunkSize, consideredList.size());
+            final PendingRequest request = new PendingRequest(
+                    point, ImmutableSet.copyOf(
+                            consideredList.subList(base, end)));
+            submit(request);
+            requestsBuilder.add(request);
+        }
+
+        final ImmutableMap.Builder<PointLocation, WalkingCosts> resultBuilder
+                = ImmutableMap.builder();
+        try {
+            for (final PendingRequest request : requestsBuilder.build()) {
+                resultBuilder.putAll(request.result.get());
+            }
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof DistanceClientException) {
+                throw (DistanceClientException) e.getCause();
+            }
+            throw new DistanceClientException(e);
+        }
+        return resultBuilder.build();
+    }
+
+    @Override
+    public void close() {
+        final Batch batch;
+        synchronized (this) {
+            batch = openBatch;
+            openBatch = null;
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        lingerExecutor.shutdown();
+    }
+
+    private void submit(final PendingRequest request) {
+        final Batch full;
+        final Batch displaced;
+        synchronized (this) {
+            if (openBatch != null && !openBatch.accepts(request)) {
+                displaced = openBatch;
+                openBatch = null;
+            } else {
+                displaced = null;
+            }
+            if (openBatch == null) {
+                final Batch batch = new Batch();
+                batch.timer = lingerExecutor.schedule(
+                        () -> expire(batch), linger.toNanos(),
+                        TimeUnit.NANOSECONDS);
+                openBatch = batch;
+            }
+            openBatch.add(request);
+            if (openBatch.origins.size() >= maxOrigins) {
+                full = openBatch;
+                openBatch = null;
+            } else {
+                full = null;
+            }
+        }
+        if (displaced != null) {
+            send(displaced);
+        }
+        if (full != null) {
+            send(full);
+        }
+    }
+
+    private void expire(final Batch batch) {
+        synchronized (this) {
+            if (openBatch != batch) {
+                return;
+            }
+            openBatch = null;
+        }
+        send(batch);
+    }
+
+    private void send(final Batch batch) {
+        batch.timer.cancel(false);
+        final BatchSequencer sequencer = new BatchSequencer(batch);
+        final Request request = new Request.Builder()
+                .url(OsrmLocalDistanceClient.getTableUrl(
+                        host, port, sequencer)).build();
+        client.newCall(request).enqueue(new Callback() {
+
+            @Override
+            public void onFailure(final Request request,
+                                  final IOException e) {
+                batch.fail(new DistanceClientException(e));
+            }
+
+            @Override
+            public void onResponse(final Response response) {
+                try (final ResponseBody body = response.body()) {
+                    final double[] durations
+                            = OsrmTableDecoder.readDurations(
+                                    body.charStream(), batch.origins.size(),
+                                    batch.destinations.size());
+                    batch.complete(durations);
+                } catch (final IOException e) {
+                    batch.fail(new DistanceClientException(e));
+                } catch (final DistanceClientException
+                                       | RuntimeException e) {
+                    batch.fail(e);
+                }
+            }
+        });
+    }
+
+    private boolean fits(final Batch batch, final PendingRequest request) {
+        final Set<PointLocation> coordinates = Sets.union(
+                Sets.union(batch.origins.keySet(), batch.destinations.keySet()),
+                Sets.union(ImmutableSet.of(request.origin),
+                           request.destinations));
+        return coordinates.size() <= maxCoordinates;
+    }
+
+    @RequiredArgsConstructor
+    private static class PendingRequest {
+
+        final PointLocation origin;
+        final Set<PointLocation> destinations;
+        final CompletableFuture<Map<PointLocation, WalkingCosts>> result
+                = new CompletableFuture<>();
+    }
+
+    private class Batch {
+
+        final List<PendingRequest> requests = new ArrayList<>();
+        final Map<PointLocation, Integer> origins = new LinkedHashMap<>();
+        final Map<PointLocation, Integer> destinations
+                = new LinkedHashMap<>();
+        ScheduledFuture<?> timer;
+
+        boolean accepts(final PendingRequest request) {
+            return (origins.containsKey(request.origin)
+                            || origins.size() < maxOrigins)
+                           && fits(this, request);
+        }
+
+        void add(final PendingRequest request) {
+            requests.add(request);
+            origins.putIfAbsent(request.origin, origins.size());
+            for (final PointLocation destination : request.destinations) {
+                destinations.putIfAbsent(destination, destinations.size());
+            }
+        }
+
+        void complete(final double[] durations) {
+            final int columns = destinations.size();
+            for (final PendingRequest request : requests) {
+                final int row = origins.get(request.origin);
+                final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
+                        = ImmutableMap.builder();
+                for (final PointLocation destination : request.destinations) {
+                    final double durationSeconds = durations[
+                            row * columns + destinations.get(destination)];
+                    if (!Double.isNaN(durationSeconds)) {
+                        builder.put(destination, new WalkingCosts(
+                                Duration.ofSeconds(
+                                        (long) Math.ceil(durationSeconds)),
+                                -1));
+                    } else {
+                        log.warn("Could not get duration for {}",
+                                 destination);
+                    }
+                }
+                request.result.complete(builder.build());
+            }
+        }
+
+        void fail(final Exception e) {
+            for (final PendingRequest request : requests) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Lays out a batch as one coordinate list: every distinct location once,
+     * with the batch's origins as sources and its destinations as
+     * destinations, each in the order the batch first saw them.
+     */
+    private static class BatchSequencer implements PointSequencer {
+
+        private final List<PointLocation> sequence;
+        private final Set<Integer> origins;
+        private final Set<Integer> destinations;
+
+        BatchSequencer(final Batch batch) {
+            final Set<PointLocation> locations = new LinkedHashSet<>();
+            locations.addAll(batch.origins.keySet());
+            locations.addAll(batch.destinations.keySet());
+            sequence = ImmutableList.copyOf(locations);
+
+            final Map<PointLocation, Integer> positions = new LinkedHashMap<>();
+            for (int i = 0; i < sequence.size(); i++) {
+                positions.put(sequence.get(i), i);
+            }
+            origins = batch.origins.keySet().stream().map(positions::get)
+                    .collect(ImmutableSet.toImmutableSet());
+            destinations = batch.destinations.keySet().stream()
+                    .map(positions::get)
+                    .collect(ImmutableSet.toImmutableSet());
+        }
+
+        @Override
+        public List<PointLocation> getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public Set<Integer> getOrigins() {
+            return origins;
+        }
+
+        @Override
+        public Set<Integer> getDestinations() {
+            return destinations;
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps each recently used origin's walking costs in memory, sorted by
+ * duration, at the origin's maximum stored duration. Shorter queries are
+ * answered with a prefix view of the sorted costs instead of a store read.
+ * The cache is bounded by the total number of costs it holds and evicts the
+ * least recently used origins first. Writes go to the backing store and
+ * invalidate the origin.
+ *
+ * Each origin is loaded once, however many threads ask for it. A load that
+ * overlaps a write to its origin may read the store before the write, so
+ * every write is numbered and a cached origin loaded before its latest write
+ * is discarded and reloaded. The cache uses a single segment because Guava
+ * splits the maximum weight evenly across segments, which would evict any
+ * origin heavier than its share of maxCosts as soon as it was loaded.
+ *
+ * @author Public Transit Analytics
+ */
+public class CachingDistanceStoreManager implements DistanceStoreManager {
+
+    private final DistanceStoreManager store;
+    private final Cache<PointLocation, OriginCosts> cache;
+    private final AtomicLong writes;
+    private final ConcurrentMap<PointLocation, Long> lastWrites;
+
+    public CachingDistanceStoreManager(final DistanceStoreManager store,
+                                       final long maxCosts) {
+        this.store = store;
+        writes = new AtomicLong();
+        lastWrites = new ConcurrentHashMap<>();
+        cache = CacheBuilder.newBuilder().concurrencyLevel(1)
+                .maximumWeight(maxCosts)
+                .weigher((final PointLocation origin,
+                          final OriginCosts costs) -> costs.getWeight())
+                .recordStats().build();
+    }
+
+    @Override
+    public Duration getMaxStored(final PointLocation location)
+            throws InterruptedException {
+        return getOriginCosts(location).maxStored;
+    }
+
+    @Override
+    public void updateMaxStored(final PointLocation location,
+                                final Duration duration)
+            throws InterruptedException {
+        store.updateMaxStored(location, duration);
+        recordWrite(location);
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> get(
+            final PointLocation location, final Duration duration)
+            throws InterruptedException {
+        final OriginCosts costs = getOriginCosts(location);
+        if (costs.maxStored == null
+                    || duration.compareTo(costs.maxStored) > 0) {
+            return store.get(location, duration);
+        }
+        return costs.getPrefix(duration);
+    }
+
+    @Override
+    public void putAll(final PointLocation location,
+                       final Map<PointLocation, WalkingCosts> costs)
+            throws InterruptedException {
+        store.putAll(location, costs);
+        recordWrite(location);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private void recordWrite(final PointLocation location) {
+        lastWrites.put(location, writes.incrementAndGet());
+        cache.invalidate(location);
+    }
+
+    private OriginCosts getOriginCosts(final PointLocation location)
+            throws InterruptedException {
+        while (true) {
+            final OriginCosts costs;
+            try {
+                costs = cache.get(location, () -> load(location));
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) e.getCause();
+                }
+                throw new ScoreGeneratorFatalException(e.getCause());
+            } catch (final UncheckedExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+            final Long lastWrite = lastWrites.get(location);
+            if (lastWrite == null || lastWrite <= costs.loadedAfter) {
+                return costs;
+            }
+            cache.asMap().remove(location, costs);
+        }
+    }
+
+    private OriginCosts load(final PointLocation location)
+            throws InterruptedException {
+        final long loadedAfter = writes.get();
+        final Duration maxStored = store.getMaxStored(location);
+        if (maxStored == null) {
+            return new OriginCosts(loadedAfter, null, ImmutableMap.of());
+        }
+        return new OriginCosts(loadedAfter, maxStored,
+                               store.get(location, maxStored));
+    }
+
+    private static class OriginCosts {
+
+        final long loadedAfter;
+        final Duration maxStored;
+        final PointLocation[] destinations;
+        final WalkingCosts[] costs;
+        final Map<PointLocation, Integer> positions;
+
+        OriginCosts(final long loadedAfter, final Duration maxStored,
+                    final Map<PointLocation, WalkingCosts> stored) {
+            this.loadedAfter = loadedAfter;
+            this.maxStored = maxStored;
+            @SuppressWarnings("unchecked")
+            final Map.Entry<PointLocation, WalkingCosts>[] entries
+                    = stored.entrySet().toArray(new Map.Entry[0]);
+            Arrays.sort(entries, Comparator.comparing(
+                    entry -> entry.getValue().getDuration()));
+
+            destinations = new PointLocation[entries.length];
+            costs = new WalkingCosts[entries.length];
+            final ImmutableMap.Builder<PointLocation, Integer> builder
+                    = ImmutableMap.builder();
+            for (int i = 0; i < entries.length; i++) {
+                destinations[i] = entries[i].getKey();
+                costs[i] = entries[i].getValue();
+                builder.put(destinations[i], i);
+            }
+            positions = builder.build();
+        }
+
+        int getWeight() {
+            return costs.length + 1;
+        }
+
+        Map<PointLocation, WalkingCosts> getPrefix(final Duration duration) {
+            int low = 0;
+            int high = costs.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (costs[middle].getDuration().compareTo(duration) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return new PrefixMap(this, low);
+        }
+    }
+
+    /**
+     * A read-only view of the first size costs of an origin.
+     */
+    private static class PrefixMap
+            extends AbstractMap<PointLocation, WalkingCosts> {
+
+        private final OriginCosts origin;
+        private final int size;
+
+        PrefixMap(final OriginCosts origin, final int size) {
+            this.origin = origin;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            final Integer position = origin.positions.get(key);
+            return position != null && position < size;
+        }
+
+        @Override
+        public WalkingCosts get(final Object key) {
+            final Integer position = origin.positions.get(key);
+            return (position != null && position < size)
+                    ? origin.costs[position] : null;
+        }
+
+        @Override
+        public Set<Map.Entry<PointLocation, WalkingCosts>> entrySet() {
+            return new AbstractSet<Map.Entry<PointLocation, WalkingCosts>>() {
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<PointLocation, WalkingCosts>>
+                        iterator() {
+                    return new Iterator<Map.Entry<PointLocation, WalkingCosts>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Map.Entry<PointLocation, WalkingCosts> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            final int position = next++;
+                            return new SimpleImmutableEntry<>(
+                                    origin.destinations[position],
+                                    origin.costs[position]);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+}
@@ -25,6 +25,10 @@ import java.util.Set;
 import lombok.RequiredArgsConstructor;
 
 /**
+ * DistanceClient that estimates walks as straight lines at a fixed speed.
+ * Fast estimates use a spherical lower bound on the straight line distance
+ * instead of the ellipsoidal distance, which is enough when the estimates
+ * only filter out points that are too far to walk to.
  *
  * @author Public Transit Analytics
  */
@@ -32,6 +36,7 @@ import lombok.RequiredArgsConstructor;
 public class EstimatingDistanceClient implements DistanceClient {
 
     private final double walkingMetersPerSecond;
+    private final boolean fastEstimates;
     
     @Override
     public Map<PointLocation, WalkingCosts> getDistances(
@@ -44,8 +49,9 @@ public class EstimatingDistanceClient implements DistanceClient {
                 = ImmutableMap.builder();
         for (final PointLocation otherPoint : consideredPoints) {
             final GeoPoint otherLocation = otherPoint.getLocation();
-            final double distanceMeters 
-                    = location.getDistanceMeters(otherLocation);
+            final double distanceMeters = fastEstimates
+                    ? location.getLowerBoundDistanceMeters(otherLocation)
+                    : location.getDistanceMeters(otherLocation);
             final Duration time = Duration.ofSeconds(
                     (long) Math.floor(distanceMeters / walkingMetersPerSecond));
             final WalkingCosts costs = new WalkingCosts(time, distanceMeters);
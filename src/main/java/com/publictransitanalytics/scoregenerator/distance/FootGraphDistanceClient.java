@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.environment.FootGraph;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DistanceClient that routes walks over an in-memory FootGraph instead of
+ * asking a routing server. Each query snaps the points to their nearest
+ * nodes and runs a single Dijkstra search from the origin, which stops as
+ * soon as every destination node is settled or the walking budget is spent.
+ * Destinations that cannot be reached within the budget are left out, as
+ * with the OSRM clients.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class FootGraphDistanceClient implements DistanceClient {
+
+    private static final double MAX_SNAP_METERS = 500;
+
+    private final FootGraph graph;
+    private final double walkingMetersPerSecond;
+    private final double maxMeters;
+    private final ThreadLocal<Search> searches;
+
+    public FootGraphDistanceClient(final FootGraph graph,
+                                   final double walkingMetersPerSecond,
+                                   final Duration maxDuration) {
+        this.graph = graph;
+        this.walkingMetersPerSecond = walkingMetersPerSecond;
+        maxMeters = maxDuration.getSeconds() * walkingMetersPerSecond;
+        searches = ThreadLocal.withInitial(
+                () -> new Search(graph.getNodeCount()));
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> getDistances(
+            final PointLocation point,
+            final Set<PointLocation> consideredPoints)
+            throws DistanceClientException, InterruptedException {
+        final GeoPoint location = point.getLocation();
+        final int origin = graph.getNearestNode(location, MAX_SNAP_METERS);
+        if (origin == -1) {
+            log.warn("Could not find walkable node near {}", point);
+            return ImmutableMap.of();
+        }
+
+        final int count = consideredPoints.size();
+        final PointLocation[] destinations = new PointLocation[count];
+        final int[] destinationNodes = new int[count];
+        final double[] snapMeters = new double[count];
+        final Set<Integer> targetNodes = new HashSet<>();
+        int i = 0;
+        for (final PointLocation destination : consideredPoints) {
+            final GeoPoint destinationLocation = destination.getLocation();
+            final int node = graph.getNearestNode(destinationLocation,
+                                                  MAX_SNAP_METERS);
+            destinations[i] = destination;
+            destinationNodes[i] = node;
+            if (node != -1) {
+                snapMeters[i] = graph.getMetersToNode(destinationLocation,
+                                                      node);
+                targetNodes.add(node);
+            }
+            i++;
+        }
+
+        final Search search = searches.get();
+        try {
+            search.run(origin, graph.getMetersToNode(location, origin),
+                       targetNodes);
+
+            final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
+                    = ImmutableMap.builder();
+            for (int j = 0; j < count; j++) {
+                final int node = destinationNodes[j];
+                if (node != -1 && search.isSettled(node)) {
+                    final double meters = search.getMeters(node)
+                            + snapMeters[j];
+                    final Duration duration = Duration.ofSeconds(
+                            (long) Math.ceil(meters / walkingMetersPerSecond));
+                    builder.put(destinations[j],
+                                new WalkingCosts(duration, meters));
+                } else {
+                    log.debug("Could not walk from {} to {}", point,
+                              destinations[j]);
+                }
+            }
+            return builder.build();
+        } finally {
+            search.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Reusable per-thread search state. Distances are indexed by node and
+     * only the touched entries are cleared between searches, so a search
+     * costs time in proportion to the nodes it reaches rather than to the
+     * size of the graph.
+     */
+    private class Search {
+
+        private final double[] meters;
+        private final boolean[] settled;
+        private int[] touched;
+        private int touchedCount;
+        private int[] heapNodes;
+        private double[] heapKeys;
+        private int heapSize;
+
+        Search(final int nodeCount) {
+            meters = new double[nodeCount];
+            Arrays.fill(meters, Double.POSITIVE_INFINITY);
+            settled = new boolean[nodeCount];
+            touched = new int[16];
+            heapNodes = new int[16];
+            heapKeys = new double[16];
+        }
+
+        void run(final int origin, final double originMeters,
+                 final Set<Integer> targetNodes) {
+            int remaining = targetNodes.size();
+            relax(origin, originMeters);
+            while (remaining > 0 && heapSize > 0) {
+                final double key = heapKeys[0];
+                final int node = pop();
+                if (settled[node]) {
+                    continue;
+                }
+                if (key > maxMeters) {
+                    break;
+                }
+                settled[node] = true;
+                if (targetNodes.contains(node)) {
+                    remaining--;
+                }
+                for (int edge = graph.getEdgeStart(node);
+                     edge < graph.getEdgeEnd(node); edge++) {
+                    final int target = graph.getEdgeTarget(edge);
+                    if (!settled[target]) {
+                        relax(target, key + graph.getEdgeMeters(edge));
+                    }
+                }
+            }
+        }
+
+        boolean isSettled(final int node) {
+            return settled[node];
+        }
+
+        double getMeters(final int node) {
+            return meters[node];
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                meters[touched[i]] = Double.POSITIVE_INFINITY;
+                settled[touched[i]] = false;
+            }
+            touchedCount = 0;
+            heapSize = 0;
+        }
+
+        private void relax(final int node, final double distance) {
+            if (distance >= meters[node]) {
+                return;
+            }
+            if (meters[node] == Double.POSITIVE_INFINITY) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = node;
+            }
+            meters[node] = distance;
+            push(node, distance);
+        }
+
+        private void push(final int node, final double key) {
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int position = heapSize++;
+            while (position > 0) {
+                final int parent = (position - 1) / 2;
+                if (heapKeys[parent] <= key) {
+                    break;
+                }
+                heapNodes[position] = heapNodes[parent];
+                heapKeys[position] = heapKeys[parent];
+                position = parent;
+            }
+            heapNodes[position] = node;
+            heapKeys[position] = key;
+        }
+
+        private int pop() {
+            final int top = heapNodes[0];
+            final int lastNode = heapNodes[--heapSize];
+            final double lastKey = heapKeys[heapSize];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize
+                            && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (lastKey <= heapKeys[child]) {
+                    break;
+                }
+                heapNodes[position] = heapNodes[child];
+                heapKeys[position] = heapKeys[child];
+                position = child;
+            }
+            if (heapSize > 0) {
+                heapNodes[position] = lastNode;
+                heapKeys[position] = lastKey;
+            }
+            return top;
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CountingInputStream;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A DistanceStoreManager that answers from a read-only, memory-mapped walking
+ * time matrix written by WalkingTimeMatrixWriter. Each origin owns a run of
+ * (destination index, seconds) pairs sorted by seconds, so a query is a binary
+ * search followed by a sequential read. Origins or durations that the matrix
+ * does not cover, and all writes, are delegated to an overflow store. The
+ * overflow maximum of a mapped origin is read from the overflow store at most
+ * once and then tracked through updateMaxStored, so repeated lookups of
+ * mapped origins stay in memory.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class MappedDistanceStoreManager implements DistanceStoreManager {
+
+    static final int MAGIC = 0x57544d31;
+    static final int VERSION = 1;
+    static final int ALIGNMENT = 8;
+    static final int TABLE_RECORD_BYTES = 16;
+    static final int ENTRY_BYTES = 8;
+    static final int NO_MAX_STORED = -1;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final PointLocation[] locations;
+    private final Map<PointLocation, Integer> originIndices;
+    private final long tableStart;
+    private final DistanceStoreManager overflow;
+    private final ConcurrentMap<PointLocation, Optional<Duration>> overflowMaxes;
+
+    public MappedDistanceStoreManager(
+            final Path file, final BiMap<String, PointLocation> pointIdMap,
+            final DistanceStoreManager overflow) throws IOException {
+        this.overflow = overflow;
+        overflowMaxes = new ConcurrentHashMap<>();
+
+        final String[] identifiers;
+        try (final CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            final DataInputStream input = new DataInputStream(counter);
+            if (input.readInt() != MAGIC) {
+                throw new ScoreGeneratorFatalException(String.format(
+                        "%s is not a walking time matrix.", file));
+            }
+            final int version = input.readInt();
+            if (version != VERSION) {
+                throw new ScoreGeneratorFatalException(String.format(
+                        "Walking time matrix %s has unsupported version %d.",
+                        file, version));
+            }
+            final int count = input.readInt();
+            identifiers = new String[count];
+            for (int i = 0; i < count; i++) {
+                identifiers[i] = input.readUTF();
+            }
+            tableStart = align(counter.getCount());
+        }
+
+        locations = new PointLocation[identifiers.length];
+        final ImmutableMap.Builder<PointLocation, Integer> indexBuilder
+                = ImmutableMap.builder();
+        int missing = 0;
+        for (int i = 0; i < identifiers.length; i++) {
+            final PointLocation location = pointIdMap.get(identifiers[i]);
+            locations[i] = location;
+            if (location != null) {
+                indexBuilder.put(location, i);
+            } else {
+                missing++;
+            }
+        }
+        originIndices = indexBuilder.build();
+        if (missing > 0) {
+            log.warn("{} locations in walking time matrix {} are unknown.",
+                     missing, file);
+        }
+
+        try (final FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int segmentCount
+                    = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                final long position = ((long) i) << SEGMENT_SHIFT;
+                segments[i] = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_MASK + 1, size - position));
+            }
+        }
+    }
+
+    @Override
+    public Duration getMaxStored(final PointLocation location)
+            throws InterruptedException {
+        final int mappedSeconds = getMappedMaxSeconds(location);
+        if (mappedSeconds == NO_MAX_STORED) {
+            return overflow.getMaxStored(location);
+        }
+        final Duration mappedMax = Duration.ofSeconds(mappedSeconds);
+        final Optional<Duration> overflowMax = getOverflowMax(location);
+        return (!overflowMax.isPresent()
+                        || overflowMax.get().compareTo(mappedMax) < 0)
+                ? mappedMax : overflowMax.get();
+    }
+
+    @Override
+    public void updateMaxStored(final PointLocation location,
+                                final Duration duration)
+            throws InterruptedException {
+        overflow.updateMaxStored(location, duration);
+        if (originIndices.containsKey(location)) {
+            overflowMaxes.put(location, Optional.of(duration));
+        }
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> get(
+            final PointLocation location, final Duration duration)
+            throws InterruptedException {
+        final long durationSeconds = duration.getSeconds();
+        final int mappedSeconds = getMappedMaxSeconds(location);
+        if (mappedSeconds == NO_MAX_STORED) {
+            return overflow.get(location, duration);
+        }
+
+        final Integer origin = originIndices.get(location);
+        final long recordPosition = tableStart
+                + ((long) origin) * TABLE_RECORD_BYTES;
+        final long entriesStart = getLong(recordPosition);
+        final int entryCount = getInt(recordPosition + Long.BYTES);
+        final int reachedCount = countWithin(
+                entriesStart, entryCount, durationSeconds);
+
+        final Map<PointLocation, WalkingCosts> costs = new HashMap<>();
+        for (int i = 0; i < reachedCount; i++) {
+            final long entryPosition = entriesStart + ((long) i) * ENTRY_BYTES;
+            final PointLocation destination
+                    = locations[getInt(entryPosition)];
+            if (destination != null) {
+                costs.put(destination, new WalkingCosts(Duration.ofSeconds(
+                        getInt(entryPosition + Integer.BYTES)), -1));
+            }
+        }
+
+        if (durationSeconds > mappedSeconds) {
+            for (final Map.Entry<PointLocation, WalkingCosts> entry
+                         : overflow.get(location, duration).entrySet()) {
+                costs.merge(entry.getKey(), entry.getValue(),
+                            (mapped, stored) -> mapped.getDuration().compareTo(
+                                    stored.getDuration()) <= 0
+                                    ? mapped : stored);
+            }
+        }
+        return costs;
+    }
+
+    @Override
+    public void putAll(final PointLocation location,
+                       final Map<PointLocation, WalkingCosts> costs)
+            throws InterruptedException {
+        overflow.putAll(location, costs);
+    }
+
+    static long align(final long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private Optional<Duration> getOverflowMax(final PointLocation location)
+            throws InterruptedException {
+        final Optional<Duration> knownMax = overflowMaxes.get(location);
+        if (knownMax != null) {
+            return knownMax;
+        }
+        final Optional<Duration> storedMax = Optional.ofNullable(
+                overflow.getMaxStored(location));
+        final Optional<Duration> racedMax
+                = overflowMaxes.putIfAbsent(location, storedMax);
+        return (racedMax == null) ? storedMax : racedMax;
+    }
+
+    private int getMappedMaxSeconds(final PointLocation location) {
+        final Integer origin = originIndices.get(location);
+        if (origin == null) {
+            return NO_MAX_STORED;
+        }
+        return getInt(tableStart + ((long) origin) * TABLE_RECORD_BYTES
+                              + Long.BYTES + Integer.BYTES);
+    }
+
+    private int countWithin(final long entriesStart, final int entryCount,
+                            final long durationSeconds) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int seconds = getInt(entriesStart
+                                               + ((long) middle) * ENTRY_BYTES
+                                               + Integer.BYTES);
+            if (seconds <= durationSeconds) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /* Records are aligned to their own size and segments are a power of two,
+     * so no value straddles a segment boundary. */
+    private int getInt(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)]
+                .getInt((int) (position & SEGMENT_MASK));
+    }
+
+    private long getLong(final long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)]
+                .getLong((int) (position & SEGMENT_MASK));
+    }
+
+}
@@ -16,14 +16,14 @@
 package com.publictransitanalytics.scoregenerator.distance;
 
 import com.google.common.collect.ImmutableMap;
-import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
 import java.io.IOException;
+import java.io.Reader;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
@@ -40,8 +40,6 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OsrmLocalDistanceClient implements DistanceClient {
 
-    private static final String OK_STATUS = "Ok";
-    
     private final OkHttpClient client;
     private final String host;
     private final int port;
@@ -54,7 +52,22 @@ public class OsrmLocalDistanceClient implements DistanceClient {
             throws DistanceClientException, InterruptedException {
         final PointSequencer sequencer = factory.getSequencer(
                 point, consideredPoints);
+        final String url = getTableUrl(host, port, sequencer);
 
+        try {
+            final Request request = new Request.Builder().url(url).build();
+            final Response response = client.newCall(request).execute();
+            try (final ResponseBody body = response.body()) {
+                return parseTable(body.charStream(), sequencer.getSequence(),
+                                  consideredPoints.size());
+            }
+        } catch (final IOException e) {
+            throw new DistanceClientException(e);
+        }
+    }
+
+    static String getTableUrl(final String host, final int port,
+                              final PointSequencer sequencer) {
         final StringJoiner coordinateJoiner = new StringJoiner(";");
         final List<PointLocation> sequence = sequencer.getSequence();
         sequence.stream().map(location -> String.format(
@@ -74,49 +87,34 @@ public class OsrmLocalDistanceClient implements DistanceClient {
 
         final String coordinateString = coordinateJoiner.toString();
 
-        final String url = String.format(
+        return String.format(
                 "http://%s:%d/table/v1/foot/%s?sources=%s&destinations=%s&generate_hints=false",
                 host, port, coordinateString, originIndexString,
                 destinationIndexString);
+    }
 
-        try {
-            final Request request = new Request.Builder().url(url).build();
-            final Response response = client.newCall(request).execute();
-            final String responseJsonString = response.body().string();
-            final DocumentContext json = JsonPath.parse(responseJsonString);
-
-            final String status = json.read("$.code");
-
-            if (status.equals(OK_STATUS)) {
-                final List<Object> durations = json.read("$.durations[*][*]");
-
-                final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
-                        = ImmutableMap.builder();
-                for (int i = 0; i < consideredPoints.size(); i++) {
-                    final PointLocation location = sequence.get(i);     
-                    final Object durationSecondsObject = durations.get(i);
-                    
-                    if (durationSecondsObject != null) {
-                        final String durationSecondsString 
-                            = durationSecondsObject.toString();
-                        final Double durationSeconds = Double.valueOf(
-                            durationSecondsString);
-                        final Duration duration = Duration.ofSeconds(
-                                (long) Math.ceil(durationSeconds));
-                        builder.put(location, new WalkingCosts(duration, -1));
-                    } else {
-                        log.warn("Could not get duration for {}", location);
-                    }
-
-                }
-                return builder.build();
+    static Map<PointLocation, WalkingCosts> parseTable(
+            final Reader responseReader, final List<PointLocation> sequence,
+            final int consideredCount)
+            throws DistanceClientException, IOException {
+        final double[] durations = OsrmTableDecoder.readDurations(
+                responseReader, consideredCount);
+
+        final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
+                = ImmutableMap.builder();
+        for (int i = 0; i < consideredCount; i++) {
+            final PointLocation location = sequence.get(i);
+            final double durationSeconds = durations[i];
+
+            if (!Double.isNaN(durationSeconds)) {
+                final Duration duration = Duration.ofSeconds(
+                        (long) Math.ceil(durationSeconds));
+                builder.put(location, new WalkingCosts(duration, -1));
             } else {
-                throw new DistanceClientException(String.format(
-                        "osrm-routed request failed with code %s", status));
+                log.warn("Could not get duration for {}", location);
             }
-        } catch (final IOException e) {
-            throw new DistanceClientException(e);
         }
+        return builder.build();
     }
 
     @Override
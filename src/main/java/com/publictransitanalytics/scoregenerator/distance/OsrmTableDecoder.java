@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Decodes an osrm-routed table response as it streams in, reading the
+ * durations straight into a primitive array without building a document.
+ *
+ * @author Public Transit Analytics
+ */
+public class OsrmTableDecoder {
+
+    private static final String OK_STATUS = "Ok";
+    private static final String CODE_FIELD = "code";
+    private static final String MESSAGE_FIELD = "message";
+    private static final String DURATIONS_FIELD = "durations";
+
+    /**
+     * Read the durations from a single-source table response.
+     *
+     * @param reader the response body.
+     * @param count the number of destinations in the request.
+     * @return the duration in seconds to each destination, or NaN for
+     * destinations that could not be routed.
+     */
+    public static double[] readDurations(final Reader reader, final int count)
+            throws IOException, DistanceClientException {
+        return readDurations(reader, 1, count);
+    }
+
+    /**
+     * Read the durations from a many-to-many table response.
+     *
+     * @param reader the response body.
+     * @param sources the number of sources in the request.
+     * @param destinations the number of destinations in the request.
+     * @return the duration in seconds from each source to each destination,
+     * in row-major order, or NaN where no route was found.
+     */
+    public static double[] readDurations(final Reader reader,
+                                         final int sources,
+                                         final int destinations)
+            throws IOException, DistanceClientException {
+        final JsonReader json = new JsonReader(reader);
+        String status = null;
+        String message = null;
+        double[] durations = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            final String name = json.nextName();
+            if (CODE_FIELD.equals(name)) {
+                status = json.nextString();
+            } else if (MESSAGE_FIELD.equals(name)) {
+                message = json.nextString();
+            } else if (DURATIONS_FIELD.equals(name)) {
+                durations = readMatrix(json, sources, destinations);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (!OK_STATUS.equals(status)) {
+            throw new DistanceClientException(String.format(
+                    "osrm-routed request failed with code %s: %s", status,
+                    message));
+        }
+        if (durations == null) {
+            throw new DistanceClientException(
+                    "osrm-routed response had no durations");
+        }
+        return durations;
+    }
+
+    private static double[] readMatrix(final JsonReader json,
+                                       final int sources,
+                                       final int destinations)
+            throws IOException, DistanceClientException {
+        final double[] durations = new double[sources * destinations];
+        Arrays.fill(durations, Double.NaN);
+
+        json.beginArray();
+        int row = 0;
+        while (json.hasNext()) {
+            if (row >= sources) {
+                throw new DistanceClientException(String.format(
+                        "osrm-routed returned more than %d rows", sources));
+            }
+            json.beginArray();
+            int column = 0;
+            while (json.hasNext()) {
+                if (column >= destinations) {
+                    throw new DistanceClientException(String.format(
+                            "osrm-routed returned more than %d durations",
+                            destinations));
+                }
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else {
+                    durations[row * destinations + column]
+                            = json.nextDouble();
+                }
+                column++;
+            }
+            json.endArray();
+            row++;
+        }
+        json.endArray();
+        return durations;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Queries osrm-routed for walking costs, splitting large destination sets
+ * into chunks that are all sent at once and merged when the last returns.
+ * The OkHttpClient's dispatcher bounds how many requests are in flight, so
+ * one client shared across calculations also shares one connection pool.
+ *
+ * @author Public Transit Analytics
+ */
+@RequiredArgsConstructor
+public class PipelinedOsrmDistanceClient implements DistanceClient {
+
+    private final OkHttpClient client;
+    private final String host;
+    private final int port;
+    private final PointSequencerFactory factory;
+    private final int maxConsidered;
+
+    /**
+     * Build an OkHttpClient whose dispatcher allows at most maxInFlight
+     * concurrent requests. The default dispatcher queues work ahead of a
+     * single thread, so it is replaced with one that grows to the limit.
+     */
+    public static OkHttpClient buildHttpClient(final int maxInFlight) {
+        final Dispatcher dispatcher = new Dispatcher(
+                Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                        .setNameFormat("osrm-dispatcher-%d").setDaemon(true)
+                        .build()));
+        dispatcher.setMaxRequests(maxInFlight);
+        dispatcher.setMaxRequestsPerHost(maxInFlight);
+        final OkHttpClient client = new OkHttpClient();
+        client.setDispatcher(dispatcher);
+        return client;
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> getDistances(
+            final PointLocation point,
+            final Set<PointLocation> consideredPoints)
+            throws DistanceClientException, InterruptedException {
+        final List<PointLocation> consideredList
+                = ImmutableList.copyOf(consideredPoints);
+        final Object tag = new Object();
+        final ImmutableList.Builder<CompletableFuture<Map<PointLocation, WalkingCosts>>> chunksBuilder
+                = ImmutableList.builder();
+        for (int base = 0; base < consideredList.size();
+             base += maxConsidered) {
+            final int end = Math.min(base + maxConsidered,
+                                     consideredList.size());
+            chunksBuilder.add(enqueue(point, ImmutableSet.copyOf(
+                    consideredList.subList(base, end)), tag));
+        }
+
+        final ImmutableMap.Builder<PointLocation, WalkingCosts> resultBuilder
+                = ImmutableMap.builder();
+        try {
+            for (final CompletableFuture<Map<PointLocation, WalkingCosts>> chunk
+                         : chunksBuilder.build()) {
+                resultBuilder.putAll(chunk.get());
+            }
+        } catch (final ExecutionException e) {
+            client.cancel(tag);
+            if (e.getCause() instanceof DistanceClientException) {
+                throw (DistanceClientException) e.getCause();
+            }
+            throw new DistanceClientException(e);
+        } catch (final InterruptedException e) {
+            client.cancel(tag);
+            throw e;
+        }
+        return resultBuilder.build();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private CompletableFuture<Map<PointLocation, WalkingCosts>> enqueue(
+            final PointLocation point,
+            final Set<PointLocation> consideredPoints, final Object tag) {
+        final PointSequencer sequencer = factory.getSequencer(
+                point, consideredPoints);
+        final Request request = new Request.Builder()
+                .url(OsrmLocalDistanceClient.getTableUrl(
+                        host, port, sequencer))
+                .tag(tag).build();
+        final CompletableFuture<Map<PointLocation, WalkingCosts>> future
+                = new CompletableFuture<>();
+        client.newCall(request).enqueue(new Callback() {
+
+            @Override
+            public void onFailure(final Request request,
+                                  final IOException e) {
+                future.completeExceptionally(new DistanceClientException(e));
+            }
+
+            @Override
+            public void onResponse(final Response response) {
+                try (final ResponseBody body = response.body()) {
+                    future.complete(OsrmLocalDistanceClient.parseTable(
+                            body.charStream(), sequencer.getSequence(),
+                            consideredPoints.size()));
+                } catch (final IOException e) {
+                    future.completeExceptionally(
+                            new DistanceClientException(e));
+                } catch (final DistanceClientException
+                                       | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+}
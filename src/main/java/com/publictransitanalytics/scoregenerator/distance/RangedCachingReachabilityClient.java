@@ -17,6 +17,7 @@ package com.publictransitanalytics.scoregenerator.distance;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
@@ -26,21 +27,43 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 
 /**
+ * Answers walking cost queries from a store, filling it from a distance
+ * client on a miss. Concurrent misses for the same origin and duration bucket
+ * are single-flighted: one thread fetches while the others wait for and share
+ * its result, retrying only if they need a longer duration than it fetched.
+ * Fetches run as managed blocks, so that a fork/join worker waiting on the
+ * store or the distance client lets its pool start a spare worker.
  *
  * @author Public Transit Analytics
  */
 @RequiredArgsConstructor
 public class RangedCachingReachabilityClient implements ReachabilityClient {
 
+    private static final long BUCKET_SECONDS = Duration.ofMinutes(5)
+            .getSeconds();
+    private static final int MAX_STORED_STRIPES = 64;
+
     private final DistanceStoreManager store;
-    private final Set<PointLocation> points;
+    private final CandidateSelector candidateSelector;
     private final TimeTracker timeTracker;
     private final DistanceClient distanceClient;
     private final DistanceClient estimationClient;
 
+    private final ConcurrentMap<FetchKey, Fetch> fetches
+            = new ConcurrentHashMap<>();
+    private final Striped<Lock> maxStoredLocks
+            = Striped.lock(MAX_STORED_STRIPES);
+
     @Override
     public Map<PointLocation, WalkingCosts> getWalkingCosts(
             final PointLocation location, final LocalDateTime currentTime,
@@ -49,11 +72,47 @@ public class RangedCachingReachabilityClient implements ReachabilityClient {
 
         final Duration duration
                 = timeTracker.getDuration(currentTime, cutoffTime);
+        final FetchKey key = new FetchKey(location, getBucket(duration));
+
+        while (true) {
+            final Duration maxStored = store.getMaxStored(location);
+            if (maxStored != null && duration.compareTo(maxStored) <= 0) {
+                return store.get(location, duration);
+            }
+
+            final Fetch fetch = new Fetch(duration, new CompletableFuture<>());
+            final Fetch existing = fetches.putIfAbsent(key, fetch);
+            if (existing == null) {
+                try {
+                    final FetchBlocker blocker
+                            = new FetchBlocker(location, duration);
+                    ForkJoinPool.managedBlock(blocker);
+                    final Map<PointLocation, WalkingCosts> costs
+                            = blocker.getCosts();
+                    fetch.getResult().complete(costs);
+                    return costs;
+                } catch (final DistanceClientException | InterruptedException
+                                       | RuntimeException e) {
+                    fetch.getResult().completeExceptionally(e);
+                    throw e;
+                } finally {
+                    fetches.remove(key, fetch);
+                }
+            }
+
+            final Map<PointLocation, WalkingCosts> shared = await(existing);
+            if (duration.compareTo(existing.getDuration()) <= 0) {
+                return filterTimes(shared, duration);
+            }
+        }
+    }
 
+    private Map<PointLocation, WalkingCosts> fetchAndStore(
+            final PointLocation location, final Duration duration)
+            throws DistanceClientException, InterruptedException {
         final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
                 = ImmutableMap.builder();
         final Set<PointLocation> uncached;
-        final boolean updateMaxStored;
         final Duration maxStored = store.getMaxStored(location);
         if (maxStored != null) {
             final Map<PointLocation, WalkingCosts> cached
@@ -61,15 +120,14 @@ public class RangedCachingReachabilityClient implements ReachabilityClient {
             builder.putAll(cached);
 
             if (duration.compareTo(maxStored) > 0) {
-                uncached = Sets.difference(points, cached.keySet());
-                updateMaxStored = true;
+                uncached = Sets.difference(
+                        candidateSelector.getCandidates(location, duration),
+                        cached.keySet());
             } else {
                 uncached = Collections.emptySet();
-                updateMaxStored = false;
             }
         } else {
-            uncached = points;
-            updateMaxStored = true;
+            uncached = candidateSelector.getCandidates(location, duration);
         }
 
         if (!uncached.isEmpty()) {
@@ -90,11 +148,41 @@ public class RangedCachingReachabilityClient implements ReachabilityClient {
             }
         }
 
-        if (updateMaxStored) {
-            store.updateMaxStored(location, duration);
-        }
+        raiseMaxStored(location, duration);
         return builder.build();
+    }
 
+    /* Fetches for different buckets of one origin can finish in any order, so
+     * the marker only ever moves up. */
+    private void raiseMaxStored(final PointLocation location,
+                                final Duration duration)
+            throws InterruptedException {
+        final Lock lock = maxStoredLocks.get(location);
+        lock.lock();
+        try {
+            final Duration maxStored = store.getMaxStored(location);
+            if (maxStored == null || duration.compareTo(maxStored) > 0) {
+                store.updateMaxStored(location, duration);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<PointLocation, WalkingCosts> await(final Fetch fetch)
+            throws DistanceClientException, InterruptedException {
+        try {
+            return fetch.getResult().get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof DistanceClientException) {
+                throw (DistanceClientException) e.getCause();
+            }
+            throw new DistanceClientException(e);
+        }
+    }
+
+    private static long getBucket(final Duration duration) {
+        return (duration.getSeconds() + BUCKET_SECONDS - 1) / BUCKET_SECONDS;
     }
 
     private Map<PointLocation, WalkingCosts> filterTimes(
@@ -106,4 +194,50 @@ public class RangedCachingReachabilityClient implements ReachabilityClient {
                 .collect(ImmutableMap.toImmutableMap(
                         Entry::getKey, Entry::getValue));
     }
+
+    @RequiredArgsConstructor
+    private class FetchBlocker implements ForkJoinPool.ManagedBlocker {
+
+        private final PointLocation location;
+        private final Duration duration;
+        private Map<PointLocation, WalkingCosts> costs;
+        private DistanceClientException failure;
+
+        @Override
+        public boolean block() throws InterruptedException {
+            try {
+                costs = fetchAndStore(location, duration);
+            } catch (final DistanceClientException e) {
+                failure = e;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return costs != null || failure != null;
+        }
+
+        Map<PointLocation, WalkingCosts> getCosts()
+                throws DistanceClientException {
+            if (failure != null) {
+                throw failure;
+            }
+            return costs;
+        }
+    }
+
+    @Value
+    private static class FetchKey {
+
+        private final PointLocation location;
+        private final long bucket;
+    }
+
+    @Value
+    private static class Fetch {
+
+        private final Duration duration;
+        private final CompletableFuture<Map<PointLocation, WalkingCosts>> result;
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CandidateSelector that buckets locations into a uniform grid of latitude
+ * and longitude cells, so that only the cells around a location are
+ * considered. The cells searched always cover the walking distance on the
+ * WGS84 ellipsoid, so the candidates are a superset of the walkable
+ * locations.
+ *
+ * @author Public Transit Analytics
+ */
+public class SpatialCandidateSelector implements CandidateSelector {
+
+    /* Smallest meridional and prime vertical radii of curvature of the WGS84
+     * ellipsoid, which bound the meters in a radian of latitude and in a
+     * radian of longitude at the equator from below. */
+    private static final double MIN_MERIDIONAL_RADIUS_METERS = 6335439;
+    private static final double EQUATORIAL_RADIUS_METERS = 6378137;
+    private static final double SAFETY_FACTOR = 1.01;
+    private static final double CELL_METERS = 500;
+
+    private final Set<PointLocation> points;
+    private final double walkingMetersPerSecond;
+    private final double cellLatitudeRadians;
+    private final double cellLongitudeRadians;
+    private final Map<Long, List<PointLocation>> cells;
+
+    public SpatialCandidateSelector(
+            final Set<? extends PointLocation> points,
+            final double walkingMetersPerSecond) {
+        this.points = ImmutableSet.copyOf(points);
+        this.walkingMetersPerSecond = walkingMetersPerSecond;
+
+        double latitudeSum = 0;
+        for (final PointLocation point : points) {
+            latitudeSum += getLatitude(point.getLocation());
+        }
+        final double referenceLatitude = points.isEmpty() ? 0
+                : latitudeSum / points.size();
+        cellLatitudeRadians = CELL_METERS / MIN_MERIDIONAL_RADIUS_METERS;
+        cellLongitudeRadians = CELL_METERS / (EQUATORIAL_RADIUS_METERS
+                                              * Math.cos(referenceLatitude));
+
+        final Map<Long, List<PointLocation>> cellBuilder = new HashMap<>();
+        for (final PointLocation point : points) {
+            final GeoPoint location = point.getLocation();
+            cellBuilder.computeIfAbsent(
+                    getCell(getRow(getLatitude(location)),
+                            getColumn(getLongitude(location))),
+                    cell -> new ArrayList<>()).add(point);
+        }
+        final ImmutableMap.Builder<Long, List<PointLocation>> builder
+                = ImmutableMap.builder();
+        for (final Map.Entry<Long, List<PointLocation>> entry
+                     : cellBuilder.entrySet()) {
+            builder.put(entry.getKey(), ImmutableList.copyOf(
+                        entry.getValue()));
+        }
+        cells = builder.build();
+    }
+
+    @Override
+    public Set<PointLocation> getCandidates(final PointLocation location,
+                                            final Duration duration) {
+        /* Estimated times are rounded down to whole seconds. */
+        final double radiusMeters = (duration.getSeconds() + 1)
+                * walkingMetersPerSecond * SAFETY_FACTOR;
+        final GeoPoint center = location.getLocation();
+        final double latitude = getLatitude(center);
+        final double longitude = getLongitude(center);
+
+        final double latitudeRadius
+                = radiusMeters / MIN_MERIDIONAL_RADIUS_METERS;
+        final double polewardLatitude = Math.abs(latitude) + latitudeRadius;
+        if (polewardLatitude >= Math.PI / 2) {
+            return points;
+        }
+        final double longitudeRadius = radiusMeters
+                / (EQUATORIAL_RADIUS_METERS * Math.cos(polewardLatitude));
+        if (longitude - longitudeRadius < -Math.PI
+                    || longitude + longitudeRadius > Math.PI) {
+            return points;
+        }
+
+        final long minRow = getRow(latitude - latitudeRadius);
+        final long maxRow = getRow(latitude + latitudeRadius);
+        final long minColumn = getColumn(longitude - longitudeRadius);
+        final long maxColumn = getColumn(longitude + longitudeRadius);
+
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1)
+                    > cells.size()) {
+            for (final List<PointLocation> cell : cells.values()) {
+                for (final PointLocation point : cell) {
+                    final GeoPoint pointLocation = point.getLocation();
+                    final long row = getRow(getLatitude(pointLocation));
+                    final long column = getColumn(
+                            getLongitude(pointLocation));
+                    if (row >= minRow && row <= maxRow && column >= minColumn
+                                && column <= maxColumn) {
+                        builder.add(point);
+                    }
+                }
+            }
+        } else {
+            for (long row = minRow; row <= maxRow; row++) {
+                for (long column = minColumn; column <= maxColumn;
+                     column++) {
+                    final List<PointLocation> cell
+                            = cells.get(getCell(row, column));
+                    if (cell != null) {
+                        builder.addAll(cell);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private long getRow(final double latitude) {
+        return (long) Math.floor(latitude / cellLatitudeRadians);
+    }
+
+    private long getColumn(final double longitude) {
+        return (long) Math.floor(longitude / cellLongitudeRadians);
+    }
+
+    private static long getCell(final long row, final long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private static double getLatitude(final GeoPoint point) {
+        return point.getLatitude().getRadians();
+    }
+
+    private static double getLongitude(final GeoPoint point) {
+        return point.getLongitude().getRadians();
+    }
+
+}
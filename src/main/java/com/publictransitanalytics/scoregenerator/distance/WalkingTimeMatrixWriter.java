@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports everything a DistanceStoreManager holds for a set of locations into
+ * the binary walking time matrix read by MappedDistanceStoreManager. The
+ * matrix is written beside its destination and moved into place once
+ * complete, so readers never observe a partial file.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class WalkingTimeMatrixWriter {
+
+    public void write(final Path file,
+                      final BiMap<String, PointLocation> pointIdMap,
+                      final DistanceStoreManager source)
+            throws IOException, InterruptedException {
+        final List<PointLocation> locations
+                = ImmutableList.copyOf(pointIdMap.values());
+        final int count = locations.size();
+        final ImmutableMap.Builder<PointLocation, Integer> indexBuilder
+                = ImmutableMap.builder();
+        for (int i = 0; i < count; i++) {
+            indexBuilder.put(locations.get(i), i);
+        }
+        final Map<PointLocation, Integer> indices = indexBuilder.build();
+
+        final Path temporary = file.resolveSibling(
+                file.getFileName() + ".partial");
+        final long[] offsets = new long[count];
+        final int[] entryCounts = new int[count];
+        final int[] maxStored = new int[count];
+        final long tableStart;
+        long entries = 0;
+
+        try (final DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MappedDistanceStoreManager.MAGIC);
+            output.writeInt(MappedDistanceStoreManager.VERSION);
+            output.writeInt(count);
+            for (final PointLocation location : locations) {
+                output.writeUTF(location.getIdentifier());
+            }
+            tableStart = MappedDistanceStoreManager.align(output.size());
+            long position = output.size();
+            final long entriesStart = tableStart
+                    + ((long) count)
+                              * MappedDistanceStoreManager.TABLE_RECORD_BYTES;
+            while (position < entriesStart) {
+                output.writeByte(0);
+                position++;
+            }
+
+            for (int i = 0; i < count; i++) {
+                final PointLocation origin = locations.get(i);
+                offsets[i] = position;
+                final Duration max = source.getMaxStored(origin);
+                if (max == null) {
+                    maxStored[i] = MappedDistanceStoreManager.NO_MAX_STORED;
+                    continue;
+                }
+                maxStored[i] = (int) max.getSeconds();
+
+                final List<Map.Entry<PointLocation, WalkingCosts>> costs
+                        = source.get(origin, max).entrySet().stream()
+                                .filter(entry -> indices.containsKey(
+                                        entry.getKey()))
+                                .sorted(Comparator.comparing(
+                                        entry -> entry.getValue()
+                                                .getDuration()))
+                                .collect(ImmutableList.toImmutableList());
+                for (final Map.Entry<PointLocation, WalkingCosts> cost
+                             : costs) {
+                    output.writeInt(indices.get(cost.getKey()));
+                    output.writeInt((int) cost.getValue().getDuration()
+                            .getSeconds());
+                }
+                entryCounts[i] = costs.size();
+                position += ((long) costs.size())
+                                    * MappedDistanceStoreManager.ENTRY_BYTES;
+                entries += costs.size();
+            }
+        }
+
+        final ByteBuffer table = ByteBuffer.allocate(
+                count * MappedDistanceStoreManager.TABLE_RECORD_BYTES);
+        for (int i = 0; i < count; i++) {
+            table.putLong(offsets[i]).putInt(entryCounts[i])
+                    .putInt(maxStored[i]);
+        }
+        table.flip();
+        try (final FileChannel channel = FileChannel.open(
+                temporary, StandardOpenOption.WRITE)) {
+            long position = tableStart;
+            while (table.hasRemaining()) {
+                position += channel.write(table, position);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote {} walking times for {} locations to {}.", entries,
+                 count, file);
+    }
+
+}
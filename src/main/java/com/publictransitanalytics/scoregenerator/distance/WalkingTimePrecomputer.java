@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills a walking time store ahead of a scoring run by asking a caching
+ * reachability client for every origin's full walkshed on a bounded pool.
+ * Origins whose stored maximum already covers the requested duration are
+ * skipped, so an interrupted run resumes where it stopped.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class WalkingTimePrecomputer {
+
+    private static final LocalDateTime REFERENCE_TIME
+            = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(30);
+
+    private final DistanceStoreManager store;
+    private final ReachabilityClient client;
+    private final int parallelism;
+
+    /**
+     * Precompute walking times from every origin up to a duration.
+     *
+     * @return the number of origins that failed and must be retried.
+     */
+    public int precompute(final Set<? extends PointLocation> origins,
+                          final Duration duration)
+            throws InterruptedException {
+        final ImmutableList.Builder<PointLocation> pendingBuilder
+                = ImmutableList.builder();
+        for (final PointLocation origin : origins) {
+            final Duration maxStored = store.getMaxStored(origin);
+            if (maxStored == null || maxStored.compareTo(duration) < 0) {
+                pendingBuilder.add(origin);
+            }
+        }
+        final List<PointLocation> pending = pendingBuilder.build();
+        log.info("Precomputing walking times for {} of {} origins.",
+                 pending.size(), origins.size());
+
+        final LocalDateTime cutoffTime = REFERENCE_TIME.plus(duration);
+        final ExecutorService executor
+                = Executors.newFixedThreadPool(parallelism);
+        final CompletionService<PointLocation> completionService
+                = new ExecutorCompletionService<>(executor);
+        try {
+            for (final PointLocation origin : pending) {
+                completionService.submit(() -> {
+                    client.getWalkingCosts(origin, REFERENCE_TIME, cutoffTime);
+                    return origin;
+                });
+            }
+
+            final Instant start = Instant.now();
+            Instant lastReport = start;
+            int failures = 0;
+            for (int completed = 1; completed <= pending.size(); completed++) {
+                try {
+                    completionService.take().get();
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof DistanceClientException) {
+                        log.warn("Walking time precomputation failed.",
+                                 e.getCause());
+                        failures++;
+                    } else {
+                        throw new ScoreGeneratorFatalException(e.getCause());
+                    }
+                }
+                final Instant now = Instant.now();
+                if (Duration.between(lastReport, now).compareTo(
+                        PROGRESS_INTERVAL) >= 0
+                            || completed == pending.size()) {
+                    final long elapsedSeconds = Math.max(
+                            1, Duration.between(start, now).getSeconds());
+                    log.info("Precomputed {} of {} origins ({} per second).",
+                             completed, pending.size(),
+                             completed / elapsedSeconds);
+                    lastReport = now;
+                }
+            }
+            if (failures > 0) {
+                log.warn("{} origins failed; rerun to resume them.", failures);
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.environment;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.geography.GeoFormulae;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Walkable network in compressed sparse row form. Nodes are dense indices
+ * with coordinates in radians, and every edge is stored once in each
+ * direction with its great circle length in meters. Nodes are also bucketed
+ * into a uniform grid of cells so that locations can be snapped to the
+ * network.
+ *
+ * @author Public Transit Analytics
+ */
+public class FootGraph {
+
+    /* Smallest meridional and prime vertical radii of curvature of the WGS84
+     * ellipsoid, as in SpatialCandidateSelector. */
+    private static final double MIN_MERIDIONAL_RADIUS_METERS = 6335439;
+    private static final double EQUATORIAL_RADIUS_METERS = 6378137;
+    private static final double CELL_METERS = 250;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] meters;
+    private final double cellLatitudeRadians;
+    private final double cellLongitudeRadians;
+    private final Map<Long, int[]> cells;
+
+    /**
+     * Builds a graph from node coordinates in radians and undirected edges
+     * given as parallel arrays of node indices.
+     */
+    public FootGraph(final double[] latitudes, final double[] longitudes,
+                     final int[] edgeSources, final int[] edgeTargets) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        final int nodeCount = latitudes.length;
+
+        offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeSources.length; i++) {
+            offsets[edgeSources[i] + 1]++;
+            offsets[edgeTargets[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        targets = new int[offsets[nodeCount]];
+        meters = new double[offsets[nodeCount]];
+        final int[] next = new int[nodeCount];
+        System.arraycopy(offsets, 0, next, 0, nodeCount);
+        for (int i = 0; i < edgeSources.length; i++) {
+            final int source = edgeSources[i];
+            final int target = edgeTargets[i];
+            final double length = GeoFormulae.getHaversineMeters(
+                    latitudes[source], longitudes[source],
+                    latitudes[target], longitudes[target]);
+            targets[next[source]] = target;
+            meters[next[source]++] = length;
+            targets[next[target]] = source;
+            meters[next[target]++] = length;
+        }
+
+        double latitudeSum = 0;
+        for (final double latitude : latitudes) {
+            latitudeSum += latitude;
+        }
+        final double referenceLatitude = (nodeCount == 0) ? 0
+                : latitudeSum / nodeCount;
+        cellLatitudeRadians = CELL_METERS / MIN_MERIDIONAL_RADIUS_METERS;
+        cellLongitudeRadians = CELL_METERS / (EQUATORIAL_RADIUS_METERS
+                                              * Math.cos(referenceLatitude));
+
+        final Map<Long, int[]> cellCounts = new HashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            cellCounts.computeIfAbsent(getCell(i), cell -> new int[1])[0]++;
+        }
+        final Map<Long, int[]> cellBuilder = new HashMap<>();
+        for (final Map.Entry<Long, int[]> entry : cellCounts.entrySet()) {
+            cellBuilder.put(entry.getKey(), new int[entry.getValue()[0]]);
+            entry.getValue()[0] = 0;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            final long cell = getCell(i);
+            cellBuilder.get(cell)[cellCounts.get(cell)[0]++] = i;
+        }
+        cells = ImmutableMap.copyOf(cellBuilder);
+    }
+
+    public int getNodeCount() {
+        return latitudes.length;
+    }
+
+    public int getEdgeStart(final int node) {
+        return offsets[node];
+    }
+
+    public int getEdgeEnd(final int node) {
+        return offsets[node + 1];
+    }
+
+    public int getEdgeTarget(final int edge) {
+        return targets[edge];
+    }
+
+    public double getEdgeMeters(final int edge) {
+        return meters[edge];
+    }
+
+    public double getMetersToNode(final GeoPoint location, final int node) {
+        return GeoFormulae.getHaversineMeters(
+                location.getLatitude().getRadians(),
+                location.getLongitude().getRadians(), latitudes[node],
+                longitudes[node]);
+    }
+
+    /**
+     * Finds the node nearest to a location, searching rings of cells
+     * outward until no closer node can exist.
+     *
+     * @return the node index, or -1 if no node is within maxMeters.
+     */
+    public int getNearestNode(final GeoPoint location,
+                              final double maxMeters) {
+        final double latitude = location.getLatitude().getRadians();
+        final double longitude = location.getLongitude().getRadians();
+        final long row = getRow(latitude);
+        final long column = getColumn(longitude);
+        final int maxRing = (int) Math.ceil(maxMeters / CELL_METERS) + 1;
+
+        int nearest = -1;
+        double nearestMeters = maxMeters;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            /* Nodes in this and later rings are at least this far away. */
+            if (nearest != -1 && nearestMeters <= (ring - 1) * CELL_METERS) {
+                break;
+            }
+            for (long i = row - ring; i <= row + ring; i++) {
+                final boolean edgeRow = (i == row - ring || i == row + ring);
+                final long step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (long j = column - ring; j <= column + ring; j += step) {
+                    final int[] nodes = cells.get(getCell(i, j));
+                    if (nodes == null) {
+                        continue;
+                    }
+                    for (final int node : nodes) {
+                        final double distance = GeoFormulae.getHaversineMeters(
+                                latitude, longitude, latitudes[node],
+                                longitudes[node]);
+                        if (distance <= nearestMeters) {
+                            nearest = node;
+                            nearestMeters = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private long getCell(final int node) {
+        return getCell(getRow(latitudes[node]), getColumn(longitudes[node]));
+    }
+
+    private long getRow(final double latitude) {
+        return (long) Math.floor(latitude / cellLatitudeRadians);
+    }
+
+    private long getColumn(final double longitude) {
+        return (long) Math.floor(longitude / cellLongitudeRadians);
+    }
+
+    private static long getCell(final long row, final long column) {
+        return (row << 32) ^ (column & 0xffffffffL);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.environment;
+
+import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.areafilter.v0_6.AreaFilter;
+import org.openstreetmap.osmosis.pbf2.v0_6.PbfReader;
+import org.openstreetmap.osmosis.tagfilter.v0_6.TagFilter;
+
+/**
+ * Reads the walkable ways of an OSM extract into a FootGraph, using the same
+ * filters as ReadingSegmentFinder so that the graph matches the segments the
+ * grid is built from.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FootGraphReader {
+
+    private final Path path;
+    private final GeoBounds bounds;
+
+    public FootGraph read() {
+        final List<long[]> ways = readWays();
+        final Set<Long> wantedIds = new HashSet<>();
+        for (final long[] way : ways) {
+            for (final long nodeId : way) {
+                wantedIds.add(nodeId);
+            }
+        }
+        final NodeCoordinateExporter nodes = readNodes(wantedIds);
+        final FootGraph graph = buildGraph(
+                ways, nodes.getIndices(), nodes.getLatitudes(),
+                nodes.getLongitudes());
+        log.info("Read foot graph of {} nodes from {} ways.",
+                 graph.getNodeCount(), ways.size());
+        return graph;
+    }
+
+    /**
+     * Joins consecutive nodes of each way, skipping pairs where either node
+     * is outside of the extract.
+     */
+    static FootGraph buildGraph(final List<long[]> ways,
+                                final Map<Long, Integer> indices,
+                                final double[] latitudes,
+                                final double[] longitudes) {
+        int edgeCount = 0;
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        for (final long[] way : ways) {
+            for (int i = 1; i < way.length; i++) {
+                final Integer source = indices.get(way[i - 1]);
+                final Integer target = indices.get(way[i]);
+                if (source == null || target == null
+                            || source.equals(target)) {
+                    continue;
+                }
+                if (edgeCount == sources.length) {
+                    sources = Arrays.copyOf(sources, edgeCount * 2);
+                    targets = Arrays.copyOf(targets, edgeCount * 2);
+                }
+                sources[edgeCount] = source;
+                targets[edgeCount] = target;
+                edgeCount++;
+            }
+        }
+        return new FootGraph(latitudes, longitudes,
+                             Arrays.copyOf(sources, edgeCount),
+                             Arrays.copyOf(targets, edgeCount));
+    }
+
+    private List<long[]> readWays() {
+        final PbfReader reader = new PbfReader(path.toFile(), 1);
+        final AreaFilter areaFilter
+                = ReadingSegmentFinder.buildAreaFilter(bounds);
+        final TagFilter wayFilter = ReadingSegmentFinder.buildWayFilter();
+        final TagFilter noWalkFilter
+                = ReadingSegmentFinder.buildNoWalkFilter();
+        final WayNodeExporter exporter = new WayNodeExporter();
+        reader.setSink(wayFilter);
+        wayFilter.setSink(noWalkFilter);
+        noWalkFilter.setSink(areaFilter);
+        areaFilter.setSink(exporter);
+
+        reader.run();
+
+        return exporter.getWays();
+    }
+
+    private NodeCoordinateExporter readNodes(final Set<Long> wantedIds) {
+        final PbfReader reader = new PbfReader(path.toFile(), 1);
+        final AreaFilter areaFilter
+                = ReadingSegmentFinder.buildAreaFilter(bounds);
+        final TagFilter nodeFilter = ReadingSegmentFinder.buildNodeFilter();
+        final NodeCoordinateExporter exporter
+                = new NodeCoordinateExporter(wantedIds);
+        reader.setSink(nodeFilter);
+        nodeFilter.setSink(areaFilter);
+        areaFilter.setSink(exporter);
+
+        reader.run();
+
+        return exporter;
+    }
+
+}
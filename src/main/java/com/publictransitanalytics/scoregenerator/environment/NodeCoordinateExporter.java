@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.environment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+/**
+ * Sink that assigns dense indices to the wanted nodes and keeps their
+ * coordinates in radians.
+ *
+ * @author Public Transit Analytics
+ */
+public class NodeCoordinateExporter implements Sink {
+
+    private final Set<Long> wantedIds;
+    private final Map<Long, Integer> indices;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    public NodeCoordinateExporter(final Set<Long> wantedIds) {
+        this.wantedIds = wantedIds;
+        indices = new HashMap<>();
+        latitudes = new double[16];
+        longitudes = new double[16];
+    }
+
+    @Override
+    public void process(final EntityContainer entityContainer) {
+        if (entityContainer instanceof NodeContainer) {
+            final Node node = ((NodeContainer) entityContainer).getEntity();
+            if (wantedIds.contains(node.getId())
+                        && !indices.containsKey(node.getId())) {
+                final int index = indices.size();
+                if (index == latitudes.length) {
+                    latitudes = Arrays.copyOf(latitudes, index * 2);
+                    longitudes = Arrays.copyOf(longitudes, index * 2);
+                }
+                latitudes[index] = Math.toRadians(node.getLatitude());
+                longitudes[index] = Math.toRadians(node.getLongitude());
+                indices.put(node.getId(), index);
+            }
+        }
+    }
+
+    @Override
+    public void initialize(final Map<String, Object> metaData) {
+    }
+
+    @Override
+    public void complete() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    public Map<Long, Integer> getIndices() {
+        return indices;
+    }
+
+    public double[] getLatitudes() {
+        return Arrays.copyOf(latitudes, indices.size());
+    }
+
+    public double[] getLongitudes() {
+        return Arrays.copyOf(longitudes, indices.size());
+    }
+
+}
@@ -51,19 +51,9 @@ public class ReadingSegmentFinder implements SegmentFinder {
 
     private Set<Segment> readSegments(final Map<Long, Node> nodeMapping) {
         final PbfReader reader = new PbfReader(path.toFile(), 1);
-        final AreaFilter areaFilter = new BoundingBoxFilter(
-                IdTrackerType.Dynamic, bounds.getWestLon().getDegrees(),
-                bounds.getEastLon().getDegrees(),
-                bounds.getNorthLat().getDegrees(),
-                bounds.getSouthLat().getDegrees(), true, true, false, false);
-        final TagFilter wayFilter = new TagFilter(
-                WAY_FILTER_MODE,
-                ImmutableSet.of("footway", "highway"),
-                ImmutableMap.of("man_made", Collections.singleton("pier")));
-        final TagFilter noWalkFilter = new TagFilter(
-                HIGHWAY_FILTER_MODE, Collections.emptySet(),
-                ImmutableMap.of("foot", Collections.singleton("no"), "highway",
-                                ImmutableSet.of("motorway", "motorway_link")));
+        final AreaFilter areaFilter = buildAreaFilter(bounds);
+        final TagFilter wayFilter = buildWayFilter();
+        final TagFilter noWalkFilter = buildNoWalkFilter();
         final SegmentExporter exporter = new SegmentExporter(nodeMapping);
         reader.setSink(wayFilter);
         wayFilter.setSink(noWalkFilter);
@@ -77,14 +67,8 @@ public class ReadingSegmentFinder implements SegmentFinder {
 
     private Map<Long, Node> readNodes() {
         final PbfReader reader = new PbfReader(path.toFile(), 1);
-        final AreaFilter areaFilter = new BoundingBoxFilter(
-                IdTrackerType.Dynamic, bounds.getWestLon().getDegrees(),
-                bounds.getEastLon().getDegrees(),
-                bounds.getNorthLat().getDegrees(),
-                bounds.getSouthLat().getDegrees(), true, true, false, false);
-        final TagFilter nodeFilter = new TagFilter(NODE_FILTER_MODE,
-                                                   Collections.emptySet(),
-                                                   Collections.emptyMap());
+        final AreaFilter areaFilter = buildAreaFilter(bounds);
+        final TagFilter nodeFilter = buildNodeFilter();
         final NodeMappingExporter exporter = new NodeMappingExporter();
         reader.setSink(nodeFilter);
         nodeFilter.setSink(areaFilter);
@@ -95,4 +79,31 @@ public class ReadingSegmentFinder implements SegmentFinder {
         return exporter.getMapping();
     }
 
+    static AreaFilter buildAreaFilter(final GeoBounds bounds) {
+        return new BoundingBoxFilter(
+                IdTrackerType.Dynamic, bounds.getWestLon().getDegrees(),
+                bounds.getEastLon().getDegrees(),
+                bounds.getNorthLat().getDegrees(),
+                bounds.getSouthLat().getDegrees(), true, true, false, false);
+    }
+
+    static TagFilter buildWayFilter() {
+        return new TagFilter(
+                WAY_FILTER_MODE,
+                ImmutableSet.of("footway", "highway"),
+                ImmutableMap.of("man_made", Collections.singleton("pier")));
+    }
+
+    static TagFilter buildNoWalkFilter() {
+        return new TagFilter(
+                HIGHWAY_FILTER_MODE, Collections.emptySet(),
+                ImmutableMap.of("foot", Collections.singleton("no"), "highway",
+                                ImmutableSet.of("motorway", "motorway_link")));
+    }
+
+    static TagFilter buildNodeFilter() {
+        return new TagFilter(NODE_FILTER_MODE, Collections.emptySet(),
+                             Collections.emptyMap());
+    }
+
 }
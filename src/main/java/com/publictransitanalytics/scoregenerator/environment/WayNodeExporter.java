@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.environment;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Map;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+/**
+ * Sink that keeps only the node ids of each way, in order.
+ *
+ * @author Public Transit Analytics
+ */
+public class WayNodeExporter implements Sink {
+
+    private final ImmutableList.Builder<long[]> builder;
+
+    public WayNodeExporter() {
+        builder = ImmutableList.builder();
+    }
+
+    @Override
+    public void process(final EntityContainer entityContainer) {
+        if (entityContainer instanceof WayContainer) {
+            final List<WayNode> wayNodes
+                    = ((WayContainer) entityContainer).getEntity()
+                            .getWayNodes();
+            final long[] nodeIds = new long[wayNodes.size()];
+            for (int i = 0; i < nodeIds.length; i++) {
+                nodeIds[i] = wayNodes.get(i).getNodeId();
+            }
+            builder.add(nodeIds);
+        }
+    }
+
+    @Override
+    public void initialize(final Map<String, Object> metaData) {
+    }
+
+    @Override
+    public void complete() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    public List<long[]> getWays() {
+        return builder.build();
+    }
+
+}
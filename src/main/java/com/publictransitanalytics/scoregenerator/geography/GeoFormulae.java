@@ -21,6 +21,13 @@ package com.publictransitanalytics.scoregenerator.geography;
  */
 public class GeoFormulae {
 
+    private static final double MEAN_EARTH_RADIUS_METERS = 6371008.8;
+
+    /* The WGS84 radii of curvature range from 6335439m (meridional, at the
+     * equator) to 6399594m (at the poles), so over walking distances a sphere
+     * of mean radius is never more than 0.56% long. */
+    private static final double MAX_SPHERICAL_OVERESTIMATE = 0.006;
+
     // Adapted from http://www.edwilliams.org/avform.htm#Math
     public static double geoMod(final double y, final double x) {
         final double mod = y - (x * (int) (y / x));
@@ -31,4 +38,33 @@ public class GeoFormulae {
         }
     }
 
+    /**
+     * Finds the great circle distance between two points on a sphere of the
+     * mean radius of the earth, using the haversine formula.
+     */
+    public static double getHaversineMeters(
+            final double latitude1, final double longitude1,
+            final double latitude2, final double longitude2) {
+        final double sinLatitude = Math.sin((latitude2 - latitude1) / 2);
+        final double sinLongitude = Math.sin((longitude2 - longitude1) / 2);
+        final double a = sinLatitude * sinLatitude
+                + Math.cos(latitude1) * Math.cos(latitude2)
+                          * sinLongitude * sinLongitude;
+        return 2 * MEAN_EARTH_RADIUS_METERS
+                       * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Estimates the ellipsoidal distance between two points from below. For
+     * points within walking distance of each other, the estimate is never
+     * more than the ellipsoidal distance, and is at most 1.1% less than it.
+     */
+    public static double getLowerBoundMeters(
+            final double latitude1, final double longitude1,
+            final double latitude2, final double longitude2) {
+        return getHaversineMeters(latitude1, longitude1, latitude2,
+                                  longitude2)
+                       / (1 + MAX_SPHERICAL_OVERESTIMATE);
+    }
+
 }
@@ -25,18 +25,23 @@ import org.opensextant.geodesy.Longitude;
  *
  * @author Public Transit Analytics
  */
-@EqualsAndHashCode(exclude = {"degreeString", "radianString"})
+@EqualsAndHashCode(exclude = {"degreeString", "radianString",
+                              "latitudeRadians", "longitudeRadians"})
 public class GeoPoint {
 
     private final Geodetic2DPoint point;
     private final String radianString;
     private final String degreeString;
+    private final double latitudeRadians;
+    private final double longitudeRadians;
 
     public GeoPoint(final GeoLongitude longitude,
                     final GeoLatitude latitude) {
         point = new Geodetic2DPoint(
                 new Longitude(longitude.getRadians(), Longitude.RADIANS),
                 new Latitude(latitude.getRadians(), Latitude.RADIANS));
+        latitudeRadians = latitude.getRadians();
+        longitudeRadians = longitude.getRadians();
         radianString = String.format("%f, %f", latitude.getRadians(),
                                      longitude.getRadians());
         degreeString = String.format("%f, %f", latitude.getDegrees(),
@@ -57,6 +62,16 @@ public class GeoPoint {
         return new Geodetic2DArc(point, other.point).getDistanceInMeters();
     }
 
+    /**
+     * Estimates getDistanceMeters from below without the ellipsoidal
+     * calculation, for filtering points that are too far away.
+     */
+    public double getLowerBoundDistanceMeters(final GeoPoint other) {
+        return GeoFormulae.getLowerBoundMeters(
+                latitudeRadians, longitudeRadians, other.latitudeRadians,
+                other.longitudeRadians);
+    }
+
     public String toDegreeString() {
         return degreeString;
     }
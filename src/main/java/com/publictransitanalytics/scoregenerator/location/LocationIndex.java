@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.location;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns every location of a calculation a dense integer id, so that
+ * per-location state can be kept in arrays.
+ *
+ * @author Public Transit Analytics
+ */
+public class LocationIndex {
+
+    private final ImmutableList<PointLocation> locations;
+    private final ImmutableMap<PointLocation, Integer> ids;
+
+    public LocationIndex(final Collection<? extends PointLocation> locations) {
+        final ImmutableList.Builder<PointLocation> locationsBuilder
+                = ImmutableList.builder();
+        final Map<PointLocation, Integer> idMap = new HashMap<>();
+        for (final PointLocation location : locations) {
+            if (!idMap.containsKey(location)) {
+                idMap.put(location, idMap.size());
+                locationsBuilder.add(location);
+            }
+        }
+        this.locations = locationsBuilder.build();
+        ids = ImmutableMap.copyOf(idMap);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public boolean contains(final PointLocation location) {
+        return ids.containsKey(location);
+    }
+
+    public int getId(final PointLocation location) {
+        final Integer id = ids.get(location);
+        if (id == null) {
+            throw new ScoreGeneratorFatalException(String.format(
+                    "%s is not indexed.", location.getIdentifier()));
+        }
+        return id;
+    }
+
+    public PointLocation getLocation(final int id) {
+        return locations.get(id);
+    }
+
+}
@@ -19,7 +19,7 @@ import com.google.common.collect.ImmutableMap;
 import com.publictransitanalytics.scoregenerator.environment.Grid;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorReachability;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -74,7 +74,8 @@ public class ComparativeNetworkAccessibility {
 
     public ComparativeNetworkAccessibility(
             final int taskCount, final int trialTaskCount,
-            final ScoreCard scoreCard, final ScoreCard trialScoreCard,
+            final SectorReachability scoreCard,
+            final SectorReachability trialScoreCard,
             final Grid grid, final Set<Sector> centerSectors,
             final LocalDateTime startTime, final LocalDateTime endTime,
             final LocalDateTime trialStartTime,
@@ -22,7 +22,7 @@ import com.publictransitanalytics.scoregenerator.environment.Grid;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.environment.Segment;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorReachability;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Rectangle;
@@ -101,7 +101,8 @@ public class MapGenerator {
         makeMap(outputName, bounds, markedPoints, markedLines, sectorColors);
     }
 
-    public void makeRangeMap(final Grid grid, final ScoreCard scoreCard,
+    public void makeRangeMap(final Grid grid,
+                             final SectorReachability scoreCard,
                              final Set<PointLocation> markedPoints,
                              final double lowEnd, final double highEnd,
                              final String outputName)
@@ -130,8 +131,8 @@ public class MapGenerator {
     }
 
     public void makeComparativeMap(
-            final Grid grid, final ScoreCard scoreCard,
-            final ScoreCard trialScoreCard,
+            final Grid grid, final SectorReachability scoreCard,
+            final SectorReachability trialScoreCard,
             final Set<PointLocation> markedPoints, final double range,
             final String outputName) throws IOException, InterruptedException {
         final GeoBounds bounds = grid.getBounds();
@@ -18,7 +18,7 @@ package com.publictransitanalytics.scoregenerator.output;
 import com.google.common.collect.ImmutableMap;
 import com.publictransitanalytics.scoregenerator.environment.Grid;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorReachability;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -63,7 +63,7 @@ public class NetworkAccessibility {
     private final long inServiceSeconds;
 
     public NetworkAccessibility(
-            final int taskCount, final ScoreCard scoreCard,
+            final int taskCount, final SectorReachability scoreCard,
             final Grid grid, final Set<Sector> centerSectors,
             final LocalDateTime startTime, final LocalDateTime endTime,
             final Duration tripDuration, final Duration samplingInterval,
@@ -15,12 +15,9 @@
  */
 package com.publictransitanalytics.scoregenerator.rider;
 
-import com.google.common.collect.PeekingIterator;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
-import java.time.LocalDateTime;
 
 /**
  * A transit rider that moves forward through time, like a normal rider.
@@ -29,41 +26,41 @@ import java.time.LocalDateTime;
  */
 public class ForwardRider implements Rider {
 
-    private final TransitStop initialPosition;
-    private final LocalDateTime entryTime;
-
     private final Trip trip;
-    private final LocalDateTime cutoffTime;
-
-    private final PeekingIterator<VehicleEvent> iterator;
+    private final long cutoffTime;
+    private int sequence;
 
     public ForwardRider(final EntryPoint entryPoint,
-                        final LocalDateTime cutoffTime) {
+                        final long cutoffTime) {
         trip = entryPoint.getTrip();
-        iterator = trip.getForwardIterator(entryPoint.getSequence());
-        final VehicleEvent event = trip.getSchedule().get(
-                entryPoint.getSequence());
-
-        this.initialPosition = event.getLocation();
-        this.entryTime = event.getArrivalTime();
+        sequence = entryPoint.getSequence();
         this.cutoffTime = cutoffTime;
     }
 
     @Override
     public boolean canContinueTrip() {
-        if (!iterator.hasNext()) {
-            return false;
-        }
+        final int next = sequence + 1;
+        return next < trip.size() && trip.getArrivalSeconds(next) <= cutoffTime;
+    }
 
-        final VehicleEvent continued = iterator.peek();
-        return !continued.getArrivalTime().isAfter(cutoffTime);
+    @Override
+    public void continueTrip() {
+        sequence++;
+    }
+
+    @Override
+    public TransitStop getStop() {
+        return trip.getStop(sequence);
+    }
+
+    @Override
+    public long getTime() {
+        return trip.getArrivalSeconds(sequence);
     }
 
     @Override
-    public RiderStatus continueTrip() {
-        final VehicleEvent event = iterator.next();
-        return new RiderStatus(event.getLocation(), event.getArrivalTime(),
-                               trip);
+    public int getProgress() {
+        return sequence;
     }
 
 }
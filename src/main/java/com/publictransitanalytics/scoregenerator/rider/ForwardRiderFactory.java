@@ -16,7 +16,6 @@
 package com.publictransitanalytics.scoregenerator.rider;
 
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
 import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
 
@@ -38,7 +37,7 @@ public class ForwardRiderFactory implements RiderFactory {
 
     @Override
     public Rider getNewRider(
-            final EntryPoint entryPoint, final LocalDateTime cutoffTime) {
+            final EntryPoint entryPoint, final long cutoffTime) {
         return new ForwardRider(entryPoint, cutoffTime);
     }
 
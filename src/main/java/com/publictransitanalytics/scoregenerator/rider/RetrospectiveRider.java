@@ -15,12 +15,9 @@
  */
 package com.publictransitanalytics.scoregenerator.rider;
 
-import com.google.common.collect.PeekingIterator;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
-import java.time.LocalDateTime;
 
 /**
  * A transit rider looks backward for how they could have gotten to a location.
@@ -29,41 +26,42 @@ import java.time.LocalDateTime;
  */
 public class RetrospectiveRider implements Rider {
 
-    private final TransitStop initialPosition;
-    private final LocalDateTime initialTime;
-
     private final Trip trip;
-    private final LocalDateTime cutoffTime;
-
-    private final PeekingIterator<VehicleEvent> iterator;
+    private final long cutoffTime;
+    private int sequence;
 
     public RetrospectiveRider(final EntryPoint entryPoint,
-                              final LocalDateTime cutoffTime) {
-        this.trip = entryPoint.getTrip();
-        iterator = trip.getBackwardIterator(entryPoint.getSequence());
-        final VehicleEvent event = trip.getSchedule().get(
-                entryPoint.getSequence());
-
-        this.initialPosition = event.getLocation();
-        this.initialTime = event.getDepartureTime();
+                              final long cutoffTime) {
+        trip = entryPoint.getTrip();
+        sequence = entryPoint.getSequence();
         this.cutoffTime = cutoffTime;
     }
 
     @Override
     public boolean canContinueTrip() {
-        if (!iterator.hasNext()) {
-            return false;
-        }
+        final int previous = sequence - 1;
+        return previous >= 0
+                       && trip.getDepartureSeconds(previous) >= cutoffTime;
+    }
 
-        final VehicleEvent continued = iterator.peek();
-        return !continued.getDepartureTime().isBefore(cutoffTime);
+    @Override
+    public void continueTrip() {
+        sequence--;
+    }
+
+    @Override
+    public TransitStop getStop() {
+        return trip.getStop(sequence);
+    }
+
+    @Override
+    public long getTime() {
+        return trip.getDepartureSeconds(sequence);
     }
 
     @Override
-    public RiderStatus continueTrip() {
-        final VehicleEvent event = iterator.next();
-        return new RiderStatus(event.getLocation(), event.getDepartureTime(),
-                               trip);
+    public int getProgress() {
+        return trip.size() - 1 - sequence;
     }
 
 }
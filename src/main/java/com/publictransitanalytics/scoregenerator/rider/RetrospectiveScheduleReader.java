@@ -17,7 +17,6 @@ package com.publictransitanalytics.scoregenerator.rider;
 
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
@@ -34,7 +33,7 @@ class RetrospectiveScheduleReader implements ScheduleReader {
     @Override
     public Set<EntryPoint> getEntryPoints(
             final TransitStop position,
-            final LocalDateTime currentTime, final LocalDateTime cutoffTime) {
+            final long currentTime, final long cutoffTime) {
         return entryPoints.getEntryPoints(position, cutoffTime, currentTime);
     }
     
@@ -15,16 +15,29 @@
  */
 package com.publictransitanalytics.scoregenerator.rider;
 
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+
 /**
  * Models the capabilities of a transit rider that consults a schedule and takes
- * trips.
+ * trips. A rider is a cursor over its trip: continuing moves it to the next
+ * stop, whose position and time are then read from the rider itself.
  *
  * @author Public Transit Analytics
  */
 public interface Rider {
-    
+
     boolean canContinueTrip();
 
-    RiderStatus continueTrip();
+    void continueTrip();
+
+    TransitStop getStop();
+
+    long getTime();
+
+    /**
+     * @return how far along the trip the rider is, counted in the direction
+     * the rider travels.
+     */
+    int getProgress();
 
 }
@@ -16,7 +16,6 @@
 package com.publictransitanalytics.scoregenerator.rider;
 
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
 
 /**
  * Creates transit riders.
@@ -27,6 +26,6 @@ public interface RiderFactory {
 
     public ScheduleReader getScheduleReader();
 
-    public Rider getNewRider(EntryPoint entryPoint, LocalDateTime cutoffTime);
+    public Rider getNewRider(EntryPoint entryPoint, long cutoffTime);
 
 }
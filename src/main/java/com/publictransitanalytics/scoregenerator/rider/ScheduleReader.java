@@ -17,7 +17,6 @@ package com.publictransitanalytics.scoregenerator.rider;
 
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
 import java.util.Set;
 
 /**
@@ -27,6 +26,6 @@ import java.util.Set;
 public interface ScheduleReader {
     
     Set<EntryPoint> getEntryPoints(TransitStop position,
-            LocalDateTime currentTime, LocalDateTime cutoffTime);
+            long currentTime, long cutoffTime);
     
 }
@@ -15,7 +15,6 @@
  */
 package com.publictransitanalytics.scoregenerator.schedule;
 
-import java.time.LocalDateTime;
 import lombok.Value;
 
 /**
@@ -25,6 +24,6 @@ import lombok.Value;
 @Value
 public class EntryPoint {
     private final Trip trip;
-    private final LocalDateTime time;
+    private final long time;
     private final int sequence;
 }
@@ -13,23 +13,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.publictransitanalytics.scoregenerator.rider;
+package com.publictransitanalytics.scoregenerator.schedule;
 
-import com.publictransitanalytics.scoregenerator.location.TransitStop;
-import com.publictransitanalytics.scoregenerator.schedule.Trip;
-import java.time.LocalDateTime;
 import lombok.Value;
 
 /**
- * The temporal and physical position of the rider.
- * 
+ * A position along a trip pattern where a stop is served.
+ *
  * @author Public Transit Analytics
  */
 @Value
-public class RiderStatus {
-
-    TransitStop stop;
-    LocalDateTime time;
-    Trip trip;
+public class PatternStop {
 
+    private final int pattern;
+    private final int position;
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import java.time.Duration;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * A transit network that keeps, for every stop, the entry points sorted by
+ * time alongside an int array of their times as offsets from the earliest
+ * event in the network. Time windows are found by binary search and returned
+ * as views over the sorted arrays, so queries neither copy nor allocate per
+ * entry point.
+ *
+ * @author Public Transit Analytics
+ */
+public class StopIndexedTransitNetwork implements TransitNetwork {
+
+    private static final Set<EntryPoint> NO_ENTRY_POINTS
+            = Collections.emptySet();
+
+    @Getter
+    private final Set<Trip> trips;
+    private final long baseTime;
+    private final ImmutableMap<TransitStop, StopEntryPoints> stopEntryPoints;
+
+    public StopIndexedTransitNetwork(final Set<Trip> trips,
+                                     final boolean backward) {
+        this.trips = trips;
+
+        final Map<TransitStop, Integer> counts = new HashMap<>();
+        long earliestTime = Long.MAX_VALUE;
+        for (final Trip trip : trips) {
+            for (int i = 0; i < trip.size(); i++) {
+                counts.merge(trip.getStop(i), 1, Integer::sum);
+                earliestTime = Math.min(earliestTime,
+                                        getTime(trip, i, backward));
+            }
+        }
+        baseTime = (earliestTime == Long.MAX_VALUE) ? 0 : earliestTime;
+
+        final Map<TransitStop, EntryPoint[]> entryPointArrays
+                = new HashMap<>(counts.size() * 2);
+        final Map<TransitStop, Integer> filled = new HashMap<>(
+                counts.size() * 2);
+        for (final Trip trip : trips) {
+            for (int i = 0; i < trip.size(); i++) {
+                final TransitStop stop = trip.getStop(i);
+                final EntryPoint[] array = entryPointArrays.computeIfAbsent(
+                        stop, key -> new EntryPoint[counts.get(key)]);
+                final int position = filled.getOrDefault(stop, 0);
+                array[position] = new EntryPoint(
+                        trip, getTime(trip, i, backward), i);
+                filled.put(stop, position + 1);
+            }
+        }
+
+        final ImmutableMap.Builder<TransitStop, StopEntryPoints> builder
+                = ImmutableMap.builder();
+        for (final Map.Entry<TransitStop, EntryPoint[]> entry
+                     : entryPointArrays.entrySet()) {
+            final EntryPoint[] array = entry.getValue();
+            Arrays.sort(array, Comparator.comparingLong(EntryPoint::getTime));
+            final int[] times = new int[array.length];
+            for (int i = 0; i < array.length; i++) {
+                times[i] = Math.toIntExact(array[i].getTime() - baseTime);
+            }
+            builder.put(entry.getKey(), new StopEntryPoints(times, array));
+        }
+        stopEntryPoints = builder.build();
+    }
+
+    @Override
+    public Set<EntryPoint> getEntryPoints(final TransitStop stop,
+                                          final long startTime,
+                                          final long endTime) {
+        final StopEntryPoints entryPoints = stopEntryPoints.get(stop);
+        if (entryPoints == null) {
+            return NO_ENTRY_POINTS;
+        }
+        final int from = entryPoints.firstNotBefore(startTime - baseTime);
+        final int to = entryPoints.firstNotBefore(endTime - baseTime + 1);
+        return (from >= to) ? NO_ENTRY_POINTS
+                : new EntryPointSlice(entryPoints.entryPoints, from, to);
+    }
+
+    @Override
+    public Set<EntryPoint> getEntryPoints(final TransitStop stop) {
+        final StopEntryPoints entryPoints = stopEntryPoints.get(stop);
+        if (entryPoints == null) {
+            return NO_ENTRY_POINTS;
+        }
+        return new EntryPointSlice(entryPoints.entryPoints, 0,
+                                   entryPoints.entryPoints.length);
+    }
+
+    @Override
+    public Duration getInServiceTime() {
+        Duration duration = Duration.ZERO;
+        for (final Trip trip : trips) {
+            duration = duration.plus(trip.getInServiceTime());
+        }
+        return duration;
+    }
+
+    private static long getTime(final Trip trip, final int sequence,
+                                final boolean backward) {
+        return backward ? trip.getDepartureSeconds(sequence)
+                : trip.getArrivalSeconds(sequence);
+    }
+
+    private static class StopEntryPoints {
+
+        final int[] times;
+        final EntryPoint[] entryPoints;
+
+        StopEntryPoints(final int[] times, final EntryPoint[] entryPoints) {
+            this.times = times;
+            this.entryPoints = entryPoints;
+        }
+
+        int firstNotBefore(final long offset) {
+            int low = 0;
+            int high = times.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (times[middle] < offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class EntryPointSlice extends AbstractSet<EntryPoint> {
+
+        private final EntryPoint[] entryPoints;
+        private final int from;
+        private final int to;
+
+        EntryPointSlice(final EntryPoint[] entryPoints, final int from,
+                        final int to) {
+            this.entryPoints = entryPoints;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<EntryPoint> iterator() {
+            return new Iterator<EntryPoint>() {
+
+                private int position = from;
+
+                @Override
+                public boolean hasNext() {
+                    return position < to;
+                }
+
+                @Override
+                public EntryPoint next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final EntryPoint entryPoint = entryPoints[position];
+                    position++;
+                    return entryPoint;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+}
@@ -17,7 +17,6 @@ package com.publictransitanalytics.scoregenerator.schedule;
 
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Set;
 
 /**
@@ -26,8 +25,8 @@ import java.util.Set;
  */
 public interface TransitNetwork {
 
-    Set<EntryPoint> getEntryPoints(TransitStop stop, LocalDateTime startTime,
-                                   LocalDateTime endTime);
+    Set<EntryPoint> getEntryPoints(TransitStop stop, long startTime,
+                                   long endTime);
     
     Set<EntryPoint> getEntryPoints(TransitStop stop);
     
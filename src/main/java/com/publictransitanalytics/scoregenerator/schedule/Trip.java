@@ -18,14 +18,19 @@ package com.publictransitanalytics.scoregenerator.schedule;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import lombok.Getter;
 
 /**
- * The course of a single transit vehicle bound over a time interval.
+ * The course of a single transit vehicle bound over a time interval. The
+ * schedule is stored as columns: one array of stops and two int arrays of
+ * arrival and departure times as seconds from the first arrival. Riders read
+ * the columns directly; vehicle events are only materialized on request.
  *
  * @author Public Transit Analytics
  */
@@ -38,7 +43,10 @@ public class Trip {
     @Getter
     private final String routeNumber;
 
-    private final ImmutableList<VehicleEvent> sequence;
+    private final TransitStop[] stops;
+    private final long baseTime;
+    private final int[] arrivalOffsets;
+    private final int[] departureOffsets;
 
     public Trip(final TripId tripId, final String routeName,
                 final String routeNumber,
@@ -46,21 +54,71 @@ public class Trip {
         this.tripId = tripId;
         this.routeName = routeName;
         this.routeNumber = routeNumber;
-        this.sequence = ImmutableList.copyOf(sequence);
+
+        final int size = sequence.size();
+        stops = new TransitStop[size];
+        arrivalOffsets = new int[size];
+        departureOffsets = new int[size];
+        baseTime = sequence.isEmpty() ? 0
+                : sequence.get(0).getArrivalSeconds();
+        for (int i = 0; i < size; i++) {
+            final VehicleEvent event = sequence.get(i);
+            stops[i] = event.getLocation();
+            arrivalOffsets[i] = Math.toIntExact(
+                    event.getArrivalSeconds() - baseTime);
+            departureOffsets[i] = Math.toIntExact(
+                    event.getDepartureSeconds() - baseTime);
+        }
+    }
+
+    public int size() {
+        return stops.length;
+    }
+
+    public TransitStop getStop(final int sequence) {
+        return stops[sequence];
+    }
+
+    public List<TransitStop> getStops() {
+        return Collections.unmodifiableList(Arrays.asList(stops));
+    }
+
+    public long getArrivalSeconds(final int sequence) {
+        return baseTime + arrivalOffsets[sequence];
+    }
+
+    public long getDepartureSeconds(final int sequence) {
+        return baseTime + departureOffsets[sequence];
+    }
+
+    public VehicleEvent getEvent(final int sequence) {
+        return new VehicleEvent(
+                stops[sequence],
+                EpochSeconds.toLocalDateTime(getArrivalSeconds(sequence)),
+                EpochSeconds.toLocalDateTime(getDepartureSeconds(sequence)));
     }
 
     public List<VehicleEvent> getSchedule() {
-        return sequence;
+        return buildSchedule();
+    }
+
+    private ImmutableList<VehicleEvent> buildSchedule() {
+        final ImmutableList.Builder<VehicleEvent> builder
+                = ImmutableList.builder();
+        for (int i = 0; i < stops.length; i++) {
+            builder.add(getEvent(i));
+        }
+        return builder.build();
     }
 
     public PeekingIterator<VehicleEvent> getForwardIterator(
             final int currentSequence) {
-        if (currentSequence >= sequence.size() - 1) {
+        if (currentSequence >= stops.length - 1) {
             return Iterators.peekingIterator(Collections.emptyIterator());
         }
 
-        return Iterators.peekingIterator(sequence.subList(
-                currentSequence + 1, sequence.size()).iterator());
+        return Iterators.peekingIterator(buildSchedule().subList(
+                currentSequence + 1, stops.length).iterator());
     }
 
     public PeekingIterator<VehicleEvent> getBackwardIterator(
@@ -70,15 +128,13 @@ public class Trip {
             return Iterators.peekingIterator(Collections.emptyIterator());
         }
 
-        return Iterators.peekingIterator(sequence.subList(
+        return Iterators.peekingIterator(buildSchedule().subList(
                 0, currentSequence).reverse().iterator());
     }
 
     public Duration getInServiceTime() {
-        final LocalDateTime startTime = sequence.get(0).getArrivalTime();
-        final LocalDateTime endTime
-                = sequence.get(sequence.size() - 1).getDepartureTime();
-        return Duration.between(startTime, endTime);
+        return Duration.ofSeconds(
+                departureOffsets[stops.length - 1] - arrivalOffsets[0]);
     }
 
 
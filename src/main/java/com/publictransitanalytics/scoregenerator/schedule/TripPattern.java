@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.util.List;
+
+/**
+ * A set of trips that visit the same stops in the same order without passing
+ * each other, laid out in the order the search travels. Backward searches see
+ * the stops reversed and use departure times, forward searches use arrival
+ * times. Trips are sorted so that, at every position, each trip is reached no
+ * sooner than the one before it, which lets boarding be found by binary
+ * search.
+ *
+ * @author Public Transit Analytics
+ */
+public class TripPattern {
+
+    private final ImmutableList<TransitStop> stops;
+    private final int[] stopIds;
+    private final ImmutableList<Trip> trips;
+    private final long[][] times;
+    private final boolean backward;
+
+    /**
+     * @param trips trips sharing the stop sequence, none of which passes
+     * another, sorted from first to last to be reached in the search
+     * direction.
+     */
+    public TripPattern(final List<TransitStop> stops, final List<Trip> trips,
+                       final boolean backward, final LocationIndex index) {
+        this.backward = backward;
+        this.stops = backward ? ImmutableList.copyOf(stops).reverse()
+                : ImmutableList.copyOf(stops);
+        this.trips = ImmutableList.copyOf(trips);
+
+        final int size = stops.size();
+        stopIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            stopIds[i] = index.getId(this.stops.get(i));
+        }
+        times = new long[size][trips.size()];
+        for (int i = 0; i < size; i++) {
+            final int sequence = getSequence(i);
+            for (int j = 0; j < trips.size(); j++) {
+                final Trip trip = trips.get(j);
+                times[i][j] = backward ? trip.getDepartureSeconds(sequence)
+                        : trip.getArrivalSeconds(sequence);
+            }
+        }
+    }
+
+    public int size() {
+        return stops.size();
+    }
+
+    public int getTripCount() {
+        return trips.size();
+    }
+
+    public Trip getTrip(final int trip) {
+        return trips.get(trip);
+    }
+
+    public TransitStop getStop(final int position) {
+        return stops.get(position);
+    }
+
+    public int getStopId(final int position) {
+        return stopIds[position];
+    }
+
+    public long getTime(final int trip, final int position) {
+        return times[position][trip];
+    }
+
+    public EntryPoint getEntryPoint(final int trip, final int position) {
+        return new EntryPoint(trips.get(trip), times[position][trip],
+                              getSequence(position));
+    }
+
+    /**
+     * Finds the first trip that can be boarded at a position at or after the
+     * given time in the search direction, without passing the cutoff.
+     *
+     * @return the index of the trip, or -1 if no trip can be boarded.
+     */
+    public int findEarliestTrip(final int position, final long time,
+                                final long cutoffTime,
+                                final TimeTracker timeTracker) {
+        final long[] positionTimes = times[position];
+        int low = 0;
+        int high = positionTimes.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timeTracker.shouldReplace(time, positionTimes[middle])) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == positionTimes.length || !timeTracker.meetsCutoff(
+                positionTimes[low], cutoffTime)) {
+            return -1;
+        }
+        return low;
+    }
+
+    private int getSequence(final int position) {
+        return backward ? stops.size() - 1 - position : position;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimaps;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Groups the trips of a transit network into patterns of trips that share a
+ * stop sequence, and indexes the patterns serving every stop.
+ *
+ * @author Public Transit Analytics
+ */
+public class TripPatternIndex {
+
+    private final ImmutableList<TripPattern> patterns;
+    private final ImmutableList<ImmutableList<PatternStop>> patternStops;
+
+    public TripPatternIndex(final Set<Trip> trips, final boolean backward,
+                            final LocationIndex index) {
+        final ListMultimap<List<TransitStop>, Trip> tripsByStops
+                = ArrayListMultimap.create();
+        for (final Trip trip : trips) {
+            tripsByStops.put(trip.getStops(), trip);
+        }
+
+        final ImmutableList.Builder<TripPattern> patternsBuilder
+                = ImmutableList.builder();
+        final ListMultimap<Integer, PatternStop> patternStopsByStop
+                = ArrayListMultimap.create();
+        int patternCount = 0;
+        for (final Map.Entry<List<TransitStop>, List<Trip>> entry
+                     : Multimaps.asMap(tripsByStops).entrySet()) {
+            for (final List<Trip> patternTrips : splitOvertaking(
+                    entry.getValue())) {
+                final TripPattern pattern = new TripPattern(
+                        entry.getKey(), backward
+                                ? Lists.reverse(patternTrips) : patternTrips,
+                        backward, index);
+                for (int i = 0; i < pattern.size(); i++) {
+                    patternStopsByStop.put(pattern.getStopId(i),
+                                           new PatternStop(patternCount, i));
+                }
+                patternsBuilder.add(pattern);
+                patternCount++;
+            }
+        }
+        patterns = patternsBuilder.build();
+
+        final ImmutableList.Builder<ImmutableList<PatternStop>> stopsBuilder
+                = ImmutableList.builder();
+        for (int i = 0; i < index.size(); i++) {
+            stopsBuilder.add(ImmutableList.copyOf(patternStopsByStop.get(i)));
+        }
+        patternStops = stopsBuilder.build();
+    }
+
+    /**
+     * Splits trips sharing a stop sequence so that no trip in a pattern passes
+     * another, each split sorted by first arrival. Scanning a pattern relies
+     * on the first trip that can be boarded also being the first to reach
+     * every later stop.
+     */
+    private static List<List<Trip>> splitOvertaking(final List<Trip> trips) {
+        final List<Trip> sortedTrips = trips.stream()
+                .sorted(Comparator.comparingLong(
+                        trip -> trip.getArrivalSeconds(0)))
+                .collect(Collectors.toList());
+
+        final List<List<Trip>> patterns = new ArrayList<>();
+        for (final Trip trip : sortedTrips) {
+            List<Trip> assignedPattern = null;
+            for (final List<Trip> pattern : patterns) {
+                if (!overtakes(trip, pattern.get(pattern.size() - 1))) {
+                    assignedPattern = pattern;
+                    break;
+                }
+            }
+            if (assignedPattern == null) {
+                assignedPattern = new ArrayList<>();
+                patterns.add(assignedPattern);
+            }
+            assignedPattern.add(trip);
+        }
+        return patterns;
+    }
+
+    private static boolean overtakes(final Trip trip, final Trip earlierTrip) {
+        for (int i = 0; i < trip.size(); i++) {
+            if (trip.getArrivalSeconds(i) < earlierTrip.getArrivalSeconds(i)
+                        || trip.getDepartureSeconds(i)
+                                   < earlierTrip.getDepartureSeconds(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+
+    public TripPattern getPattern(final int pattern) {
+        return patterns.get(pattern);
+    }
+
+    public List<PatternStop> getPatternStops(final int stopId) {
+        return patternStops.get(stopId);
+    }
+
+    public boolean isServed(final int locationId) {
+        return !patternStops.get(locationId).isEmpty();
+    }
+
+}
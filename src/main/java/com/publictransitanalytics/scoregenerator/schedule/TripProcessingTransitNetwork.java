@@ -17,6 +17,7 @@ package com.publictransitanalytics.scoregenerator.schedule;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.TreeBasedTable;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -54,14 +55,15 @@ public class TripProcessingTransitNetwork implements TransitNetwork {
 
     @Override
     public Set<EntryPoint> getEntryPoints(
-            final TransitStop stop, final LocalDateTime startTime,
-            final LocalDateTime endTime) {
+            final TransitStop stop, final long startTime,
+            final long endTime) {
         final ImmutableSet.Builder<EntryPoint> builder = ImmutableSet.builder();
 
         final EntryPointTimeKey startKey
-                = EntryPointTimeKey.getMinimalKey(startTime);
+                = EntryPointTimeKey.getMinimalKey(
+                        EpochSeconds.toLocalDateTime(startTime));
         final EntryPointTimeKey endKey = EntryPointTimeKey
-                .getMaximalKey(endTime);
+                .getMaximalKey(EpochSeconds.toLocalDateTime(endTime));
         builder.addAll(entryPoints.row(stop).subMap(startKey, endKey).values());
         if (entryPoints.contains(stop, endKey)) {
             builder.add(entryPoints.get(stop, endKey));
@@ -99,7 +101,8 @@ public class TripProcessingTransitNetwork implements TransitNetwork {
                 final EntryPointTimeKey timeKey = new EntryPointTimeKey(time);
                 final TransitStop transitStop
                         = scheduledLocation.getLocation();
-                final EntryPoint entryPoint = new EntryPoint(trip, time, i);
+                final EntryPoint entryPoint = new EntryPoint(
+                        trip, EpochSeconds.of(time), i);
                 entryPoints.put(transitStop, timeKey, entryPoint);
             }
         }
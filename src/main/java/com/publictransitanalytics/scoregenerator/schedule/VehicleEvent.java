@@ -15,6 +15,7 @@
  */
 package com.publictransitanalytics.scoregenerator.schedule;
 
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import java.time.LocalDateTime;
 import lombok.Value;
@@ -30,4 +31,17 @@ public class VehicleEvent {
     private final TransitStop location;
     private final LocalDateTime arrivalTime;
     private final LocalDateTime departureTime;
+    private final long arrivalSeconds;
+    private final long departureSeconds;
+
+    public VehicleEvent(final TransitStop location,
+                        final LocalDateTime arrivalTime,
+                        final LocalDateTime departureTime) {
+        this.location = location;
+        this.arrivalTime = arrivalTime;
+        this.departureTime = departureTime;
+        arrivalSeconds = EpochSeconds.of(arrivalTime);
+        departureSeconds = EpochSeconds.of(departureTime);
+    }
+
 }
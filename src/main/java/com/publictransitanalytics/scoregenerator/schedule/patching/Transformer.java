@@ -25,6 +25,7 @@ import com.publictransitanalytics.scoregenerator.distance.FilteringReachabilityC
 import com.publictransitanalytics.scoregenerator.distance.RangedCachingReachabilityClient;
 import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
 import com.publictransitanalytics.scoregenerator.distance.SingleEphemeralDistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.distance.SpatialCandidateSelector;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.rider.ForwardRiderFactory;
@@ -35,7 +36,7 @@ import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
-import com.publictransitanalytics.scoregenerator.schedule.TripProcessingTransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.StopIndexedTransitNetwork;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -111,7 +112,7 @@ public class Transformer {
                 tripPatches, originalTransitNetwork);
         final Set<Trip> trips = creator.createTrips();
 
-        return new TripProcessingTransitNetwork(trips, backward);
+        return new StopIndexedTransitNetwork(trips, backward);
     }
 
     public RiderFactory getRiderFactory() throws InterruptedException {
@@ -159,7 +160,8 @@ public class Transformer {
                         .addAll(addedStops).build();
 
         return new RangedCachingReachabilityClient(
-                store, points, timeTracker, distanceClient,
-                estimationClient);
+                store, new SpatialCandidateSelector(
+                        points, walkingMetersPerSecond),
+                timeTracker, distanceClient, estimationClient);
     }
 }
@@ -16,54 +16,65 @@
 package com.publictransitanalytics.scoregenerator.scoring;
 
 import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
 import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
-import java.util.Collection;
+import java.time.Duration;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
 
 /**
- * ScoreCard that counts how many tasks reach a Sector.
+ * ScoreCard that counts how many tasks reach a Sector. Each reach is counted
+ * once, under the shortest duration within which it happened.
  *
  * @author Public Transit Analytics
  */
-public class CountScoreCard extends ScoreCard {
+public class CountScoreCard extends SectorScoreCard {
 
-    private final Multiset<Sector> locations;
-    private final SetMultimap<PointLocation, Sector> pointSectorMap;
+    private final Map<Duration, Multiset<Sector>> buckets;
 
     public CountScoreCard(
-            final int taskCount,
+            final int taskCount, final NavigableSet<Duration> durations,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        super(taskCount);
-        locations = ConcurrentHashMultiset.create();
-        this.pointSectorMap = pointSectorMap;
+        super(taskCount, durations, pointSectorMap);
+        final ImmutableMap.Builder<Duration, Multiset<Sector>> builder
+                = ImmutableMap.builder();
+        for (final Duration duration : getDurations()) {
+            builder.put(duration, ConcurrentHashMultiset.create());
+        }
+        buckets = builder.build();
     }
 
     @Override
-    public int getReachedCount(final Sector location) {
-        return locations.count(location);
+    public int getReachedCount(final Sector location,
+                               final Duration duration) {
+        int count = 0;
+        for (final Duration bucket : getDurations().headSet(duration, true)) {
+            count += buckets.get(bucket).count(location);
+        }
+        return count;
     }
 
     @Override
-    public boolean hasPath(final Sector location) {
-        return locations.contains(location);
+    public boolean hasPath(final Sector location, final Duration duration) {
+        for (final Duration bucket : getDurations().headSet(duration, true)) {
+            if (buckets.get(bucket).contains(location)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public void scoreTask(
-            final TaskIdentifier task,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap) {
-        final Set<PointLocation> reachedLocations = stateMap.keySet();
-        final Set<Sector> reachedSectors = reachedLocations.stream().map(
-                location -> pointSectorMap.get(location))
-                .flatMap(Collection::stream).collect(Collectors.toSet());
-        locations.addAll(reachedSectors);
+    public void scoreSectors(final TaskIdentifier task,
+                             final Map<Sector, Duration> reachedSectors) {
+        for (final Map.Entry<Sector, Duration> entry
+                     : reachedSectors.entrySet()) {
+            buckets.get(entry.getValue()).add(entry.getKey());
+        }
     }
 
-}
\ No newline at end of file
+}
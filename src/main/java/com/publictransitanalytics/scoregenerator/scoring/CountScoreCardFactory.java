@@ -18,18 +18,24 @@ package com.publictransitanalytics.scoregenerator.scoring;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
+import java.time.Duration;
+import java.util.NavigableSet;
+import lombok.RequiredArgsConstructor;
 
 /**
  *
  * @author Public Transit Analytics
  */
+@RequiredArgsConstructor
 public class CountScoreCardFactory implements ScoreCardFactory<CountScoreCard> {
 
+    private final NavigableSet<Duration> durations;
+
     @Override
     public CountScoreCard makeScoreCard(
             final int taskCount,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        return new CountScoreCard(taskCount, pointSectorMap);
+        return new CountScoreCard(taskCount, durations, pointSectorMap);
     }
 
 }
\ No newline at end of file
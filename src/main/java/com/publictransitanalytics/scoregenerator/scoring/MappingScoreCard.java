@@ -15,62 +15,66 @@
  */
 package com.publictransitanalytics.scoregenerator.scoring;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
 import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
-import java.util.Collection;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * ScoreCard that maps Sectors to the Centers that allowed them to be reached.
- * This allows a count of the number of times a Sector was reached.
+ * ScoreCard that maps Sectors to the Centers that allowed them to be reached,
+ * along with the shortest duration within which each reached them. This allows
+ * a count of the number of times a Sector was reached within any of the
+ * requested durations.
  *
  * @author Public Transit Analytics
  */
-public class MappingScoreCard extends ScoreCard {
+public class MappingScoreCard extends SectorScoreCard {
 
-    private final Multimap<Sector, LogicalTask> locations;
-    private final SetMultimap<PointLocation, Sector> pointSectorMap;
+    private final Map<Sector, Map<LogicalTask, Duration>> locations;
 
     public MappingScoreCard(
-            final int taskCount,
+            final int taskCount, final NavigableSet<Duration> durations,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        super(taskCount);
-        locations = Multimaps.synchronizedSetMultimap(HashMultimap.create());
-        this.pointSectorMap = pointSectorMap;
+        super(taskCount, durations, pointSectorMap);
+        locations = new ConcurrentHashMap<>();
     }
 
     @Override
-    public int getReachedCount(final Sector location) {
-        return locations.get(location).size();
+    public int getReachedCount(final Sector location,
+                               final Duration duration) {
+        return (int) getTasks(location).values().stream()
+                .filter(taskDuration -> taskDuration.compareTo(duration) <= 0)
+                .count();
     }
 
     @Override
-    public boolean hasPath(final Sector location) {
-        return locations.containsKey(location);
+    public boolean hasPath(final Sector location, final Duration duration) {
+        return getTasks(location).values().stream().anyMatch(
+                taskDuration -> taskDuration.compareTo(duration) <= 0);
     }
 
     @Override
-    public void scoreTask(
-            final TaskIdentifier task,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap) {
-        final Set<PointLocation> reachedLocations = stateMap.keySet();
-        final Set<Sector> reachedSectors = reachedLocations.stream().map(
-                location -> pointSectorMap.get(location))
-                .flatMap(Collection::stream).collect(Collectors.toSet());
+    public void scoreSectors(final TaskIdentifier task,
+                             final Map<Sector, Duration> reachedSectors) {
         final LogicalTask logicalTask = new LogicalTask(
                 task.getTime(), task.getCenter().getLogicalCenter());
 
-        for (final Sector sector : reachedSectors) {
-            locations.put(sector, logicalTask);
+        for (final Map.Entry<Sector, Duration> entry
+                     : reachedSectors.entrySet()) {
+            locations.computeIfAbsent(
+                    entry.getKey(), sector -> new ConcurrentHashMap<>())
+                    .merge(logicalTask, entry.getValue(),
+                           (a, b) -> a.compareTo(b) <= 0 ? a : b);
         }
     }
 
+    private Map<LogicalTask, Duration> getTasks(final Sector location) {
+        return locations.getOrDefault(location, Collections.emptyMap());
+    }
+
 }
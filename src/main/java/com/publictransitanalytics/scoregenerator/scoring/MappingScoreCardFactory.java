@@ -18,19 +18,25 @@ package com.publictransitanalytics.scoregenerator.scoring;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
+import java.time.Duration;
+import java.util.NavigableSet;
+import lombok.RequiredArgsConstructor;
 
 /**
  *
  * @author Public Transit Analytics
  */
+@RequiredArgsConstructor
 public class MappingScoreCardFactory implements
         ScoreCardFactory<MappingScoreCard> {
 
+    private final NavigableSet<Duration> durations;
+
     @Override
     public MappingScoreCard makeScoreCard(
             final int taskCount,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        return new MappingScoreCard(taskCount, pointSectorMap);
+        return new MappingScoreCard(taskCount, durations, pointSectorMap);
     }
 
 }
@@ -18,6 +18,7 @@ package com.publictransitanalytics.scoregenerator.scoring;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Table;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
 import com.publictransitanalytics.scoregenerator.tracking.MovementPath;
@@ -67,7 +68,8 @@ public class PathScoreCard extends ScoreCard {
             final Set<Sector> sectors = pointSectorMap.get(location);
             final MovementPath path
                     = assembler.assemble(location, stateMap);
-            final LocalDateTime time = entry.getValue().getReachTime();
+            final LocalDateTime time = EpochSeconds.toLocalDateTime(
+                    entry.getValue().getReachTime());
 
             for (final Sector sector : sectors) {
                 if (bestPaths.contains(sector, logicalTask)) {
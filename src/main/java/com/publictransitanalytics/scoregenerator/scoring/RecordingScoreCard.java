@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.scoring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+
+/**
+ * ScoreCard that passes scores through to another and also records the
+ * Sectors each task reached, so that the scores can be persisted and replayed.
+ *
+ * @author Public Transit Analytics
+ */
+public class RecordingScoreCard extends SectorScoreCard {
+
+    private final SectorScoreCard scoreCard;
+    private final List<Contribution> contributions;
+
+    public RecordingScoreCard(
+            final SectorScoreCard scoreCard,
+            final SetMultimap<PointLocation, Sector> pointSectorMap) {
+        super(scoreCard.getTaskCount(), scoreCard.getDurations(),
+              pointSectorMap);
+        this.scoreCard = scoreCard;
+        contributions = new ArrayList<>();
+    }
+
+    @Override
+    public int getReachedCount(final Sector location,
+                               final Duration duration)
+            throws InterruptedException {
+        return scoreCard.getReachedCount(location, duration);
+    }
+
+    @Override
+    public boolean hasPath(final Sector location, final Duration duration)
+            throws InterruptedException {
+        return scoreCard.hasPath(location, duration);
+    }
+
+    @Override
+    public synchronized void scoreSectors(
+            final TaskIdentifier task,
+            final Map<Sector, Duration> reachedSectors)
+            throws InterruptedException {
+        scoreCard.scoreSectors(task, reachedSectors);
+        contributions.add(new Contribution(
+                task, ImmutableMap.copyOf(reachedSectors)));
+    }
+
+    public synchronized List<Contribution> getContributions() {
+        return ImmutableList.copyOf(contributions);
+    }
+
+    /**
+     * The Sectors reached by a single task, with the shortest duration within
+     * which each was reached.
+     */
+    @Value
+    public static class Contribution {
+
+        private final TaskIdentifier task;
+        private final Map<Sector, Duration> reachedSectors;
+
+    }
+
+}
@@ -18,6 +18,7 @@ package com.publictransitanalytics.scoregenerator.scoring;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
 import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
+import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingTable;
 import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
 import java.util.Map;
 import lombok.Getter;
@@ -29,14 +30,16 @@ import lombok.RequiredArgsConstructor;
  * @author Public Transit Analytics
  */
 @RequiredArgsConstructor
-public abstract class ScoreCard {
+public abstract class ScoreCard implements SectorReachability {
 
     @Getter
     private final int taskCount;
 
+    @Override
     public abstract int getReachedCount(final Sector location) 
             throws InterruptedException;
 
+    @Override
     public abstract boolean hasPath(final Sector location) 
             throws InterruptedException;
 
@@ -45,4 +48,15 @@ public abstract class ScoreCard {
             final Map<PointLocation, DynamicProgrammingRecord> stateMap) 
             throws InterruptedException;
 
+    /**
+     * Scores a task directly from the search state. Implementations that only
+     * need the reached locations should override this to avoid building
+     * records.
+     */
+    public void scoreTask(final TaskIdentifier task,
+                          final DynamicProgrammingTable table)
+            throws InterruptedException {
+        scoreTask(task, table.asMap());
+    }
+
 }
\ No newline at end of file
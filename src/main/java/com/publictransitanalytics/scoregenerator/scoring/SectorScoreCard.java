@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.scoring;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.SetMultimap;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
+import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingTable;
+import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ScoreCard whose score for a task depends only on the Sectors the task
+ * reached. Scores can therefore be replayed from the reached Sectors alone.
+ * Each reached Sector is bucketed by the shortest requested duration within
+ * which it was reached, so one search at the longest duration scores every
+ * requested duration.
+ *
+ * @author Public Transit Analytics
+ */
+public abstract class SectorScoreCard extends ScoreCard {
+
+    @Getter
+    private final NavigableSet<Duration> durations;
+    private final SetMultimap<PointLocation, Sector> pointSectorMap;
+
+    public SectorScoreCard(
+            final int taskCount, final NavigableSet<Duration> durations,
+            final SetMultimap<PointLocation, Sector> pointSectorMap) {
+        super(taskCount);
+        this.durations = ImmutableSortedSet.copyOf(durations);
+        this.pointSectorMap = pointSectorMap;
+    }
+
+    /**
+     * @param reachedSectors the Sectors reached by the task, each mapped to
+     * the shortest requested duration within which it was reached.
+     */
+    public abstract void scoreSectors(
+            final TaskIdentifier task,
+            final Map<Sector, Duration> reachedSectors)
+            throws InterruptedException;
+
+    public abstract int getReachedCount(final Sector location,
+                                        final Duration duration)
+            throws InterruptedException;
+
+    public abstract boolean hasPath(final Sector location,
+                                    final Duration duration)
+            throws InterruptedException;
+
+    @Override
+    public int getReachedCount(final Sector location)
+            throws InterruptedException {
+        return getReachedCount(location, durations.last());
+    }
+
+    @Override
+    public boolean hasPath(final Sector location) throws InterruptedException {
+        return hasPath(location, durations.last());
+    }
+
+    /**
+     * @return a read-only view of the scores within one of the requested
+     * durations.
+     */
+    public SectorReachability getDurationScores(final Duration duration) {
+        return new DurationScores(this, duration);
+    }
+
+    @Override
+    public void scoreTask(
+            final TaskIdentifier task,
+            final Map<PointLocation, DynamicProgrammingRecord> stateMap)
+            throws InterruptedException {
+        final long startTime = EpochSeconds.of(task.getTime());
+        final Map<Sector, Duration> reachedSectors = new HashMap<>();
+        for (final Map.Entry<PointLocation, DynamicProgrammingRecord> entry
+                     : stateMap.entrySet()) {
+            addSectors(reachedSectors, entry.getKey(), startTime,
+                       entry.getValue().getReachTime());
+        }
+        scoreSectors(task, reachedSectors);
+    }
+
+    @Override
+    public void scoreTask(final TaskIdentifier task,
+                          final DynamicProgrammingTable table)
+            throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+        final long startTime = EpochSeconds.of(task.getTime());
+        final Map<Sector, Duration> reachedSectors = new HashMap<>();
+        table.forEachReached(id -> addSectors(
+                reachedSectors, index.getLocation(id), startTime,
+                table.getReachTime(id)));
+        scoreSectors(task, reachedSectors);
+    }
+
+    private void addSectors(final Map<Sector, Duration> reachedSectors,
+                            final PointLocation location,
+                            final long startTime, final long reachTime) {
+        final Duration bucket = durations.ceiling(
+                Duration.ofSeconds(Math.abs(reachTime - startTime)));
+        if (bucket == null) {
+            return;
+        }
+        for (final Sector sector : pointSectorMap.get(location)) {
+            reachedSectors.merge(sector, bucket, SectorScoreCard::shorter);
+        }
+    }
+
+    private static Duration shorter(final Duration a, final Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * The scores of a SectorScoreCard within one duration.
+     */
+    @RequiredArgsConstructor
+    private static class DurationScores implements SectorReachability {
+
+        private final SectorScoreCard scoreCard;
+        private final Duration duration;
+
+        @Override
+        public int getTaskCount() {
+            return scoreCard.getTaskCount();
+        }
+
+        @Override
+        public int getReachedCount(final Sector location)
+                throws InterruptedException {
+            return scoreCard.getReachedCount(location, duration);
+        }
+
+        @Override
+        public boolean hasPath(final Sector location)
+                throws InterruptedException {
+            return scoreCard.hasPath(location, duration);
+        }
+
+    }
+
+}
@@ -17,42 +17,42 @@ package com.publictransitanalytics.scoregenerator.scoring;
 
 import com.bitvantage.bitvantagecaching.BitvantageStoreException;
 import com.bitvantage.bitvantagecaching.StoreBackedRangedKeyStore;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
 import com.publictransitanalytics.scoregenerator.datalayer.scoring.ScoreMappingKey;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
-import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
 import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
-import java.util.Collection;
+import java.time.Duration;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
 
 /**
+ * ScoreCard that stores which tasks reached each Sector, keeping one store
+ * per requested duration.
  *
  * @author Public Transit Analytics
  */
-public class StoringMappingScoreCard extends ScoreCard {
+public class StoringMappingScoreCard extends SectorScoreCard {
 
-    private final StoreBackedRangedKeyStore<ScoreMappingKey> store;
-    private final SetMultimap<PointLocation, Sector> pointSectorMap;
+    private final Map<Duration, StoreBackedRangedKeyStore<ScoreMappingKey>> stores;
 
     public StoringMappingScoreCard(
-            final int taskCount,
-            final StoreBackedRangedKeyStore<ScoreMappingKey> store,
+            final int taskCount, final NavigableSet<Duration> durations,
+            final Map<Duration, StoreBackedRangedKeyStore<ScoreMappingKey>> stores,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        super(taskCount);
-        this.store = store;
-        this.pointSectorMap = pointSectorMap;
+        super(taskCount, durations, pointSectorMap);
+        this.stores = ImmutableMap.copyOf(stores);
     }
 
     @Override
-    public int getReachedCount(final Sector location)
+    public int getReachedCount(final Sector location,
+                               final Duration duration)
             throws InterruptedException {
         try {
-            return store.getValuesInRange(
+            return getStore(duration).getValuesInRange(
                     ScoreMappingKey.getMinKey(location.getIdentifier()),
                     ScoreMappingKey.getMaxKey(location.getIdentifier())).size();
         } catch (BitvantageStoreException e) {
@@ -61,32 +61,43 @@ public class StoringMappingScoreCard extends ScoreCard {
     }
 
     @Override
-    public boolean hasPath(final Sector location) throws InterruptedException {
-        return getReachedCount(location) > 0;
+    public boolean hasPath(final Sector location, final Duration duration)
+            throws InterruptedException {
+        return getReachedCount(location, duration) > 0;
     }
 
     @Override
-    public void scoreTask(
-            final TaskIdentifier task,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap)
+    public void scoreSectors(final TaskIdentifier task,
+                             final Map<Sector, Duration> reachedSectors)
             throws InterruptedException {
-        final Set<PointLocation> reachedLocations = stateMap.keySet();
-        final Set<Sector> reachedSectors = reachedLocations.stream().map(
-                location -> pointSectorMap.get(location))
-                .flatMap(Collection::stream).collect(Collectors.toSet());
         final LogicalTask logicalTask = new LogicalTask(
                 task.getTime(), task.getCenter().getLogicalCenter());
 
-        final ImmutableSet.Builder<ScoreMappingKey> keysBuilder
-                = ImmutableSet.builder();
-        for (final Sector sector : reachedSectors) {
-            keysBuilder.add(ScoreMappingKey.getWriteKey(
-                    sector.getIdentifier(),
-                    logicalTask.getTime().toString(),
-                    logicalTask.getCenter().getIdentifier()));
+        for (final Duration duration : getDurations()) {
+            final ImmutableSet.Builder<ScoreMappingKey> keysBuilder
+                    = ImmutableSet.builder();
+            for (final Map.Entry<Sector, Duration> entry
+                         : reachedSectors.entrySet()) {
+                if (entry.getValue().compareTo(duration) <= 0) {
+                    keysBuilder.add(ScoreMappingKey.getWriteKey(
+                            entry.getKey().getIdentifier(),
+                            logicalTask.getTime().toString(),
+                            logicalTask.getCenter().getIdentifier()));
+                }
+            }
+            stores.get(duration).putAll(keysBuilder.build());
         }
+    }
 
-        store.putAll(keysBuilder.build());
+    private StoreBackedRangedKeyStore<ScoreMappingKey> getStore(
+            final Duration duration) {
+        final StoreBackedRangedKeyStore<ScoreMappingKey> store
+                = stores.get(duration);
+        if (store == null) {
+            throw new ScoreGeneratorFatalException(String.format(
+                    "No scores stored for duration %s.", duration));
+        }
+        return store;
     }
 
 }
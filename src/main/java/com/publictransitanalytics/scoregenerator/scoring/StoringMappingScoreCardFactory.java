@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.scoring;
 
 import com.bitvantage.bitvantagecaching.StoreBackedRangedKeyStore;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.io.Files;
 import com.publictransitanalytics.scoregenerator.StoreFactory;
@@ -23,6 +24,8 @@ import com.publictransitanalytics.scoregenerator.datalayer.scoring.ScoreMappingK
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.NavigableSet;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -34,16 +37,22 @@ public class StoringMappingScoreCardFactory implements
         ScoreCardFactory<StoringMappingScoreCard> {
 
     private final StoreFactory factory;
+    private final NavigableSet<Duration> durations;
 
     @Override
     public StoringMappingScoreCard makeScoreCard(
             final int taskCount,
             final SetMultimap<PointLocation, Sector> pointSectorMap) {
-        final Path path = Files.createTempDir().toPath();
-        final StoreBackedRangedKeyStore<ScoreMappingKey> store
-                = factory.<ScoreMappingKey>getRangedKeyStore(
-                        path, new ScoreMappingKey.Materializer());
-        return new StoringMappingScoreCard(taskCount, store, pointSectorMap);
+        final ImmutableMap.Builder<Duration, StoreBackedRangedKeyStore<ScoreMappingKey>> storesBuilder
+                = ImmutableMap.builder();
+        for (final Duration duration : durations) {
+            final Path path = Files.createTempDir().toPath();
+            storesBuilder.put(duration, factory.getRangedKeyStore(
+                    path, new ScoreMappingKey.Materializer()));
+        }
+        return new StoringMappingScoreCard(taskCount, durations,
+                                           storesBuilder.build(),
+                                           pointSectorMap);
     }
 
 }
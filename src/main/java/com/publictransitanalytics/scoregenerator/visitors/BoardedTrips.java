@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.visitors;
+
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks, for one round of a search, the earliest point along each trip at
+ * which it has been boarded. A ride from that point already reached every
+ * later stop of the trip, so riding the same trip from further along only
+ * needs to cover the stops before it.
+ *
+ * @author Public Transit Analytics
+ */
+public class BoardedTrips {
+
+    public static final int UNCOVERED = Integer.MAX_VALUE;
+
+    private final Map<Trip, Integer> earliestBoardings = new HashMap<>();
+
+    /**
+     * @return the earliest progress at which the trip was boarded this round,
+     * or UNCOVERED if it has not been.
+     */
+    public int getCoveredProgress(final Trip trip) {
+        final Integer progress = earliestBoardings.get(trip);
+        return progress == null ? UNCOVERED : progress;
+    }
+
+    public void board(final Trip trip, final int progress) {
+        earliestBoardings.merge(trip, progress, Math::min);
+    }
+
+}
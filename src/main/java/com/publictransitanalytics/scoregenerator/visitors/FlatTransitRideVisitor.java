@@ -21,17 +21,18 @@ import com.publictransitanalytics.scoregenerator.location.GridPoint;
 import com.publictransitanalytics.scoregenerator.location.Landmark;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.rider.Rider;
-import com.publictransitanalytics.scoregenerator.rider.RiderStatus;
 import com.publictransitanalytics.scoregenerator.rider.ScheduleReader;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
 import java.util.Collections;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
 
 /**
- * Visitor for transit rides that does not recurse.
+ * Visitor for transit rides that does not recurse. Trips already boarded
+ * earlier along their course in the same round are only ridden up to that
+ * boarding, since the earlier ride covered the rest.
  *
  * @author Public Transit Analytics
  */
@@ -39,10 +40,11 @@ import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
 public class FlatTransitRideVisitor
         implements FlatVisitor<Set<ReachabilityOutput>> {
 
-    private final LocalDateTime cutoffTime;
-    private final LocalDateTime waitCutoffTime;
-    private final LocalDateTime currentTime;
+    private final long cutoffTime;
+    private final long waitCutoffTime;
+    private final long currentTime;
     private final RiderFactory riderFactory;
+    private final BoardedTrips boardedTrips;
 
     private Set<ReachabilityOutput> output;
 
@@ -63,16 +65,27 @@ public class FlatTransitRideVisitor
         for (final EntryPoint entryPoint : entryPoints) {
             final Rider rider = riderFactory.getNewRider(entryPoint,
                                                          cutoffTime);
-            while (rider.canContinueTrip()) {
+            final Trip trip = entryPoint.getTrip();
+            final int boardedProgress = rider.getProgress();
+            final int coveredProgress
+                    = boardedTrips.getCoveredProgress(trip);
+            if (coveredProgress <= boardedProgress) {
+                continue;
+            }
+            boardedTrips.board(trip, boardedProgress);
+
+            final ModeInfo modeInfo = new ModeInfo(ModeType.TRANSIT,
+                                                   entryPoint, null);
+            while (rider.getProgress() < coveredProgress
+                           && rider.canContinueTrip()) {
 
-                final RiderStatus status = rider.continueTrip();
+                rider.continueTrip();
 
-                final LocalDateTime newTime = status.getTime();
-                final TransitStop newStop = status.getStop();
+                final long newTime = rider.getTime();
+                final TransitStop newStop = rider.getStop();
 
                 outputBuilder.add(new ReachabilityOutput(
-                        newStop, newTime,
-                        new ModeInfo(ModeType.TRANSIT, entryPoint, null)));
+                        newStop, newTime, modeInfo));
             }
         }
         output = outputBuilder.build();
@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.visitors;
 
 import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
 import com.publictransitanalytics.scoregenerator.distance.DistanceClientException;
@@ -26,8 +27,6 @@ import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
@@ -40,8 +39,8 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class FlatWalkVisitor implements FlatVisitor<Set<ReachabilityOutput>> {
 
-    private final LocalDateTime cutoffTime;
-    private final LocalDateTime currentTime;
+    private final long cutoffTime;
+    private final long currentTime;
     private final ReachabilityClient reachabilityClient;
     private final TimeTracker timeTracker;
 
@@ -78,12 +77,12 @@ public class FlatWalkVisitor implements FlatVisitor<Set<ReachabilityOutput>> {
         for (final Map.Entry<PointLocation, WalkingCosts> entry
                      : walkCosts.entrySet()) {
             final WalkingCosts costs = entry.getValue();
-            final Duration walkingDuration = costs.getDuration();
+            final long walkingSeconds = EpochSeconds.of(costs.getDuration());
 
-            if (timeTracker.canAdjust(currentTime, walkingDuration,
+            if (timeTracker.canAdjust(currentTime, walkingSeconds,
                                       cutoffTime)) {
-                final LocalDateTime newTime = timeTracker.adjust(
-                        currentTime, walkingDuration);
+                final long newTime = timeTracker.adjust(
+                        currentTime, walkingSeconds);
                 final PointLocation walkableLocation = entry.getKey();
 
                 outputBuilder.add(new ReachabilityOutput(
@@ -99,7 +98,8 @@ public class FlatWalkVisitor implements FlatVisitor<Set<ReachabilityOutput>> {
         try {
             final Map<PointLocation, WalkingCosts> walkCosts
                     = reachabilityClient.getWalkingCosts(
-                            location, currentTime, cutoffTime);
+                            location, EpochSeconds.toLocalDateTime(currentTime),
+                            EpochSeconds.toLocalDateTime(cutoffTime));
             return walkCosts;
         } catch (DistanceClientException e) {
             throw new ScoreGeneratorFatalException(e);
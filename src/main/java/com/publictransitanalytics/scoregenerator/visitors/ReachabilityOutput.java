@@ -16,7 +16,6 @@
 package com.publictransitanalytics.scoregenerator.visitors;
 
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
-import java.time.LocalDateTime;
 import lombok.Value;
 
 /**
@@ -27,6 +26,6 @@ import lombok.Value;
 @Value
 public class ReachabilityOutput {
     private final PointLocation location;
-    private final LocalDateTime reachTime;
+    private final long reachTime;
     private final ModeInfo modeInfo;
 }
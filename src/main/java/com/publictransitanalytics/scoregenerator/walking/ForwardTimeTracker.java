@@ -71,6 +71,27 @@ public class ForwardTimeTracker implements TimeTracker {
         return !time.isAfter(cutoffTime);
     }
 
+    @Override
+    public long adjust(final long time, final long adjustmentSeconds) {
+        return time + adjustmentSeconds;
+    }
+
+    @Override
+    public boolean canAdjust(final long baseTime, final long adjustmentSeconds,
+                             final long cutoffTime) {
+        return baseTime + adjustmentSeconds <= cutoffTime;
+    }
+
+    @Override
+    public boolean shouldReplace(final long baseTime, final long otherTime) {
+        return otherTime < baseTime;
+    }
+
+    @Override
+    public boolean meetsCutoff(final long time, final long cutoffTime) {
+        return time <= cutoffTime;
+    }
+
     @Override
     public Iterator<LocalDateTime> getTimeIterator(
             final NavigableSet<LocalDateTime> times) {
@@ -42,6 +42,14 @@ public interface TimeTracker {
 
     boolean meetsCutoff(LocalDateTime time, LocalDateTime cutoffTime);
 
+    long adjust(long time, long adjustmentSeconds);
+
+    boolean canAdjust(long baseTime, long adjustmentSeconds, long cutoffTime);
+
+    boolean shouldReplace(long baseTime, long otherTime);
+
+    boolean meetsCutoff(long time, long cutoffTime);
+
     Iterator<LocalDateTime> getTimeIterator(NavigableSet<LocalDateTime> times);
 
 }
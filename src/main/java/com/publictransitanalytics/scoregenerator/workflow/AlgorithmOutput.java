@@ -25,7 +25,7 @@ import lombok.Value;
  */
 @Value
 public class AlgorithmOutput {
-    private final Map<PointLocation, DynamicProgrammingRecord> map;
+    private final DynamicProgrammingTable table;
     private final Map<PointLocation, DynamicProgrammingRecord> initialWalks;
     
 }
@@ -15,6 +15,7 @@
  */
 package com.publictransitanalytics.scoregenerator.workflow;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableSet;
@@ -22,23 +23,24 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
-import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
 import com.publictransitanalytics.scoregenerator.schedule.patching.Transformer;
 import com.publictransitanalytics.scoregenerator.datalayer.directories.ServiceDataDirectory;
+import com.publictransitanalytics.scoregenerator.distance.CachingDistanceStoreManager;
 import com.publictransitanalytics.scoregenerator.distance.DistanceClient;
 import com.publictransitanalytics.scoregenerator.distance.DistanceStoreManager;
 import com.publictransitanalytics.scoregenerator.distance.EstimatingDistanceClient;
-import com.publictransitanalytics.scoregenerator.distance.ForwardPointSequencer;
-import com.publictransitanalytics.scoregenerator.distance.OsrmLocalDistanceClient;
-import com.publictransitanalytics.scoregenerator.distance.PointSequencerFactory;
+import com.publictransitanalytics.scoregenerator.distance.MappedDistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.distance.FilteringReachabilityClient;
 import com.publictransitanalytics.scoregenerator.distance.RangedCachingReachabilityClient;
 import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.distance.SelectingReachabilityClient;
+import com.publictransitanalytics.scoregenerator.distance.SpatialCandidateSelector;
 import com.publictransitanalytics.scoregenerator.distance.StoreBackedDistanceStoreManager;
-import com.publictransitanalytics.scoregenerator.distance.SplitMergeDistanceClient;
 import com.publictransitanalytics.scoregenerator.environment.Grid;
 import com.publictransitanalytics.scoregenerator.location.Center;
 import com.publictransitanalytics.scoregenerator.location.GridPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
 import com.publictransitanalytics.scoregenerator.location.LogicalCenter;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
@@ -56,11 +58,14 @@ import java.time.LocalDateTime;
 import java.util.Set;
 import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
-import com.publictransitanalytics.scoregenerator.schedule.TripProcessingTransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.TripPatternIndex;
+import com.publictransitanalytics.scoregenerator.schedule.StopIndexedTransitNetwork;
 import com.publictransitanalytics.scoregenerator.schedule.TripSchedule;
 import com.publictransitanalytics.scoregenerator.schedule.patching.Patch;
 import com.publictransitanalytics.scoregenerator.scoring.ScoreCardFactory;
-import com.squareup.okhttp.OkHttpClient;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
@@ -85,12 +90,11 @@ public class Calculation<S extends ScoreCard> {
     private final S scoreCard;
     @Getter
     private final TimeTracker timeTracker;
-    private final Set<ModeType> allowedModes;
     @Getter
     private final TransitNetwork transitNetwork;
+    @Getter
     private final boolean backward;
     private final Duration longestDuration;
-    private final double walkingMetersPerSecond;
     @Getter
     private final BiMap<String, TransitStop> stopIdMap;
     @Getter
@@ -99,10 +103,25 @@ public class Calculation<S extends ScoreCard> {
     @Getter
     private final ReachabilityClient reachabilityClient;
     @Getter
+    private final TransferGraph transferGraph;
+    @Getter
+    private final ReachabilityClient egressClient;
+    @Getter
     private final RiderFactory riderFactory;
+    @Getter
+    private final LocationIndex locationIndex;
+    @Getter
+    private final TripPatternIndex patternIndex;
+    private final CachingDistanceStoreManager walkingCostCache;
 
+    /**
+     * @param maxTransferDuration the longest walk between stops that a
+     * journey can take mid-trip.
+     */
     public Calculation(final Grid grid, final Set<Center> centers,
-                       final Duration longestDuration, final boolean backward,
+                       final Duration longestDuration,
+                       final Duration maxTransferDuration,
+                       final boolean backward,
                        final Duration span, final Duration samplingInterval,
                        final double walkingMetersPerSecond,
                        final TimeTracker timeTracker,
@@ -114,13 +133,13 @@ public class Calculation<S extends ScoreCard> {
                        final Set<TransitStop> addedStops,
                        final Set<TransitStop> deletedStops,
                        final BiMap<String, TransitStop> stopIdMap,
-                       final String osrmEndpoint)
+                       final DistanceClient distanceClient,
+                       final long walkingCostCacheSize)
             throws InterruptedException {
 
         final LocalDateTime endTime = (span != null)
                 ? startTime.plus(span) : null;
 
-        this.walkingMetersPerSecond = walkingMetersPerSecond;
         this.longestDuration = longestDuration;
         this.backward = backward;
         this.timeTracker = timeTracker;
@@ -138,21 +157,14 @@ public class Calculation<S extends ScoreCard> {
 
         pointSectorMap = buildPointSectorMap(grid, stopIdMap.values());
 
-        final PointSequencerFactory pointSequencerFactory;
         final RiderFactory baseRiderFactory;
         if (!backward) {
             baseRiderFactory = new ForwardRiderFactory(baseTransitNetwork);
-            pointSequencerFactory = (origin, destinations)
-                    -> new ForwardPointSequencer(origin, destinations);
         } else {
             baseRiderFactory = new RetrospectiveRiderFactory(
                     baseTransitNetwork);
-            pointSequencerFactory = (destination, origins)
-                    -> new ForwardPointSequencer(destination, origins);
         }
 
-        final DistanceClient distanceClient = buildOsrmDistanceClient(
-                osrmEndpoint, pointSequencerFactory, 1000);
         final Set<PointLocation> centerPoints = centers.stream()
                 .map(Center::getPhysicalCenters).flatMap(Collection::stream)
                 .collect(Collectors.toSet());
@@ -164,19 +176,18 @@ public class Calculation<S extends ScoreCard> {
         times = getTaskTimes(startTime, endTime, samplingInterval);
 
         final DistanceClient estimator = new EstimatingDistanceClient(
-                walkingMetersPerSecond);
-        final DistanceStoreManager storeManager
-                = new StoreBackedDistanceStoreManager(
-                        serviceDirectory.getWalkingTimeStore(),
-                        serviceDirectory.getMaxWalkingTimeStore(),
-                        basePointIdMap);
+                walkingMetersPerSecond, true);
+        walkingCostCache = new CachingDistanceStoreManager(
+                buildStoreManager(serviceDirectory, basePointIdMap),
+                walkingCostCacheSize);
+        final DistanceStoreManager storeManager = walkingCostCache;
         final ReachabilityClient baseReachabilityClient
                 = new RangedCachingReachabilityClient(
-                        storeManager, basePointIdMap.values(),
+                        storeManager, new SpatialCandidateSelector(
+                                ImmutableSet.copyOf(basePointIdMap.values()),
+                                walkingMetersPerSecond),
                         timeTracker, distanceClient, estimator);
 
-        allowedModes = ImmutableSet.of(ModeType.TRANSIT, ModeType.WALKING);
-
         final Transformer transformer = new Transformer(
                 timeTracker, baseTransitNetwork, backward, longestDuration,
                 walkingMetersPerSecond, distanceClient, estimator,
@@ -201,16 +212,108 @@ public class Calculation<S extends ScoreCard> {
         transitNetwork = transformer.getTransitNetwork();
         riderFactory = transformer.getRiderFactory();
         reachabilityClient = transformer.getReachabilityClient();
+        /* Walks to points that are not stops can only end a journey, so they
+         * are kept out of the transit phase and expanded once afterwards. */
+        final Set<PointLocation> endpoints
+                = ImmutableSet.<PointLocation>builder()
+                        .addAll(gridPoints).addAll(centerPoints).build();
+        egressClient = new SelectingReachabilityClient(
+                reachabilityClient, endpoints);
+        locationIndex = buildLocationIndex(basePointIdMap.values(),
+                                           transitNetwork);
+        patternIndex = new TripPatternIndex(
+                transitNetwork.getTrips(), backward, locationIndex);
+        transferGraph = new TransferGraph(
+                locationIndex, getTransferOrigins(locationIndex, endpoints),
+                new FilteringReachabilityClient(reachabilityClient, endpoints),
+                timeTracker, startTime, getTransferBudget(
+                        maxTransferDuration, longestDuration));
+    }
+
+    /**
+     * Builds a calculation over a transit network and walking costs that are
+     * already prepared, without reading service data or patching.
+     */
+    public Calculation(final Set<Center> centers,
+                       final NavigableSet<LocalDateTime> times,
+                       final Duration longestDuration,
+                       final Duration maxTransferDuration,
+                       final boolean backward,
+                       final TimeTracker timeTracker,
+                       final TransitNetwork transitNetwork,
+                       final BiMap<String, TransitStop> stopIdMap,
+                       final Set<GridPoint> gridPoints,
+                       final SetMultimap<PointLocation, Sector> pointSectorMap,
+                       final ReachabilityClient reachabilityClient,
+                       final ScoreCardFactory<S> scoreCardFactory)
+            throws InterruptedException {
+        this.longestDuration = longestDuration;
+        this.backward = backward;
+        this.timeTracker = timeTracker;
+        this.transitNetwork = transitNetwork;
+        this.gridPoints = gridPoints;
+        this.pointSectorMap = pointSectorMap;
+        this.reachabilityClient = reachabilityClient;
+        this.times = times;
+        this.stopIdMap = stopIdMap;
+        walkingCostCache = null;
+
+        final Set<PointLocation> centerPoints = centers.stream()
+                .map(Center::getPhysicalCenters).flatMap(Collection::stream)
+                .collect(Collectors.toSet());
+        taskGroups = getTaskGroups(centers);
+        scoreCard = scoreCardFactory.makeScoreCard(
+                times.size() * centers.size(), pointSectorMap);
+        riderFactory = backward
+                ? new RetrospectiveRiderFactory(transitNetwork)
+                : new ForwardRiderFactory(transitNetwork);
+
+        final Set<PointLocation> endpoints
+                = ImmutableSet.<PointLocation>builder()
+                        .addAll(gridPoints).addAll(centerPoints).build();
+        egressClient = new SelectingReachabilityClient(
+                reachabilityClient, endpoints);
+        locationIndex = buildLocationIndex(
+                Sets.union(stopIdMap.values(), endpoints), transitNetwork);
+        patternIndex = new TripPatternIndex(
+                transitNetwork.getTrips(), backward, locationIndex);
+        transferGraph = new TransferGraph(
+                locationIndex, getTransferOrigins(locationIndex, endpoints),
+                new FilteringReachabilityClient(reachabilityClient, endpoints),
+                timeTracker, times.first(), getTransferBudget(
+                        maxTransferDuration, longestDuration));
     }
 
-    private static DistanceClient buildOsrmDistanceClient(
-            final String osrmEndpoint, 
-            final PointSequencerFactory pointSequencerFactory,
-            final int maxConsidered) {
-        final DistanceClient osrmDistanceClient = new OsrmLocalDistanceClient(
-                new OkHttpClient(), osrmEndpoint, 5000, pointSequencerFactory);
+    private static Duration getTransferBudget(
+            final Duration maxTransferDuration,
+            final Duration longestDuration) {
+        return maxTransferDuration.compareTo(longestDuration) < 0
+                ? maxTransferDuration : longestDuration;
+    }
 
-        return new SplitMergeDistanceClient(osrmDistanceClient, maxConsidered);
+    private static Set<PointLocation> getTransferOrigins(
+            final LocationIndex index, final Set<PointLocation> endpoints) {
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        for (int id = 0; id < index.size(); id++) {
+            final PointLocation location = index.getLocation(id);
+            if (!endpoints.contains(location)) {
+                builder.add(location);
+            }
+        }
+        return builder.build();
+    }
+
+    private static LocationIndex buildLocationIndex(
+            final Collection<PointLocation> points,
+            final TransitNetwork transitNetwork) {
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        builder.addAll(points);
+        for (final Trip trip : transitNetwork.getTrips()) {
+            builder.addAll(trip.getStops());
+        }
+        return new LocationIndex(builder.build());
     }
 
     private static LocalDateTime getEarliestTime(
@@ -243,6 +346,31 @@ public class Calculation<S extends ScoreCard> {
         return latestTime;
     }
 
+    public CacheStats getWalkingCostCacheStats() {
+        return (walkingCostCache == null) ? new CacheStats(0, 0, 0, 0, 0, 0)
+                : walkingCostCache.getStats();
+    }
+
+    private static DistanceStoreManager buildStoreManager(
+            final ServiceDataDirectory serviceDirectory,
+            final BiMap<String, PointLocation> pointIdMap) {
+        final DistanceStoreManager storeManager
+                = new StoreBackedDistanceStoreManager(
+                        serviceDirectory.getWalkingTimeStore(),
+                        serviceDirectory.getMaxWalkingTimeStore(),
+                        pointIdMap);
+        final Path matrix = serviceDirectory.getWalkingTimeMatrix();
+        if (!Files.exists(matrix)) {
+            return storeManager;
+        }
+        try {
+            return new MappedDistanceStoreManager(
+                    matrix, pointIdMap, storeManager);
+        } catch (final IOException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+    }
+
     private static BiMap<String, PointLocation> buildPointIdMap(
             final Set<PointLocation> centerPoints,
             final BiMap<String, TransitStop> transitStops, final Grid grid) {
@@ -313,7 +441,7 @@ public class Calculation<S extends ScoreCard> {
             }
             final Set<Trip> trips = builder.build();
             final TransitNetwork transitNetwork
-                    = new TripProcessingTransitNetwork(trips, backward);
+                    = new StopIndexedTransitNetwork(trips, backward);
             return transitNetwork;
         } catch (final InterpolationException e) {
             throw new ScoreGeneratorFatalException(e);
@@ -16,9 +16,10 @@
 package com.publictransitanalytics.scoregenerator.workflow;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.visitors.FlatTransitRideVisitor;
 import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
@@ -26,17 +27,19 @@ import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
 import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Set;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
-import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
-import java.util.HashMap;
 import lombok.RequiredArgsConstructor;
 
 /**
- * Dynamic programming algorithm for path finding.
+ * Dynamic programming algorithm for path finding. Rounds of transit rides and
+ * stop-to-stop transfers run until no stop improves, then a single egress
+ * phase walks from the final labels to the points that cannot continue the
+ * journey.
  *
  * @author Public Transit Analytics
  */
@@ -44,129 +47,128 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class DynamicProgrammingAlgorithm {
 
+    @Getter
+    private final RoundRelaxer relaxer;
+
     public AlgorithmOutput execute(
-            final LocalDateTime startTime, final LocalDateTime cutoffTime,
+            final DynamicProgrammingTable table,
+            final long startTime, final long cutoffTime,
             final Set<? extends PointLocation> startLocations,
             final TimeTracker timeTracker,
             final Duration duration,
-            final ReachabilityClient reachabilityClient,
+            final TransferGraph transfers,
+            final ReachabilityClient egressClient,
             final RiderFactory riderFactory) throws InterruptedException {
 
-        final Map<PointLocation, DynamicProgrammingRecord> stateMap;
-        Set<PointLocation> updateSet;
-
-        final DynamicProgrammingRecord initialRecord
-                = new DynamicProgrammingRecord(
-                        startTime, ModeInfo.NONE, null);
+        final LocationIndex index = table.getIndex();
+        BitSet updateSet = new BitSet(index.size());
+        BitSet nextUpdateSet = new BitSet(index.size());
+        final BitSet changedSet = new BitSet(index.size());
 
-        stateMap = new HashMap<>();
+        table.clear();
         for (final PointLocation startLocation : startLocations) {
-            stateMap.put(startLocation, initialRecord);
+            final int id = index.getId(startLocation);
+            table.set(id, startTime, ModeInfo.NONE,
+                      DynamicProgrammingTable.NO_PREDECESSOR);
+            updateSet.set(id);
         }
-        updateSet = getRoundUpdates(startLocations, stateMap, cutoffTime,
-                                    timeTracker, reachabilityClient,
-                                    riderFactory);
+        changedSet.or(updateSet);
+        getRoundUpdates(updateSet, nextUpdateSet, table, cutoffTime,
+                        timeTracker, transfers, riderFactory);
+        changedSet.or(nextUpdateSet);
 
         final ImmutableMap.Builder<PointLocation, DynamicProgrammingRecord> walkBuilder
                 = ImmutableMap.builder();
-        for (final PointLocation location : updateSet) {
-            final DynamicProgrammingRecord record = stateMap.get(location);
-            final ModeInfo mode = record.getMode();
+        for (int id = nextUpdateSet.nextSetBit(0); id >= 0;
+             id = nextUpdateSet.nextSetBit(id + 1)) {
+            final ModeInfo mode = table.getMode(id);
             final ModeType type = mode.getType();
             if (type.equals(ModeType.WALKING)) {
-                walkBuilder.put(location, record);
+                walkBuilder.put(index.getLocation(id),
+                                new DynamicProgrammingRecord(
+                                        table.getReachTime(id), mode,
+                                        index.getLocation(
+                                                table.getPredecessor(id))));
             }
         }
 
         for (int i = 1;; i++) {
-            updateSet = getRoundUpdates(updateSet, stateMap, cutoffTime,
-                                        timeTracker, reachabilityClient,
-                                        riderFactory);
-            if (updateSet.isEmpty()) {
+            final BitSet roundUpdateSet = nextUpdateSet;
+            nextUpdateSet = updateSet;
+            updateSet = roundUpdateSet;
+            nextUpdateSet.clear();
+
+            getRoundUpdates(updateSet, nextUpdateSet, table, cutoffTime,
+                            timeTracker, transfers, riderFactory);
+            if (nextUpdateSet.isEmpty()) {
                 log.debug("Stopped processing at round {} because no updates.",
                           i);
                 break;
             }
-
+            changedSet.or(nextUpdateSet);
         }
-        return new AlgorithmOutput(stateMap, walkBuilder.build());
+        expandEgress(changedSet, table, cutoffTime, timeTracker, egressClient);
+        return new AlgorithmOutput(table, walkBuilder.build());
     }
 
-    private static Set<PointLocation> getRoundUpdates(
-            final Set<? extends PointLocation> updateSet,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap,
-            final LocalDateTime cutoffTime, final TimeTracker timeTracker,
-            final ReachabilityClient reachabilityClient,
-            final RiderFactory riderFactory) throws InterruptedException {
-        final ImmutableSet.Builder<PointLocation> updateSetBuilder
-                = ImmutableSet.builder();
-        for (final PointLocation priorLocation : updateSet) {
-
-            final DynamicProgrammingRecord priorRecord
-                    = stateMap.get(priorLocation);
-            final LocalDateTime currentTime = priorRecord.getReachTime();
-
-            final ImmutableSet.Builder<ReachabilityOutput> reachabilitiesBuilder
-                    = ImmutableSet.builder();
-
-            final FlatTransitRideVisitor transitRideVisitor
-                    = new FlatTransitRideVisitor(cutoffTime, cutoffTime,
-                                                 currentTime, riderFactory);
-            priorLocation.accept(transitRideVisitor);
-            final Set<ReachabilityOutput> transitRides
-                    = transitRideVisitor.getOutput();
-            reachabilitiesBuilder.addAll(transitRides);
-
-            if (!priorRecord.getMode().getType().equals(ModeType.WALKING)) {
-                final FlatWalkVisitor walkVisitor = new FlatWalkVisitor(
-                        cutoffTime, currentTime, reachabilityClient,
-                        timeTracker);
-                priorLocation.accept(walkVisitor);
-                final Set<ReachabilityOutput> walks
-                        = walkVisitor.getOutput();
-                reachabilitiesBuilder.addAll(walks);
-            }
-
-            updateSetBuilder.addAll(updateRow(
-                    reachabilitiesBuilder.build(), stateMap, priorLocation,
-                    timeTracker));
-        }
-
-        return updateSetBuilder.build();
+    /**
+     * Walks from each changed location that was not itself reached by walking,
+     * starting at its final reach time. Egress walks only end at points that
+     * cannot continue the journey, so one pass after the transit phase is
+     * enough.
+     */
+    public void expandEgress(
+            final BitSet changedSet, final DynamicProgrammingTable table,
+            final long cutoffTime, final TimeTracker timeTracker,
+            final ReachabilityClient egressClient)
+            throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+        relaxer.relaxRound(
+                changedSet, new BitSet(index.size()), table, timeTracker,
+                (priorId, boardedTrips) -> {
+                    if (table.getMode(priorId).getType().equals(
+                            ModeType.WALKING)) {
+                        return Collections.emptySet();
+                    }
+                    final FlatWalkVisitor walkVisitor = new FlatWalkVisitor(
+                            cutoffTime, table.getReachTime(priorId),
+                            egressClient, timeTracker);
+                    index.getLocation(priorId).accept(walkVisitor);
+                    return walkVisitor.getOutput();
+                });
     }
 
-    private static Set<PointLocation> updateRow(
-            final Set<ReachabilityOutput> reachabilities,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap,
-            final PointLocation priorLocation,
-            final TimeTracker timeTracker) {
-        final ImmutableSet.Builder<PointLocation> builder
-                = ImmutableSet.builder();
-        for (final ReachabilityOutput reachability : reachabilities) {
-            final PointLocation newLocation = reachability.getLocation();
-            final LocalDateTime newTime = reachability.getReachTime();
-
-            final ModeInfo mode = reachability.getModeInfo();
-
-            final DynamicProgrammingRecord record
-                    = new DynamicProgrammingRecord(
-                            newTime, mode, priorLocation);
-
-            if (stateMap.containsKey(newLocation)) {
-                final DynamicProgrammingRecord earlierThisRoundReach
-                        = stateMap.get(newLocation);
-                final LocalDateTime earlierThisRoundTime
-                        = earlierThisRoundReach.getReachTime();
-
-                if (timeTracker.shouldReplace(earlierThisRoundTime, newTime)) {
-                    stateMap.put(newLocation, record);
-                    builder.add(newLocation);
-                }
-            } else {
-                stateMap.put(newLocation, record);
-                builder.add(newLocation);
-            }
-        }
-        return builder.build();
+    private void getRoundUpdates(
+            final BitSet updateSet, final BitSet nextUpdateSet,
+            final DynamicProgrammingTable table,
+            final long cutoffTime, final TimeTracker timeTracker,
+            final TransferGraph transfers,
+            final RiderFactory riderFactory) throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+        relaxer.relaxRound(
+                updateSet, nextUpdateSet, table, timeTracker,
+                (priorId, boardedTrips) -> {
+                    final PointLocation priorLocation
+                            = index.getLocation(priorId);
+                    final long currentTime = table.getReachTime(priorId);
+                    final ModeType priorType
+                            = table.getMode(priorId).getType();
+
+                    final FlatTransitRideVisitor transitRideVisitor
+                            = new FlatTransitRideVisitor(
+                                    cutoffTime, cutoffTime, currentTime,
+                                    riderFactory, boardedTrips);
+                    priorLocation.accept(transitRideVisitor);
+                    final Set<ReachabilityOutput> transitRides
+                            = transitRideVisitor.getOutput();
+
+                    if (priorType.equals(ModeType.WALKING)) {
+                        return transitRides;
+                    }
+                    return Iterables.concat(transitRides,
+                                            transfers.getTransfers(
+                                                    priorId, currentTime,
+                                                    cutoffTime, timeTracker));
+                });
     }
 }
@@ -17,7 +17,6 @@ package com.publictransitanalytics.scoregenerator.workflow;
 
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
-import java.time.LocalDateTime;
 import lombok.NonNull;
 import lombok.Value;
 
@@ -29,8 +28,7 @@ import lombok.Value;
 @Value
 public class DynamicProgrammingRecord {
 
-    @NonNull
-    private LocalDateTime reachTime;
+    private long reachTime;
     @NonNull
     private ModeInfo mode;
     private PointLocation predecessor;
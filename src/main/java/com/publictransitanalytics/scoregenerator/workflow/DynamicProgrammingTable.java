@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import lombok.Getter;
+
+/**
+ * Search state kept in parallel arrays indexed by location id. Only the
+ * entries that have been reached are touched when the table is cleared or
+ * copied, so one table can be reused for every search of a task. Reach times
+ * are held as epoch seconds; a location is reached when it has a mode.
+ *
+ * @author Public Transit Analytics
+ */
+public class DynamicProgrammingTable {
+
+    public static final int NO_PREDECESSOR = -1;
+
+    @Getter
+    private final LocationIndex index;
+    private final long[] reachTimes;
+    private final ModeInfo[] modes;
+    private final int[] predecessors;
+    private final int[] reached;
+    private int reachedCount;
+
+    public DynamicProgrammingTable(final LocationIndex index) {
+        this.index = index;
+        final int size = index.size();
+        reachTimes = new long[size];
+        modes = new ModeInfo[size];
+        predecessors = new int[size];
+        reached = new int[size];
+        reachedCount = 0;
+    }
+
+    public boolean isReached(final int id) {
+        return modes[id] != null;
+    }
+
+    public long getReachTime(final int id) {
+        return reachTimes[id];
+    }
+
+    public ModeInfo getMode(final int id) {
+        return modes[id];
+    }
+
+    public int getPredecessor(final int id) {
+        return predecessors[id];
+    }
+
+    public void set(final int id, final long reachTime,
+                    final ModeInfo mode, final int predecessor) {
+        if (modes[id] == null) {
+            reached[reachedCount] = id;
+            reachedCount++;
+        }
+        reachTimes[id] = reachTime;
+        modes[id] = mode;
+        predecessors[id] = predecessor;
+    }
+
+    public int getReachedCount() {
+        return reachedCount;
+    }
+
+    public void forEachReached(final IntConsumer consumer) {
+        for (int i = 0; i < reachedCount; i++) {
+            consumer.accept(reached[i]);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < reachedCount; i++) {
+            modes[reached[i]] = null;
+        }
+        reachedCount = 0;
+    }
+
+    /**
+     * Replaces the contents of this table with the entries of another table
+     * that meet a cutoff.
+     */
+    public void copyMeetingCutoff(final DynamicProgrammingTable other,
+                                  final long cutoffTime,
+                                  final TimeTracker timeTracker) {
+        clear();
+        for (int i = 0; i < other.reachedCount; i++) {
+            final int id = other.reached[i];
+            final long reachTime = other.reachTimes[id];
+            if (timeTracker.meetsCutoff(reachTime, cutoffTime)) {
+                set(id, reachTime, other.modes[id], other.predecessors[id]);
+            }
+        }
+    }
+
+    /**
+     * Drops the entries that do not meet a cutoff.
+     */
+    public void retainMeetingCutoff(final long cutoffTime,
+                                    final TimeTracker timeTracker) {
+        int retained = 0;
+        for (int i = 0; i < reachedCount; i++) {
+            final int id = reached[i];
+            if (timeTracker.meetsCutoff(reachTimes[id], cutoffTime)) {
+                reached[retained] = id;
+                retained++;
+            } else {
+                modes[id] = null;
+            }
+        }
+        reachedCount = retained;
+    }
+
+    /**
+     * Presents the table as a map of records. Records are created as entries
+     * are read, so the view is only suitable for consumers that need
+     * location-keyed access, such as path assembly.
+     */
+    public Map<PointLocation, DynamicProgrammingRecord> asMap() {
+        return new RecordMap();
+    }
+
+    private DynamicProgrammingRecord getRecord(final int id) {
+        final int predecessor = predecessors[id];
+        return new DynamicProgrammingRecord(
+                reachTimes[id], modes[id], (predecessor == NO_PREDECESSOR)
+                        ? null : index.getLocation(predecessor));
+    }
+
+    private class RecordMap
+            extends AbstractMap<PointLocation, DynamicProgrammingRecord> {
+
+        @Override
+        public DynamicProgrammingRecord get(final Object key) {
+            if (!(key instanceof PointLocation)) {
+                return null;
+            }
+            final PointLocation location = (PointLocation) key;
+            if (!index.contains(location)) {
+                return null;
+            }
+            final int id = index.getId(location);
+            return isReached(id) ? getRecord(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return reachedCount;
+        }
+
+        @Override
+        public Set<Map.Entry<PointLocation, DynamicProgrammingRecord>> entrySet() {
+            return new AbstractSet<Map.Entry<PointLocation, DynamicProgrammingRecord>>() {
+
+                @Override
+                public Iterator<Map.Entry<PointLocation, DynamicProgrammingRecord>> iterator() {
+                    return new Iterator<Map.Entry<PointLocation, DynamicProgrammingRecord>>() {
+
+                        private int position = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return position < reachedCount;
+                        }
+
+                        @Override
+                        public Map.Entry<PointLocation, DynamicProgrammingRecord> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int id = reached[position];
+                            position++;
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    index.getLocation(id), getRecord(id));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return reachedCount;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.visitors.BoardedTrips;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Relaxes the locations of a round in parallel on a fork/join pool. The
+ * locations are split into fixed chunks that each collect their candidates
+ * into their own buffer against the table as it stood at the start of the
+ * round. The buffers are then merged into the table in location order, so the
+ * result does not depend on how the chunks were scheduled. Improvements only
+ * take effect in the next round, which may take more rounds than relaxing
+ * sequentially but reaches the same times. A round relaxed from a worker of
+ * the pool, such as one running a task group, is forked into that worker's
+ * own queue instead of being submitted to the pool from outside.
+ *
+ * @author Public Transit Analytics
+ */
+@RequiredArgsConstructor
+public class ForkJoinRoundRelaxer implements RoundRelaxer {
+
+    private static final int CHUNK_SIZE = 16;
+
+    private final ForkJoinPool pool;
+
+    @Override
+    public void relaxRound(final BitSet updateSet, final BitSet nextUpdateSet,
+                           final DynamicProgrammingTable table,
+                           final TimeTracker timeTracker,
+                           final LocationRelaxation relaxation)
+            throws InterruptedException {
+        final int[] priorIds = updateSet.stream().toArray();
+        final RelaxationTask task = new RelaxationTask(
+                priorIds, 0, priorIds.length, relaxation);
+        final List<Iterable<ReachabilityOutput>> candidates;
+        try {
+            candidates = (ForkJoinTask.getPool() == pool) ? task.invoke()
+                    : pool.invoke(task);
+        } catch (final InterruptedRelaxationException e) {
+            throw (InterruptedException) e.getCause();
+        }
+
+        for (int i = 0; i < priorIds.length; i++) {
+            SequentialRoundRelaxer.updateRow(
+                    candidates.get(i), table, priorIds[i], timeTracker,
+                    nextUpdateSet);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class RelaxationTask
+            extends RecursiveTask<List<Iterable<ReachabilityOutput>>> {
+
+        private final int[] priorIds;
+        private final int start;
+        private final int end;
+        private final LocationRelaxation relaxation;
+
+        @Override
+        protected List<Iterable<ReachabilityOutput>> compute() {
+            if (end - start <= CHUNK_SIZE) {
+                final BoardedTrips boardedTrips = new BoardedTrips();
+                final List<Iterable<ReachabilityOutput>> buffer
+                        = new ArrayList<>(end - start);
+                try {
+                    for (int i = start; i < end; i++) {
+                        buffer.add(relaxation.relax(priorIds[i],
+                                                    boardedTrips));
+                    }
+                } catch (final InterruptedException e) {
+                    throw new InterruptedRelaxationException(e);
+                }
+                return buffer;
+            }
+
+            final int middle = (start + end) >>> 1;
+            final RelaxationTask first = new RelaxationTask(
+                    priorIds, start, middle, relaxation);
+            final RelaxationTask second = new RelaxationTask(
+                    priorIds, middle, end, relaxation);
+            first.fork();
+            final List<Iterable<ReachabilityOutput>> secondCandidates
+                    = second.compute();
+            final List<Iterable<ReachabilityOutput>> candidates
+                    = first.join();
+            candidates.addAll(secondCandidates);
+            return candidates;
+        }
+
+    }
+
+    private static class InterruptedRelaxationException
+            extends RuntimeException {
+
+        InterruptedRelaxationException(final InterruptedException cause) {
+            super(cause);
+        }
+
+    }
+
+}
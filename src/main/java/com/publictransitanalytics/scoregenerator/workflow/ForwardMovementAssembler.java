@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.workflow;
 
 import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
@@ -53,17 +54,21 @@ public class ForwardMovementAssembler implements MovementAssembler {
                 final EntryPoint entryPoint = mode.getTransitTrip();
                 final Movement movement = new TransitRideMovement(
                         entryPoint.getTrip(), record.getPredecessor(),
-                        entryPoint.getTime(), location, record.getReachTime());
+                        EpochSeconds.toLocalDateTime(entryPoint.getTime()),
+                        location,
+                        EpochSeconds.toLocalDateTime(record.getReachTime()));
                 movementsBuilder.add(movement);
 
             } else if (type.equals(ModeType.WALKING)) {
                 final WalkingCosts costs = mode.getWalkCosts();
                 final PointLocation predecessor
                         = record.getPredecessor();
-                final LocalDateTime predecessorReachTime = lastRow.get(
-                        predecessor).getReachTime();
+                final LocalDateTime predecessorReachTime
+                        = EpochSeconds.toLocalDateTime(
+                                lastRow.get(predecessor).getReachTime());
                 final double distanceMeters = costs.getDistanceMeters();
-                final LocalDateTime reachTime = record.getReachTime();
+                final LocalDateTime reachTime
+                        = EpochSeconds.toLocalDateTime(record.getReachTime());
                 final Movement movement = new WalkMovement(
                         predecessorReachTime, distanceMeters, predecessor,
                         reachTime, location);
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.visitors.BoardedTrips;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+
+/**
+ * Finds where a location that improved in a round leads, reading the search
+ * state but never changing it.
+ *
+ * @author Public Transit Analytics
+ */
+public interface LocationRelaxation {
+
+    Iterable<ReachabilityOutput> relax(int locationId,
+                                       BoardedTrips boardedTrips)
+            throws InterruptedException;
+
+}
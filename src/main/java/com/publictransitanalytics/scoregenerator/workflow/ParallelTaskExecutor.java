@@ -15,61 +15,155 @@
  */
 package com.publictransitanalytics.scoregenerator.workflow;
 
+import com.publictransitanalytics.scoregenerator.scoring.RecordingScoreCard;
 import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Runs the task groups of all calculations on a shared work-stealing pool,
+ * starting with the groups estimated to be most expensive so that the run
+ * does not end waiting on a few long groups. The pool is owned by the caller
+ * and may be shared with other work. Calculations with a checkpoint skip the
+ * groups it records as finished and record each group they finish.
  *
  * @author Public Transit Analytics
  */
 @Slf4j
+@RequiredArgsConstructor
 public class ParallelTaskExecutor<S extends ScoreCard> implements Workflow<S> {
 
     private final RangeExecutor timeRangeExecutor;
-    private final ExecutorService pool;
-
-    public ParallelTaskExecutor(
-            final RangeExecutor timeRangeExecutor) {
-        this.timeRangeExecutor = timeRangeExecutor;
-        pool = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors());
-    }
+    private final ForkJoinPool pool;
+    private final TaskCostEstimator costEstimator;
+    private final Map<Calculation<S>, TaskCheckpoint> checkpoints;
 
     @Override
     public void calculate(final Set<Calculation<S>> rangeCalculations)
+            throws InterruptedException, ExecutionException {
+        calculate(rangeCalculations, taskGroup -> true);
+    }
+
+    /**
+     * Runs only the task groups that the filter accepts.
+     */
+    public void calculate(final Set<Calculation<S>> rangeCalculations,
+                          final Predicate<TaskGroupIdentifier> filter)
+            throws InterruptedException, ExecutionException {
+        await(submit(rangeCalculations, filter));
+    }
+
+    /**
+     * Restores the checkpoints and submits the task groups that the filter
+     * accepts to the pool without waiting for them.
+     *
+     * @return the submitted groups, to be passed to await or cancel.
+     */
+    public List<ForkJoinTask<?>> submit(
+            final Set<Calculation<S>> rangeCalculations,
+            final Predicate<TaskGroupIdentifier> filter)
             throws InterruptedException {
+        final List<ScheduledTask<S>> scheduledTasks = new ArrayList<>();
         for (final Calculation<S> rangeCalculation : rangeCalculations) {
+            final TaskCheckpoint checkpoint
+                    = checkpoints.get(rangeCalculation);
+            final Set<TaskGroupIdentifier> completed = (checkpoint == null)
+                    ? Collections.emptySet()
+                    : checkpoint.restore(rangeCalculation);
+            for (final TaskGroupIdentifier task
+                         : rangeCalculation.getTaskGroups()) {
+                if (!filter.test(task) || completed.contains(task)) {
+                    continue;
+                }
+                scheduledTasks.add(new ScheduledTask<>(
+                        rangeCalculation, task,
+                        costEstimator.getCost(rangeCalculation, task)));
+            }
+        }
+        scheduledTasks.sort(Comparator.comparingDouble(
+                ScheduledTask<S>::getCost).reversed());
 
-            final Set<TaskGroupIdentifier> tasks
-                    = rangeCalculation.getTaskGroups();
-            for (final TaskGroupIdentifier task : tasks) {
-                pool.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            timeRangeExecutor.executeRange(
-                                    rangeCalculation, task);
-                        } catch (final InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        } catch (final Exception e) {
-                            log.error("Caught exception in task {}.", task, e);
-                            pool.shutdownNow();
-                            throw e;
-                        }
-                    }
-                });
+        final List<ForkJoinTask<?>> futures = new ArrayList<>(
+                scheduledTasks.size());
+        for (final ScheduledTask<S> scheduledTask : scheduledTasks) {
+            final Calculation<S> rangeCalculation
+                    = scheduledTask.getCalculation();
+            final TaskGroupIdentifier task = scheduledTask.getTaskGroup();
+            final TaskCheckpoint checkpoint
+                    = checkpoints.get(rangeCalculation);
+            futures.add(pool.submit(() -> {
+                if (checkpoint == null) {
+                    timeRangeExecutor.executeRange(
+                            rangeCalculation, task,
+                            rangeCalculation.getScoreCard());
+                } else {
+                    final RecordingScoreCard scoreCard
+                            = checkpoint.getRecordingScoreCard(
+                                    rangeCalculation);
+                    timeRangeExecutor.executeRange(rangeCalculation, task,
+                                                   scoreCard);
+                    checkpoint.complete(rangeCalculation, task, scoreCard);
+                }
+                return null;
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for submitted task groups, cancelling the rest if one fails, and
+     * flushes the checkpoints.
+     */
+    public void await(final List<ForkJoinTask<?>> futures)
+            throws InterruptedException, ExecutionException {
+        try {
+            for (final ForkJoinTask<?> future : futures) {
+                future.get();
             }
+        } catch (final InterruptedException | ExecutionException e) {
+            log.error("Stopping task groups after failure.", e);
+            cancel(futures);
+            throw e;
+        } finally {
+            flush();
         }
+    }
+
+    /**
+     * Cancels submitted task groups and flushes the checkpoints of the groups
+     * that finished.
+     */
+    public void cancel(final List<ForkJoinTask<?>> futures) {
+        for (final ForkJoinTask<?> future : futures) {
+            future.cancel(true);
+        }
+        flush();
+    }
 
-        pool.shutdown();
-        
-        while (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
-            log.debug("Continuing to wait.");
+    private void flush() {
+        for (final TaskCheckpoint checkpoint : checkpoints.values()) {
+            checkpoint.flush();
         }
     }
 
+    @Value
+    private static class ScheduledTask<S extends ScoreCard> {
+
+        private final Calculation<S> calculation;
+        private final TaskGroupIdentifier taskGroup;
+        private final double cost;
+
+    }
+
 }
@@ -15,20 +15,22 @@
  */
 package com.publictransitanalytics.scoregenerator.workflow;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
 import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
 import com.publictransitanalytics.scoregenerator.visitors.FlatTransitRideVisitor;
-import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
 import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
 import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -36,7 +38,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
 import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
-import java.util.HashMap;
 
 /**
  * Task used by the dynamic programming workflow.
@@ -52,15 +53,18 @@ public class ProgressiveRangeExecutor implements RangeExecutor {
 
     @Override
     public void executeRange(final Calculation calculation,
-                             final TaskGroupIdentifier taskGroup)
+                             final TaskGroupIdentifier taskGroup,
+                             final ScoreCard scoreCard)
             throws InterruptedException {
         final Duration duration = environment.getLongestDuration();
+        final long durationSeconds = EpochSeconds.of(duration);
 
-        final ScoreCard scoreCard = calculation.getScoreCard();
         final TimeTracker timeTracker = calculation.getTimeTracker();
         final RiderFactory riderFactory = calculation.getRiderFactory();
-        final ReachabilityClient reachabilityClient
-                = calculation.getReachabilityClient();
+        final TransferGraph transfers = calculation.getTransferGraph();
+        final ReachabilityClient egressClient
+                = calculation.getEgressClient();
+        final LocationIndex index = calculation.getLocationIndex();
 
         final Instant profileStartTime = Instant.now();
         final Center center = taskGroup.getCenter();
@@ -71,19 +75,22 @@ public class ProgressiveRangeExecutor implements RangeExecutor {
                 = timeTracker.getTimeIterator(calculation.getTimes());
 
         final LocalDateTime latestStartTime = timeIterator.next();
-        final LocalDateTime latestCutoffTime = timeTracker.adjust(
-                latestStartTime, duration);
+        final long latestStartSeconds = EpochSeconds.of(latestStartTime);
+        final long latestCutoffSeconds = timeTracker.adjust(
+                latestStartSeconds, durationSeconds);
+
+        DynamicProgrammingTable table = new DynamicProgrammingTable(index);
+        DynamicProgrammingTable nextTable = new DynamicProgrammingTable(index);
 
         final AlgorithmOutput output = algorithm.execute(
-                latestStartTime, latestCutoffTime, startLocations, timeTracker,
-                duration, reachabilityClient, riderFactory);
-        Map<PointLocation, DynamicProgrammingRecord> map
-                = output.getMap();
+                table, latestStartSeconds, latestCutoffSeconds, startLocations,
+                timeTracker, duration, transfers, egressClient,
+                riderFactory);
 
         final TaskIdentifier latestFullTask = new TaskIdentifier(
                 latestStartTime, center);
 
-        scoreCard.scoreTask(latestFullTask, map);
+        scoreCard.scoreTask(latestFullTask, table);
 
         final Map<PointLocation, DynamicProgrammingRecord> initialWalks
                 = output.getInitialWalks();
@@ -91,20 +98,21 @@ public class ProgressiveRangeExecutor implements RangeExecutor {
         while (timeIterator.hasNext()) {
 
             final LocalDateTime nextStartTime = timeIterator.next();
-            final LocalDateTime nextCutoffTime = timeTracker.adjust(
-                    nextStartTime, duration);
+            final long nextStartSeconds = EpochSeconds.of(nextStartTime);
+            final long nextCutoffSeconds = timeTracker.adjust(
+                    nextStartSeconds, durationSeconds);
 
-            final Map<PointLocation, DynamicProgrammingRecord> nextMap
-                    = createNextMap(map, nextStartTime, nextCutoffTime,
-                                    startLocations, riderFactory,
-                                    reachabilityClient, timeTracker,
-                                    initialWalks);
+            fillNextTable(table, nextTable, nextStartSeconds, nextCutoffSeconds,
+                          startLocations, riderFactory, transfers,
+                          egressClient, timeTracker, initialWalks);
 
             final TaskIdentifier nextTask = new TaskIdentifier(
                     nextStartTime, center);
 
-            scoreCard.scoreTask(nextTask, nextMap);
-            map = nextMap;
+            scoreCard.scoreTask(nextTask, nextTable);
+            final DynamicProgrammingTable previousTable = table;
+            table = nextTable;
+            nextTable = previousTable;
         }
         final Instant profileEndTime = Instant.now();
 
@@ -114,155 +122,102 @@ public class ProgressiveRangeExecutor implements RangeExecutor {
 
     }
 
-    private Map<PointLocation, DynamicProgrammingRecord> createNextMap(
-            final Map<PointLocation, DynamicProgrammingRecord> previousMap,
-            final LocalDateTime startTime, final LocalDateTime cutoffTime,
+    private void fillNextTable(
+            final DynamicProgrammingTable previousTable,
+            final DynamicProgrammingTable stateTable,
+            final long startTime, final long cutoffTime,
             final Set<? extends PointLocation> startLocations,
             final RiderFactory riderFactory,
-            final ReachabilityClient reachabilityClient,
+            final TransferGraph transfers,
+            final ReachabilityClient egressClient,
             final TimeTracker timeTracker,
             final Map<PointLocation, DynamicProgrammingRecord> initialWalks)
             throws InterruptedException {
+        final LocationIndex index = stateTable.getIndex();
+        final RoundRelaxer relaxer = algorithm.getRelaxer();
 
-        final Map<PointLocation, DynamicProgrammingRecord> stateMap
-                = new HashMap<>(previousMap.size());
-        for (final Map.Entry<PointLocation, DynamicProgrammingRecord> entry
-                     : previousMap.entrySet()) {
+        stateTable.copyMeetingCutoff(previousTable, cutoffTime, timeTracker);
 
-            final DynamicProgrammingRecord record = entry.getValue();
-
-            if (timeTracker.meetsCutoff(record.getReachTime(), cutoffTime)) {
-                stateMap.put(entry.getKey(), record);
-            }
+        for (final PointLocation startLocation : startLocations) {
+            stateTable.set(index.getId(startLocation), startTime,
+                           ModeInfo.NONE,
+                           DynamicProgrammingTable.NO_PREDECESSOR);
         }
 
-        final DynamicProgrammingRecord newStartRecord
-                = new DynamicProgrammingRecord(startTime, ModeInfo.NONE, null);
+        BitSet updateSet = new BitSet(index.size());
+        BitSet nextUpdateSet = new BitSet(index.size());
+        final BitSet changedSet = new BitSet(index.size());
         for (final PointLocation startLocation : startLocations) {
-            stateMap.put(startLocation, newStartRecord);
+            changedSet.set(index.getId(startLocation));
         }
-
-        final ImmutableSet.Builder<PointLocation> initialUpdateSetBuilder
-                = ImmutableSet.builder();
         for (final Map.Entry<PointLocation, DynamicProgrammingRecord> entry
                      : initialWalks.entrySet()) {
             final DynamicProgrammingRecord record = entry.getValue();
             final WalkingCosts walk = record.getMode().getWalkCosts();
-            final LocalDateTime newReachTime = timeTracker.adjust(
-                    startTime, walk.getDuration());
+            final long newReachTime = timeTracker.adjust(
+                    startTime, EpochSeconds.of(walk.getDuration()));
 
-            final PointLocation location = entry.getKey();
+            final int id = index.getId(entry.getKey());
             final ModeInfo newModeInfo = new ModeInfo(ModeType.WALKING, null,
                                                       walk);
-            final DynamicProgrammingRecord newWalkRecord
-                    = new DynamicProgrammingRecord(newReachTime, newModeInfo,
-                                                   record.getPredecessor());
-
-            if (!stateMap.containsKey(location)) {
-                stateMap.put(location, newWalkRecord);
-                initialUpdateSetBuilder.add(location);
-            } else {
-                final LocalDateTime reachTime
-                        = stateMap.get(location).getReachTime();
-
-                if (timeTracker.shouldReplace(reachTime, newReachTime)) {
-                    stateMap.put(location, newWalkRecord);
-                    initialUpdateSetBuilder.add(location);
-                }
+
+            if (!stateTable.isReached(id) || timeTracker.shouldReplace(
+                    stateTable.getReachTime(id), newReachTime)) {
+                stateTable.set(id, newReachTime, newModeInfo,
+                               index.getId(record.getPredecessor()));
+                updateSet.set(id);
             }
         }
 
-        Set<PointLocation> updateSet = initialUpdateSetBuilder.build();
-
         for (int i = 1;; i++) {
-
-            int roundUpdates = 0;
-            final ImmutableSet.Builder<PointLocation> updateSetBuilder
-                    = ImmutableSet.builder();
-            for (final PointLocation priorLocation : updateSet) {
-                final DynamicProgrammingRecord priorRecord
-                        = stateMap.get(priorLocation);
-                final LocalDateTime newReachTime = priorRecord.getReachTime();
-
-                final DynamicProgrammingRecord previousPriorRecord
-                        = previousMap.get(priorLocation);
-                final LocalDateTime waitCutoffTime;
-                if (previousPriorRecord == null) {
-                    waitCutoffTime = cutoffTime;
-                } else {
-                    waitCutoffTime = previousPriorRecord.getReachTime();
-                }
-
-                final ImmutableSet.Builder<ReachabilityOutput> reachabilitiesBuilder
-                        = ImmutableSet.builder();
-                final FlatTransitRideVisitor transitRideVisitor
-                        = new FlatTransitRideVisitor(cutoffTime, waitCutoffTime,
-                                                     newReachTime,
-                                                     riderFactory);
-                priorLocation.accept(transitRideVisitor);
-                final Set<ReachabilityOutput> transitRides = transitRideVisitor
-                        .getOutput();
-                reachabilitiesBuilder.addAll(transitRides);
-
-                if (!priorRecord.getMode().getType().equals(ModeType.WALKING)) {
-                    final FlatWalkVisitor walkVisitor = new FlatWalkVisitor(
-                            cutoffTime, newReachTime,
-                            reachabilityClient, timeTracker);
-                    priorLocation.accept(walkVisitor);
-                    final Set<ReachabilityOutput> walks
-                            = walkVisitor.getOutput();
-                    reachabilitiesBuilder.addAll(walks);
-                }
-
-                updateSetBuilder.addAll(updateRow(reachabilitiesBuilder.build(),
-                                                  stateMap, priorLocation,
-                                                  timeTracker));
-                roundUpdates += updateSet.size();
-            }
-
-            if (roundUpdates == 0) {
+            if (updateSet.isEmpty()) {
                 log.debug(
                         "Stopped processing at round {} because no updates.",
                         i);
                 break;
             }
-            updateSet = updateSetBuilder.build();
-        }
-        return stateMap;
-    }
-
-    private static Set<PointLocation> updateRow(
-            final Set<ReachabilityOutput> reachabilities,
-            final Map<PointLocation, DynamicProgrammingRecord> stateMap,
-            final PointLocation priorLocation,
-            final TimeTracker timeTracker) {
-        final ImmutableSet.Builder<PointLocation> builder
-                = ImmutableSet.builder();
-        for (final ReachabilityOutput reachability : reachabilities) {
-            final PointLocation newLocation = reachability.getLocation();
-            final LocalDateTime newTime = reachability.getReachTime();
-
-            final ModeInfo mode = reachability.getModeInfo();
-
-            final DynamicProgrammingRecord newRecord
-                    = new DynamicProgrammingRecord(
-                            newTime, mode, priorLocation);
-
-            if (stateMap.containsKey(newLocation)) {
-                final DynamicProgrammingRecord currentRecord
-                        = stateMap.get(newLocation);
-                if (timeTracker.shouldReplace(currentRecord.getReachTime(),
-                                              newTime)) {
-                    stateMap.put(newLocation, newRecord);
-                    builder.add(newLocation);
-                }
-            } else {
-                stateMap.put(newLocation, newRecord);
-                builder.add(newLocation);
-            }
-
+            changedSet.or(updateSet);
+
+            relaxer.relaxRound(
+                    updateSet, nextUpdateSet, stateTable, timeTracker,
+                    (priorId, boardedTrips) -> {
+                        final PointLocation priorLocation
+                                = index.getLocation(priorId);
+                        final long newReachTime
+                                = stateTable.getReachTime(priorId);
+                        final ModeType priorType
+                                = stateTable.getMode(priorId).getType();
+
+                        final long waitCutoffTime
+                                = previousTable.isReached(priorId)
+                                          ? previousTable.getReachTime(priorId)
+                                          : cutoffTime;
+
+                        final FlatTransitRideVisitor transitRideVisitor
+                                = new FlatTransitRideVisitor(
+                                        cutoffTime, waitCutoffTime,
+                                        newReachTime, riderFactory,
+                                        boardedTrips);
+                        priorLocation.accept(transitRideVisitor);
+                        final Set<ReachabilityOutput> transitRides
+                                = transitRideVisitor.getOutput();
+
+                        if (priorType.equals(ModeType.WALKING)) {
+                            return transitRides;
+                        }
+                        return Iterables.concat(
+                                transitRides, transfers.getTransfers(
+                                        priorId, newReachTime, cutoffTime,
+                                        timeTracker));
+                    });
+
+            final BitSet roundUpdateSet = nextUpdateSet;
+            nextUpdateSet = updateSet;
+            updateSet = roundUpdateSet;
+            nextUpdateSet.clear();
         }
-        return builder.build();
+        algorithm.expandEgress(changedSet, stateTable, cutoffTime,
+                               timeTracker, egressClient);
     }
 
 }
@@ -15,6 +15,8 @@
  */
 package com.publictransitanalytics.scoregenerator.workflow;
 
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+
 /**
  *
  * @author Public Transit Analytics
@@ -22,7 +24,7 @@ package com.publictransitanalytics.scoregenerator.workflow;
 public interface RangeExecutor {
     
     void executeRange(final Calculation calculation,
-                      final TaskGroupIdentifier taskGroup) throws
-            InterruptedException;
+                      final TaskGroupIdentifier taskGroup,
+                      final ScoreCard scoreCard) throws InterruptedException;
     
 }
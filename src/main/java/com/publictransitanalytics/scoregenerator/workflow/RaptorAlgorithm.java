@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.ModeType;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.schedule.PatternStop;
+import com.publictransitanalytics.scoregenerator.schedule.TripPattern;
+import com.publictransitanalytics.scoregenerator.schedule.TripPatternIndex;
+import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.util.BitSet;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Round-based path finding that scans whole trip patterns instead of expanding
+ * every entry point of every stop. Each round rides one more vehicle and
+ * then walks from the stops that the ride improved, so the labels after round
+ * k are the best arrivals that use at most k rides. Vehicles in round k are
+ * boarded at the labels as they stood at the end of round k - 1, never at
+ * labels that another pattern improved earlier in the same round.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class RaptorAlgorithm {
+
+    private final int maxRides;
+
+    public RaptorAlgorithm() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxRides the most vehicles a path may ride, which is one more
+     * than the transfers it may make. Labels that {@link #extend} keeps from
+     * earlier searches may already use rides of their own, so the limit only
+     * bounds the rides of a fresh search.
+     */
+    public RaptorAlgorithm(final int maxRides) {
+        this.maxRides = maxRides;
+    }
+
+    public void execute(
+            final DynamicProgrammingTable table,
+            final long startTime, final long cutoffTime,
+            final Set<? extends PointLocation> startLocations,
+            final TimeTracker timeTracker,
+            final ReachabilityClient reachabilityClient,
+            final TripPatternIndex patterns) throws InterruptedException {
+        table.clear();
+        extend(table, startTime, cutoffTime, startLocations, timeTracker,
+               reachabilityClient, patterns);
+    }
+
+    /**
+     * Searches from a new start time on top of the labels left by searches
+     * from start times further from the cutoff. Those labels remain valid
+     * upper bounds, since a rider can always wait for the later departure,
+     * so only stops this start time improves are scanned. Labels that do not
+     * meet the new cutoff are left in place and must be filtered by the
+     * caller. An improved label always takes its predecessor with it, but a
+     * label that is not improved keeps its old predecessor even if that
+     * predecessor is improved, so only the reach times of an extended table
+     * match a fresh search.
+     */
+    public void extend(
+            final DynamicProgrammingTable table,
+            final long startTime, final long cutoffTime,
+            final Set<? extends PointLocation> startLocations,
+            final TimeTracker timeTracker,
+            final ReachabilityClient reachabilityClient,
+            final TripPatternIndex patterns) throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+
+        final BitSet startSet = new BitSet(index.size());
+        BitSet markedStops = new BitSet(index.size());
+        for (final PointLocation startLocation : startLocations) {
+            final int id = index.getId(startLocation);
+            table.set(id, startTime, ModeInfo.NONE,
+                      DynamicProgrammingTable.NO_PREDECESSOR);
+            startSet.set(id);
+            if (patterns.isServed(id)) {
+                markedStops.set(id);
+            }
+        }
+        addWalkUpdates(startSet, markedStops, table, cutoffTime, timeTracker,
+                       reachabilityClient, patterns);
+
+        final long[] priorTimes = new long[index.size()];
+        final BitSet priorReached = new BitSet(index.size());
+        for (int i = 1; i <= maxRides && !markedStops.isEmpty(); i++) {
+            final BitSet rideUpdates = getRideUpdates(
+                    markedStops, table, cutoffTime, timeTracker, patterns,
+                    priorTimes, priorReached);
+            markedStops = (BitSet) rideUpdates.clone();
+            addWalkUpdates(rideUpdates, markedStops, table, cutoffTime,
+                           timeTracker, reachabilityClient, patterns);
+            log.debug("Round {} marked {} stops.", i,
+                      markedStops.cardinality());
+        }
+    }
+
+    /**
+     * Rides every pattern through a marked stop once. A stop improved during
+     * the scan has its earlier label saved in priorTimes and priorReached, so
+     * that later boardings in the round still use the label from the end of
+     * the previous round.
+     */
+    private static BitSet getRideUpdates(
+            final BitSet markedStops, final DynamicProgrammingTable table,
+            final long cutoffTime, final TimeTracker timeTracker,
+            final TripPatternIndex patterns, final long[] priorTimes,
+            final BitSet priorReached) {
+        final int[] patternStarts = new int[patterns.size()];
+        final BitSet markedPatterns = new BitSet(patterns.size());
+        for (int stop = markedStops.nextSetBit(0); stop >= 0;
+             stop = markedStops.nextSetBit(stop + 1)) {
+            for (final PatternStop patternStop
+                         : patterns.getPatternStops(stop)) {
+                final int pattern = patternStop.getPattern();
+                final int position = patternStop.getPosition();
+                if (!markedPatterns.get(pattern)
+                            || position < patternStarts[pattern]) {
+                    patternStarts[pattern] = position;
+                    markedPatterns.set(pattern);
+                }
+            }
+        }
+
+        final BitSet updates = new BitSet(table.getIndex().size());
+        for (int patternId = markedPatterns.nextSetBit(0); patternId >= 0;
+             patternId = markedPatterns.nextSetBit(patternId + 1)) {
+            final TripPattern pattern = patterns.getPattern(patternId);
+            int trip = -1;
+            ModeInfo boarding = null;
+            int boardingStop = DynamicProgrammingTable.NO_PREDECESSOR;
+
+            for (int i = patternStarts[patternId]; i < pattern.size(); i++) {
+                final int stop = pattern.getStopId(i);
+                if (trip != -1) {
+                    final long time = pattern.getTime(trip, i);
+                    if (timeTracker.meetsCutoff(time, cutoffTime)
+                                && replaces(table, stop, time, timeTracker)) {
+                        if (!updates.get(stop)) {
+                            priorReached.set(stop, table.isReached(stop));
+                            priorTimes[stop] = table.getReachTime(stop);
+                        }
+                        table.set(stop, time, boarding, boardingStop);
+                        updates.set(stop);
+                    }
+                }
+
+                final boolean reached = updates.get(stop)
+                        ? priorReached.get(stop) : table.isReached(stop);
+                if (reached) {
+                    final long reachTime = updates.get(stop)
+                            ? priorTimes[stop] : table.getReachTime(stop);
+                    final int candidate = pattern.findEarliestTrip(
+                            i, reachTime, cutoffTime, timeTracker);
+                    if (candidate != -1 && (trip == -1
+                                            || timeTracker.shouldReplace(
+                                                    pattern.getTime(trip, i),
+                                                    pattern.getTime(
+                                                            candidate, i)))) {
+                        trip = candidate;
+                        boarding = new ModeInfo(
+                                ModeType.TRANSIT,
+                                pattern.getEntryPoint(candidate, i), null);
+                        boardingStop = stop;
+                    }
+                }
+            }
+        }
+        return updates;
+    }
+
+    private static void addWalkUpdates(
+            final BitSet updateSet, final BitSet markedStops,
+            final DynamicProgrammingTable table,
+            final long cutoffTime, final TimeTracker timeTracker,
+            final ReachabilityClient reachabilityClient,
+            final TripPatternIndex patterns) throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+        for (int priorId = updateSet.nextSetBit(0); priorId >= 0;
+             priorId = updateSet.nextSetBit(priorId + 1)) {
+            if (table.getMode(priorId).getType().equals(ModeType.WALKING)) {
+                continue;
+            }
+            final FlatWalkVisitor walkVisitor = new FlatWalkVisitor(
+                    cutoffTime, table.getReachTime(priorId),
+                    reachabilityClient, timeTracker);
+            index.getLocation(priorId).accept(walkVisitor);
+
+            for (final ReachabilityOutput walk : walkVisitor.getOutput()) {
+                final int id = index.getId(walk.getLocation());
+                final long time = walk.getReachTime();
+                if (replaces(table, id, time, timeTracker)) {
+                    table.set(id, time, walk.getModeInfo(), priorId);
+                    if (patterns.isServed(id)) {
+                        markedStops.set(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean replaces(final DynamicProgrammingTable table,
+                                    final int id, final long time,
+                                    final TimeTracker timeTracker) {
+        return !table.isReached(id) || timeTracker.shouldReplace(
+                table.getReachTime(id), time);
+    }
+
+}
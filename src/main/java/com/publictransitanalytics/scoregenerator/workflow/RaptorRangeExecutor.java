@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.schedule.TripPatternIndex;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorScoreCard;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs pattern-scanning searches for every time in the range. In profile mode,
+ * the times are swept from the one furthest from the cutoff inward and the
+ * labels of each search seed the next, so every departure only pays for the
+ * stops it improves.
+ *
+ * Swept labels have exact reach times, but a label kept from an earlier
+ * sweep can hang off a predecessor that a later sweep improved, so its
+ * predecessor chain may mix departures. Profile mode is therefore only used
+ * for SectorScoreCards, which read reach times alone. Other score cards get a
+ * fresh search for every time.
+ *
+ * @author Public Transit Analytics
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class RaptorRangeExecutor implements RangeExecutor {
+
+    private final RaptorAlgorithm algorithm;
+    private final Environment environment;
+    private final boolean profile;
+
+    @Override
+    public void executeRange(final Calculation calculation,
+                             final TaskGroupIdentifier taskGroup,
+                             final ScoreCard scoreCard)
+            throws InterruptedException {
+        final Duration duration = environment.getLongestDuration();
+
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        final ReachabilityClient reachabilityClient
+                = calculation.getReachabilityClient();
+        final TripPatternIndex patterns = calculation.getPatternIndex();
+
+        final Instant profileStartTime = Instant.now();
+        final Center center = taskGroup.getCenter();
+        final Set<? extends PointLocation> startLocations
+                = center.getPhysicalCenters();
+
+        final Iterator<LocalDateTime> timeIterator
+                = timeTracker.getTimeIterator(calculation.getTimes());
+
+        final boolean sweep = profile && scoreCard instanceof SectorScoreCard;
+        final DynamicProgrammingTable table = new DynamicProgrammingTable(
+                calculation.getLocationIndex());
+        while (timeIterator.hasNext()) {
+            final LocalDateTime startTime = timeIterator.next();
+            final long startSeconds = EpochSeconds.of(startTime);
+            final long cutoffSeconds = timeTracker.adjust(
+                    startSeconds, EpochSeconds.of(duration));
+            if (sweep) {
+                algorithm.extend(table, startSeconds, cutoffSeconds,
+                                 startLocations, timeTracker,
+                                 reachabilityClient, patterns);
+                table.retainMeetingCutoff(cutoffSeconds, timeTracker);
+            } else {
+                algorithm.execute(table, startSeconds, cutoffSeconds,
+                                  startLocations, timeTracker,
+                                  reachabilityClient, patterns);
+            }
+
+            final TaskIdentifier task = new TaskIdentifier(startTime, center);
+            scoreCard.scoreTask(task, table);
+        }
+        final Instant profileEndTime = Instant.now();
+
+        log.info("Finished {} at {} (wallclock {}).", taskGroup,
+                 profileEndTime.toString(),
+                 Duration.between(profileStartTime, profileEndTime));
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.publictransitanalytics.scoregenerator.workflow;
 
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
 import com.publictransitanalytics.scoregenerator.location.Center;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
@@ -25,7 +26,6 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -43,15 +43,16 @@ public class RepeatedRangeExecutor implements RangeExecutor {
 
     @Override
     public void executeRange(final Calculation calculation,
-                             final TaskGroupIdentifier taskGroup) throws
+                             final TaskGroupIdentifier taskGroup,
+                             final ScoreCard scoreCard) throws
             InterruptedException {
         final Duration duration = environment.getLongestDuration();
 
-        final ScoreCard scoreCard = calculation.getScoreCard();
         final TimeTracker timeTracker = calculation.getTimeTracker();
         final RiderFactory riderFactory = calculation.getRiderFactory();
-        final ReachabilityClient reachabilityClient
-                = calculation.getReachabilityClient();
+        final TransferGraph transfers = calculation.getTransferGraph();
+        final ReachabilityClient egressClient
+                = calculation.getEgressClient();
 
         final Instant profileStartTime = Instant.now();
         final Center center = taskGroup.getCenter();
@@ -60,21 +61,23 @@ public class RepeatedRangeExecutor implements RangeExecutor {
 
         final Iterator<LocalDateTime> timeIterator
                 = timeTracker.getTimeIterator(calculation.getTimes());
+        final DynamicProgrammingTable table = new DynamicProgrammingTable(
+                calculation.getLocationIndex());
 
         while (timeIterator.hasNext()) {
             final LocalDateTime startTime = timeIterator.next();
-            final LocalDateTime cutoffTime = timeTracker.adjust(
-                    startTime, duration);
-            Map<PointLocation, DynamicProgrammingRecord> map
-                    = algorithm.execute(
-                            startTime, cutoffTime, startLocations, timeTracker,
-                            duration, reachabilityClient, riderFactory)
-                            .getMap();
+            final long startSeconds = EpochSeconds.of(startTime);
+            final long cutoffSeconds = timeTracker.adjust(
+                    startSeconds, EpochSeconds.of(duration));
+            algorithm.execute(table, startSeconds, cutoffSeconds,
+                              startLocations,
+                              timeTracker, duration, transfers,
+                              egressClient, riderFactory);
 
             final TaskIdentifier latestFullTask = new TaskIdentifier(
                     startTime, center);
 
-            scoreCard.scoreTask(latestFullTask, map);
+            scoreCard.scoreTask(latestFullTask, table);
         }
         final Instant profileEndTime = Instant.now();
 
@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.workflow;
 
 import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.ModeType;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
@@ -54,17 +55,21 @@ public class RetrospectiveMovementAssembler implements MovementAssembler {
             if (type.equals(ModeType.TRANSIT)) {
                 final EntryPoint trip = mode.getTransitTrip();
                 final Movement movement = new TransitRideMovement(
-                        trip.getTrip(), location, record.getReachTime(),
-                        record.getPredecessor(), trip.getTime());
+                        trip.getTrip(), location,
+                        EpochSeconds.toLocalDateTime(record.getReachTime()),
+                        record.getPredecessor(),
+                        EpochSeconds.toLocalDateTime(trip.getTime()));
                 movementsBuilder.add(movement);
             } else if (type.equals(ModeType.WALKING)) {
                 final WalkingCosts costs = mode.getWalkCosts();
                 final PointLocation predecessor
                         = record.getPredecessor();
-                final LocalDateTime predecessorReachTime = lastRow.get(
-                        predecessor).getReachTime();
+                final LocalDateTime predecessorReachTime
+                        = EpochSeconds.toLocalDateTime(
+                                lastRow.get(predecessor).getReachTime());
                 final double distanceMeters = costs.getDistanceMeters();
-                final LocalDateTime reachTime = record.getReachTime();
+                final LocalDateTime reachTime
+                        = EpochSeconds.toLocalDateTime(record.getReachTime());
                 final Movement movement = new WalkMovement(
                         reachTime, distanceMeters, location,
                         predecessorReachTime, predecessor);
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.visitors.BoardedTrips;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.util.BitSet;
+
+/**
+ * Relaxes the locations of a round one at a time, in location order, applying
+ * each improvement as it is found so that later locations in the round
+ * already see it.
+ *
+ * @author Public Transit Analytics
+ */
+public class SequentialRoundRelaxer implements RoundRelaxer {
+
+    @Override
+    public void relaxRound(final BitSet updateSet, final BitSet nextUpdateSet,
+                           final DynamicProgrammingTable table,
+                           final TimeTracker timeTracker,
+                           final LocationRelaxation relaxation)
+            throws InterruptedException {
+        final BoardedTrips boardedTrips = new BoardedTrips();
+        for (int priorId = updateSet.nextSetBit(0); priorId >= 0;
+             priorId = updateSet.nextSetBit(priorId + 1)) {
+            updateRow(relaxation.relax(priorId, boardedTrips), table, priorId,
+                      timeTracker, nextUpdateSet);
+        }
+    }
+
+    static void updateRow(
+            final Iterable<ReachabilityOutput> reachabilities,
+            final DynamicProgrammingTable table, final int priorId,
+            final TimeTracker timeTracker, final BitSet nextUpdateSet) {
+        final LocationIndex index = table.getIndex();
+        for (final ReachabilityOutput reachability : reachabilities) {
+            final int newId = index.getId(reachability.getLocation());
+            final long newTime = reachability.getReachTime();
+
+            if (!table.isReached(newId) || timeTracker.shouldReplace(
+                    table.getReachTime(newId), newTime)) {
+                table.set(newId, newTime, reachability.getModeInfo(),
+                          priorId);
+                nextUpdateSet.set(newId);
+            }
+        }
+    }
+
+}
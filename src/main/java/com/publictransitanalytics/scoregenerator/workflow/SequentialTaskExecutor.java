@@ -36,7 +36,9 @@ public class SequentialTaskExecutor<S extends ScoreCard>
 
             for (final TaskGroupIdentifier task
                          : rangeCalculation.getTaskGroups()) {
-                timeRangeExecutor.executeRange(rangeCalculation, task);
+                timeRangeExecutor.executeRange(
+                        rangeCalculation, task,
+                        rangeCalculation.getScoreCard());
             }
         }
     }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.distance.CandidateSelector;
+import com.publictransitanalytics.scoregenerator.distance.SpatialCandidateSelector;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+
+/**
+ * Estimates the cost of a center by the number of vehicle departures at the
+ * transit stops near it. Searches from centers with dense nearby service
+ * board many more trips and relax many more locations than searches from
+ * centers with little. The departures at each stop are counted once per
+ * calculation, and the stops near a center are found through a spatial grid,
+ * so only nearby stops are measured.
+ *
+ * @author Public Transit Analytics
+ */
+public class ServiceDensityCostEstimator implements TaskCostEstimator {
+
+    /* The grid is searched as if walking at one meter per second, so that
+     * the radius in seconds is the radius in meters. */
+    private static final double GRID_METERS_PER_SECOND = 1;
+
+    private final double radiusMeters;
+    private final Duration gridRadius;
+
+    private final Map<Calculation<?>, StopDensities> stopDensities
+            = new ConcurrentHashMap<>();
+
+    public ServiceDensityCostEstimator(final double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+        gridRadius = Duration.ofSeconds((long) Math.ceil(
+                radiusMeters / GRID_METERS_PER_SECOND));
+    }
+
+    @Override
+    public double getCost(final Calculation<?> calculation,
+                          final TaskGroupIdentifier taskGroup) {
+        final StopDensities densities = stopDensities.computeIfAbsent(
+                calculation, key -> new StopDensities(
+                        key.getTransitNetwork()));
+
+        final Set<PointLocation> nearbyStops = new HashSet<>();
+        for (final PointLocation center
+                     : taskGroup.getCenter().getPhysicalCenters()) {
+            final GeoPoint centerLocation = center.getLocation();
+            for (final PointLocation stop : densities.getSelector()
+                    .getCandidates(center, gridRadius)) {
+                if (nearbyStops.contains(stop)) {
+                    continue;
+                }
+                final GeoPoint stopLocation = stop.getLocation();
+                if (centerLocation.getLowerBoundDistanceMeters(stopLocation)
+                            <= radiusMeters
+                            && centerLocation.getDistanceMeters(stopLocation)
+                                       <= radiusMeters) {
+                    nearbyStops.add(stop);
+                }
+            }
+        }
+
+        double cost = 1;
+        for (final PointLocation stop : nearbyStops) {
+            cost += densities.getDensities().get(stop);
+        }
+        return cost;
+    }
+
+    private static class StopDensities {
+
+        @Getter
+        private final Map<PointLocation, Integer> densities;
+        @Getter
+        private final CandidateSelector selector;
+
+        StopDensities(final TransitNetwork transitNetwork) {
+            final Map<PointLocation, Integer> counts = new HashMap<>();
+            for (final Trip trip : transitNetwork.getTrips()) {
+                for (final TransitStop stop : trip.getStops()) {
+                    counts.merge(stop, 1, Integer::sum);
+                }
+            }
+            densities = ImmutableMap.copyOf(counts);
+            selector = new SpatialCandidateSelector(
+                    densities.keySet(), GRID_METERS_PER_SECOND);
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import java.nio.file.Path;
+import lombok.Value;
+
+/**
+ * Describes how the task groups of a run are split into shards that
+ * separate processes claim through a shared directory. Every process must
+ * use the same number of shards. Only the coordinator waits for all shards
+ * and merges their scores.
+ *
+ * @author Public Transit Analytics
+ */
+@Value
+public class ShardPlan {
+
+    private final Path directory;
+    private final int shardCount;
+    private final boolean coordinator;
+
+    public int getShard(final TaskGroupIdentifier taskGroup) {
+        return Math.floorMod(taskGroup.getCenter().getLogicalCenter()
+                .getIdentifier().hashCode(), shardCount);
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the task groups of a run split into shards, so that processes on one
+ * or more hosts can share the work. Each process claims unclaimed shards by
+ * creating a marker in the shared directory and runs them with a checkpoint
+ * per calculation and shard. Each claimed shard is submitted to the pool
+ * while the previous one is still running, so the pool never idles between
+ * shards, and a process holds at most two unfinished shards so that the rest
+ * are left to other processes. The coordinator then waits for every shard to
+ * be marked done and replays the checkpoints of the shards it did not run
+ * into its own score cards. Replaying the reached sectors of each task gives
+ * exactly the scores of running the task in this process.
+ *
+ * A process that dies leaves its shards claimed; removing their claim
+ * markers lets another process resume them from their checkpoints.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardedTaskExecutor<S extends ScoreCard> implements Workflow<S> {
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(10);
+
+    private final RangeExecutor timeRangeExecutor;
+    private final ForkJoinPool pool;
+    private final TaskCostEstimator costEstimator;
+    private final Map<Calculation<S>, String> calculationNames;
+    private final ShardPlan plan;
+    private final Duration checkpointInterval;
+
+    @Override
+    public void calculate(final Set<Calculation<S>> rangeCalculations)
+            throws InterruptedException, ExecutionException {
+        createDirectory();
+
+        final Set<Integer> completedShards = new HashSet<>();
+        final Deque<RunningShard<S>> runningShards = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < plan.getShardCount(); i++) {
+                final int shard = i;
+                if (!createMarker(getClaimMarker(shard))) {
+                    continue;
+                }
+                log.info("Claimed shard {} of {}.", shard,
+                         plan.getShardCount());
+                final ParallelTaskExecutor<S> executor
+                        = new ParallelTaskExecutor<>(
+                                timeRangeExecutor, pool, costEstimator,
+                                getCheckpoints(rangeCalculations, shard));
+                runningShards.add(new RunningShard<>(
+                        shard, executor, executor.submit(
+                                rangeCalculations, taskGroup
+                                -> plan.getShard(taskGroup) == shard)));
+                while (runningShards.size() > 1) {
+                    finishShard(runningShards.remove(), completedShards);
+                }
+            }
+            while (!runningShards.isEmpty()) {
+                finishShard(runningShards.remove(), completedShards);
+            }
+        } finally {
+            for (final RunningShard<S> runningShard : runningShards) {
+                runningShard.getExecutor().cancel(
+                        runningShard.getFutures());
+            }
+        }
+
+        if (!plan.isCoordinator()) {
+            return;
+        }
+        awaitShards();
+        for (int shard = 0; shard < plan.getShardCount(); shard++) {
+            if (completedShards.contains(shard)) {
+                continue;
+            }
+            for (final Map.Entry<Calculation<S>, TaskCheckpoint> entry
+                         : getCheckpoints(rangeCalculations, shard)
+                    .entrySet()) {
+                entry.getValue().restore(entry.getKey());
+            }
+        }
+    }
+
+    private void finishShard(final RunningShard<S> runningShard,
+                             final Set<Integer> completedShards)
+            throws InterruptedException, ExecutionException {
+        runningShard.getExecutor().await(runningShard.getFutures());
+        createMarker(getDoneMarker(runningShard.getShard()));
+        completedShards.add(runningShard.getShard());
+    }
+
+    private Map<Calculation<S>, TaskCheckpoint> getCheckpoints(
+            final Set<Calculation<S>> rangeCalculations, final int shard) {
+        final ImmutableMap.Builder<Calculation<S>, TaskCheckpoint> builder
+                = ImmutableMap.builder();
+        for (final Calculation<S> rangeCalculation : rangeCalculations) {
+            builder.put(rangeCalculation, new TaskCheckpoint(
+                    plan.getDirectory().resolve(String.format(
+                            "%s.shard-%d.checkpoint",
+                            calculationNames.get(rangeCalculation), shard)),
+                    checkpointInterval));
+        }
+        return builder.build();
+    }
+
+    private void awaitShards() throws InterruptedException {
+        while (true) {
+            int doneCount = 0;
+            for (int shard = 0; shard < plan.getShardCount(); shard++) {
+                if (Files.exists(getDoneMarker(shard))) {
+                    doneCount++;
+                }
+            }
+            if (doneCount == plan.getShardCount()) {
+                return;
+            }
+            log.info("Waiting on {} of {} shards.",
+                     plan.getShardCount() - doneCount, plan.getShardCount());
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+
+    private Path getClaimMarker(final int shard) {
+        return plan.getDirectory().resolve(
+                String.format("shard-%d.claim", shard));
+    }
+
+    private Path getDoneMarker(final int shard) {
+        return plan.getDirectory().resolve(
+                String.format("shard-%d.done", shard));
+    }
+
+    private boolean createMarker(final Path marker) {
+        try {
+            Files.createFile(marker);
+            return true;
+        } catch (final FileAlreadyExistsException e) {
+            return false;
+        } catch (final IOException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+    }
+
+    private void createDirectory() {
+        try {
+            Files.createDirectories(plan.getDirectory());
+        } catch (final IOException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+    }
+
+    @Value
+    private static class RunningShard<S extends ScoreCard> {
+
+        private final int shard;
+        private final ParallelTaskExecutor<S> executor;
+        private final List<ForkJoinTask<?>> futures;
+
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.scoring.RecordingScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.SectorScoreCard;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persists the task groups of a calculation that have finished, along with
+ * the Sectors each of their tasks reached, so that a restarted run can replay
+ * their scores instead of recomputing them. Finished groups are appended to a
+ * local file, one JSON record per line, at most once per flush interval.
+ * Sectors are recorded by their position among the calculation's Sectors
+ * sorted by identifier, and durations by their position among the score
+ * card's durations. Each record carries a fingerprint of both orderings, so
+ * that a checkpoint is never replayed into a different layout.
+ *
+ * @author Public Transit Analytics
+ */
+@Slf4j
+public class TaskCheckpoint {
+
+    private final Path file;
+    private final Duration flushInterval;
+    private final Gson serializer;
+    private final List<String> pendingRecords;
+    private Instant lastFlushTime;
+    private Layout layout;
+
+    public TaskCheckpoint(final Path file, final Duration flushInterval) {
+        this.file = file;
+        this.flushInterval = flushInterval;
+        serializer = new Gson();
+        pendingRecords = new ArrayList<>();
+        lastFlushTime = Instant.now();
+    }
+
+    /**
+     * Replays the scores of every task group recorded in the checkpoint into
+     * the score card of the calculation. A last record cut short by a crash
+     * is dropped, and its task group is left to be run again.
+     *
+     * @return the task groups that do not need to be run again.
+     */
+    public Set<TaskGroupIdentifier> restore(final Calculation<?> calculation)
+            throws InterruptedException {
+        if (!Files.exists(file)) {
+            return ImmutableSet.of();
+        }
+        final SectorScoreCard scoreCard = getScoreCard(calculation);
+        final Layout layout = getLayout(calculation);
+
+        final Map<String, TaskGroupIdentifier> taskGroups = new HashMap<>();
+        for (final TaskGroupIdentifier taskGroup
+                     : calculation.getTaskGroups()) {
+            taskGroups.put(taskGroup.getCenter().getLogicalCenter()
+                    .getIdentifier(), taskGroup);
+        }
+
+        final List<String> lines = readLines();
+        final List<String> validLines = new ArrayList<>(lines.size());
+        final Set<TaskGroupIdentifier> completed = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            final TaskGroupRecord record;
+            try {
+                record = serializer.fromJson(line, TaskGroupRecord.class);
+            } catch (final JsonSyntaxException e) {
+                if (i != lines.size() - 1) {
+                    throw new ScoreGeneratorFatalException(String.format(
+                            "Checkpoint %s has a malformed record on line "
+                                    + "%d.", file, i + 1));
+                }
+                log.warn("Dropping incomplete checkpoint record in {}.",
+                         file);
+                continue;
+            }
+            if (record == null) {
+                continue;
+            }
+            if (record.getLayout() != layout.getFingerprint()) {
+                throw new ScoreGeneratorFatalException(String.format(
+                        "Checkpoint %s was written for different Sectors or "
+                                + "durations than the calculation has.",
+                        file));
+            }
+            validLines.add(line);
+
+            final TaskGroupIdentifier taskGroup
+                    = taskGroups.get(record.getCenter());
+            if (taskGroup == null) {
+                throw new ScoreGeneratorFatalException(String.format(
+                        "Checkpoint %s has center %s, which is not in the "
+                                + "calculation.", file, record.getCenter()));
+            }
+            if (!completed.add(taskGroup)) {
+                continue;
+            }
+            for (final TaskRecord task : record.getTasks()) {
+                final int[] sectors = task.getSectors();
+                final int[] buckets = task.getBuckets();
+                final Map<Sector, Duration> reachedSectors
+                        = new HashMap<>(sectors.length * 2);
+                for (int j = 0; j < sectors.length; j++) {
+                    reachedSectors.put(layout.getSectors().get(sectors[j]),
+                                       layout.getDurations().get(buckets[j]));
+                }
+                scoreCard.scoreSectors(new TaskIdentifier(
+                        LocalDateTime.parse(task.getTime()),
+                        taskGroup.getCenter()), reachedSectors);
+            }
+        }
+        if (validLines.size() != lines.size()) {
+            writeLines(validLines, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        log.info("Restored {} task groups from {}.", completed.size(), file);
+        return completed;
+    }
+
+    /**
+     * @return a score card that scores into the calculation's own score card
+     * and records what it scored, to be passed to complete once the task
+     * group has run.
+     */
+    public RecordingScoreCard getRecordingScoreCard(
+            final Calculation<?> calculation) {
+        return new RecordingScoreCard(getScoreCard(calculation),
+                                      calculation.getPointSectorMap());
+    }
+
+    public synchronized void complete(final Calculation<?> calculation,
+                                      final TaskGroupIdentifier taskGroup,
+                                      final RecordingScoreCard scoreCard) {
+        final Layout layout = getLayout(calculation);
+        final List<TaskRecord> tasks = scoreCard.getContributions().stream()
+                .map(contribution -> makeTaskRecord(layout, contribution))
+                .collect(Collectors.toList());
+        pendingRecords.add(serializer.toJson(new TaskGroupRecord(
+                taskGroup.getCenter().getLogicalCenter().getIdentifier(),
+                layout.getFingerprint(), tasks)));
+
+        if (!Duration.between(lastFlushTime, Instant.now())
+                .minus(flushInterval).isNegative()) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        if (!pendingRecords.isEmpty()) {
+            writeLines(pendingRecords, StandardOpenOption.APPEND);
+            log.info("Checkpointed {} task groups to {}.",
+                     pendingRecords.size(), file);
+            pendingRecords.clear();
+        }
+        lastFlushTime = Instant.now();
+    }
+
+    private List<String> readLines() {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+    }
+
+    private void writeLines(final List<String> lines,
+                            final StandardOpenOption mode) {
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        mode);
+        } catch (final IOException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+    }
+
+    private synchronized Layout getLayout(final Calculation<?> calculation) {
+        if (layout == null) {
+            layout = new Layout(calculation.getPointSectorMap().values(),
+                                getScoreCard(calculation).getDurations());
+        }
+        return layout;
+    }
+
+    private static TaskRecord makeTaskRecord(
+            final Layout layout,
+            final RecordingScoreCard.Contribution contribution) {
+        final Map<Sector, Duration> reachedSectors
+                = contribution.getReachedSectors();
+        final int[] sectors = new int[reachedSectors.size()];
+        final int[] buckets = new int[reachedSectors.size()];
+        int i = 0;
+        for (final Map.Entry<Sector, Duration> entry
+                     : reachedSectors.entrySet()) {
+            sectors[i] = layout.getSectorIndices().get(entry.getKey());
+            buckets[i] = layout.getDurationIndices().get(entry.getValue());
+            i++;
+        }
+        return new TaskRecord(contribution.getTask().getTime().toString(),
+                              sectors, buckets);
+    }
+
+    private static SectorScoreCard getScoreCard(
+            final Calculation<?> calculation) {
+        final ScoreCard scoreCard = calculation.getScoreCard();
+        if (!(scoreCard instanceof SectorScoreCard)) {
+            throw new ScoreGeneratorFatalException(String.format(
+                    "Cannot checkpoint scores kept by %s.",
+                    scoreCard.getClass().getSimpleName()));
+        }
+        return (SectorScoreCard) scoreCard;
+    }
+
+    @Value
+    private static class TaskGroupRecord {
+
+        private final String center;
+        private final int layout;
+        private final List<TaskRecord> tasks;
+
+    }
+
+    @Value
+    private static class TaskRecord {
+
+        private final String time;
+        private final int[] sectors;
+        private final int[] buckets;
+
+    }
+
+    /**
+     * The orderings that Sector and duration positions in records refer to.
+     */
+    @Getter
+    private static class Layout {
+
+        private final List<Sector> sectors;
+        private final Map<Sector, Integer> sectorIndices;
+        private final List<Duration> durations;
+        private final Map<Duration, Integer> durationIndices;
+        private final int fingerprint;
+
+        Layout(final Collection<Sector> sectors,
+               final NavigableSet<Duration> durations) {
+            this.sectors = sectors.stream().distinct()
+                    .sorted(Comparator.comparing(Sector::getIdentifier))
+                    .collect(ImmutableList.toImmutableList());
+            this.durations = ImmutableList.copyOf(durations);
+            sectorIndices = getIndices(this.sectors);
+            durationIndices = getIndices(this.durations);
+            fingerprint = Objects.hash(
+                    this.sectors.stream().map(Sector::getIdentifier)
+                            .collect(Collectors.toList()),
+                    this.durations);
+        }
+
+        private static <T> Map<T, Integer> getIndices(final List<T> values) {
+            final ImmutableMap.Builder<T, Integer> builder
+                    = ImmutableMap.builder();
+            for (int i = 0; i < values.size(); i++) {
+                builder.put(values.get(i), i);
+            }
+            return builder.build();
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.ModeType;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.distance.DistanceClientException;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.Value;
+
+/**
+ * Walking transfers between locations, kept as rows of primitive arrays: the
+ * transfers from a location are its targets and their walking costs. Rows
+ * are kept for the given origins, normally the stops, and each is built the
+ * first time a search walks from its origin, so origins that no search
+ * reaches are never measured and construction costs nothing. Rows hold only
+ * walks within the transfer budget. Walks from any other location, such as
+ * the start of a search, are asked of the reachability client.
+ *
+ * @author Public Transit Analytics
+ */
+public class TransferGraph {
+
+    private final LocationIndex index;
+    private final ReachabilityClient client;
+    private final BitSet origins;
+    private final LocalDateTime referenceTime;
+    private final LocalDateTime budgetTime;
+    private final AtomicReferenceArray<Row> rows;
+
+    /**
+     * @param client the client that transfer walks are taken from.
+     * @param maxDuration the longest transfer to keep.
+     */
+    public TransferGraph(final LocationIndex index,
+                         final Set<? extends PointLocation> origins,
+                         final ReachabilityClient client,
+                         final TimeTracker timeTracker,
+                         final LocalDateTime referenceTime,
+                         final Duration maxDuration) {
+        this.index = index;
+        this.client = client;
+        this.referenceTime = referenceTime;
+        budgetTime = timeTracker.adjust(referenceTime, maxDuration);
+        this.origins = new BitSet(index.size());
+        for (final PointLocation origin : origins) {
+            this.origins.set(index.getId(origin));
+        }
+        rows = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Finds the walks from a location that arrive within the cutoff.
+     */
+    public List<ReachabilityOutput> getTransfers(
+            final int id, final long currentTime, final long cutoffTime,
+            final TimeTracker timeTracker) throws InterruptedException {
+        if (!origins.get(id)) {
+            final FlatWalkVisitor walkVisitor = new FlatWalkVisitor(
+                    cutoffTime, currentTime, client, timeTracker);
+            index.getLocation(id).accept(walkVisitor);
+            return new ArrayList<>(walkVisitor.getOutput());
+        }
+
+        final Row row = getRow(id);
+        final int[] targets = row.getTargets();
+        final long[] seconds = row.getSeconds();
+        final double[] meters = row.getMeters();
+        final List<ReachabilityOutput> transfers
+                = new ArrayList<>(targets.length);
+        for (int edge = 0; edge < targets.length; edge++) {
+            final long walkingSeconds = seconds[edge];
+            if (timeTracker.canAdjust(currentTime, walkingSeconds,
+                                      cutoffTime)) {
+                transfers.add(new ReachabilityOutput(
+                        index.getLocation(targets[edge]),
+                        timeTracker.adjust(currentTime, walkingSeconds),
+                        new ModeInfo(ModeType.WALKING, null, new WalkingCosts(
+                                Duration.ofSeconds(walkingSeconds),
+                                meters[edge]))));
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * Gets the row of an origin, building it if no search has walked from the
+     * origin yet. Searches racing to build the same row build equal rows, and
+     * the first one stored is kept.
+     */
+    private Row getRow(final int id) throws InterruptedException {
+        final Row row = rows.get(id);
+        if (row != null) {
+            return row;
+        }
+        rows.compareAndSet(id, null, buildRow(id));
+        return rows.get(id);
+    }
+
+    private Row buildRow(final int id) throws InterruptedException {
+        final Map<PointLocation, WalkingCosts> costs;
+        try {
+            costs = client.getWalkingCosts(index.getLocation(id),
+                                           referenceTime, budgetTime);
+        } catch (final DistanceClientException e) {
+            throw new ScoreGeneratorFatalException(e);
+        }
+
+        final int[] targets = new int[costs.size()];
+        final long[] seconds = new long[costs.size()];
+        final double[] meters = new double[costs.size()];
+        int edge = 0;
+        for (final Map.Entry<PointLocation, WalkingCosts> entry
+                     : costs.entrySet()) {
+            if (!index.contains(entry.getKey())) {
+                continue;
+            }
+            final WalkingCosts walkingCosts = entry.getValue();
+            targets[edge] = index.getId(entry.getKey());
+            seconds[edge] = EpochSeconds.of(walkingCosts.getDuration());
+            meters[edge] = walkingCosts.getDistanceMeters();
+            edge++;
+        }
+        return new Row(Arrays.copyOf(targets, edge),
+                       Arrays.copyOf(seconds, edge),
+                       Arrays.copyOf(meters, edge));
+    }
+
+    @Value
+    private static class Row {
+
+        private final int[] targets;
+        private final long[] seconds;
+        private final double[] meters;
+
+    }
+
+}
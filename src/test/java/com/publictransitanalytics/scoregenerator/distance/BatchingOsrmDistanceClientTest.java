@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class BatchingOsrmDistanceClientTest {
+
+    private static final double BASE_LONGITUDE = -122.3;
+    private static final double STEP_DEGREES = 0.001;
+    private static final int SECONDS_PER_STEP = 60;
+    private static final int ORIGINS = 4;
+    private static final int DESTINATIONS_PER_ORIGIN = 5;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private List<Landmark> landmarks;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/table/v1/foot/", this::handleTable);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        final ImmutableList.Builder<Landmark> builder
+                = ImmutableList.builder();
+        for (int i = 0; i < ORIGINS * (DESTINATIONS_PER_ORIGIN + 1); i++) {
+            builder.add(new Landmark(new GeoPoint(
+                    new GeoLongitude(String.format(
+                            "%.3f", BASE_LONGITUDE - i * STEP_DEGREES),
+                                     AngleUnit.DEGREES),
+                    new GeoLatitude("47.6", AngleUnit.DEGREES))));
+        }
+        landmarks = builder.build();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testBatchesConcurrentOrigins() throws Exception {
+        final DistanceClient client = makeClient(Duration.ofSeconds(30));
+        final ExecutorService callers = Executors.newFixedThreadPool(ORIGINS);
+        try {
+            final ImmutableList.Builder<Future<Map<PointLocation, WalkingCosts>>> futures
+                    = ImmutableList.builder();
+            for (int i = 0; i < ORIGINS; i++) {
+                final int origin = i;
+                futures.add(callers.submit(() -> client.getDistances(
+                        landmarks.get(origin), getDestinations(origin))));
+            }
+            final List<Future<Map<PointLocation, WalkingCosts>>> results
+                    = futures.build();
+            for (int i = 0; i < ORIGINS; i++) {
+                assertCosts(i, results.get(i).get());
+            }
+        } finally {
+            callers.shutdownNow();
+            client.close();
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testSendsPartialBatchAfterLinger() throws Exception {
+        final DistanceClient client = makeClient(Duration.ofMillis(20));
+        try {
+            assertCosts(2, client.getDistances(landmarks.get(2),
+                                               getDestinations(2)));
+        } finally {
+            client.close();
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    private DistanceClient makeClient(final Duration linger) {
+        return new BatchingOsrmDistanceClient(
+                PipelinedOsrmDistanceClient.buildHttpClient(2), "127.0.0.1",
+                server.getAddress().getPort(), ORIGINS, 100, linger);
+    }
+
+    private Set<PointLocation> getDestinations(final int origin) {
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        for (int j = 1; j <= DESTINATIONS_PER_ORIGIN; j++) {
+            builder.add(landmarks.get(ORIGINS + origin
+                                              * DESTINATIONS_PER_ORIGIN + j - 1));
+        }
+        return builder.build();
+    }
+
+    private void assertCosts(final int origin,
+                             final Map<PointLocation, WalkingCosts> costs) {
+        final Set<PointLocation> destinations = getDestinations(origin);
+        Assert.assertEquals(destinations, costs.keySet());
+        for (final PointLocation destination : destinations) {
+            final int steps = Math.abs(landmarks.indexOf(destination) - origin);
+            Assert.assertEquals(Duration.ofSeconds(steps * SECONDS_PER_STEP),
+                                costs.get(destination).getDuration());
+        }
+    }
+
+    private void handleTable(final HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        final String path = exchange.getRequestURI().getPath();
+        final String[] coordinates = path.substring(
+                path.lastIndexOf('/') + 1).split(";");
+        final String query = exchange.getRequestURI().getQuery();
+        String[] sources = null;
+        String[] destinations = null;
+        for (final String parameter : query.split("&")) {
+            final String[] parts = parameter.split("=");
+            if (parts[0].equals("sources")) {
+                sources = parts[1].split(";");
+            } else if (parts[0].equals("destinations")) {
+                destinations = parts[1].split(";");
+            }
+        }
+
+        final StringJoiner rows = new StringJoiner(",");
+        for (final String source : sources) {
+            final double sourceLongitude = getLongitude(
+                    coordinates[Integer.valueOf(source)]);
+            final StringJoiner row = new StringJoiner(",", "[", "]");
+            for (final String destination : destinations) {
+                final double longitude = getLongitude(
+                        coordinates[Integer.valueOf(destination)]);
+                final long steps = Math.round(
+                        Math.abs(sourceLongitude - longitude) / STEP_DEGREES);
+                row.add(String.valueOf(steps * SECONDS_PER_STEP));
+            }
+            rows.add(row.toString());
+        }
+        final byte[] bytes = String.format(
+                "{\"code\":\"Ok\",\"durations\":[%s]}", rows)
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static double getLongitude(final String coordinate) {
+        return Double.valueOf(coordinate.split(",")[0]);
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.testhelpers.PreloadedDistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class CachingDistanceStoreManagerTest {
+
+    private static final Landmark ORIGIN = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.3", AngleUnit.DEGREES),
+            new GeoLatitude("47.6", AngleUnit.DEGREES)));
+
+    private static final Landmark NEAR = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.301", AngleUnit.DEGREES),
+            new GeoLatitude("47.601", AngleUnit.DEGREES)));
+
+    private static final Landmark FAR = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.31", AngleUnit.DEGREES),
+            new GeoLatitude("47.61", AngleUnit.DEGREES)));
+
+    private static final WalkingCosts NEAR_COSTS
+            = new WalkingCosts(Duration.ofMinutes(2), -1);
+    private static final WalkingCosts FAR_COSTS
+            = new WalkingCosts(Duration.ofMinutes(9), -1);
+
+    @Test
+    public void testAnswersShorterQueriesFromPrefix() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        store.putAll(ORIGIN, ImmutableMap.of(NEAR, NEAR_COSTS,
+                                             FAR, FAR_COSTS));
+        store.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+        final CachingDistanceStoreManager cache
+                = new CachingDistanceStoreManager(store, 100);
+
+        Assert.assertEquals(Duration.ofMinutes(10),
+                            cache.getMaxStored(ORIGIN));
+        Assert.assertEquals(ImmutableMap.of(NEAR, NEAR_COSTS),
+                            cache.get(ORIGIN, Duration.ofMinutes(5)));
+        Assert.assertEquals(ImmutableMap.of(NEAR, NEAR_COSTS, FAR, FAR_COSTS),
+                            cache.get(ORIGIN, Duration.ofMinutes(10)));
+        Assert.assertTrue(cache.get(ORIGIN, Duration.ofMinutes(1)).isEmpty());
+        Assert.assertEquals(1, cache.getStats().missCount());
+        Assert.assertEquals(3, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void testWritesInvalidateOrigin() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        store.putAll(ORIGIN, ImmutableMap.of(NEAR, NEAR_COSTS));
+        store.updateMaxStored(ORIGIN, Duration.ofMinutes(5));
+        final CachingDistanceStoreManager cache
+                = new CachingDistanceStoreManager(store, 100);
+        Assert.assertEquals(Duration.ofMinutes(5), cache.getMaxStored(ORIGIN));
+
+        cache.putAll(ORIGIN, ImmutableMap.of(FAR, FAR_COSTS));
+        cache.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+
+        Assert.assertEquals(Duration.ofMinutes(10),
+                            cache.getMaxStored(ORIGIN));
+        Assert.assertEquals(ImmutableMap.of(NEAR, NEAR_COSTS, FAR, FAR_COSTS),
+                            cache.get(ORIGIN, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    public void testEvictsBeyondBound() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        store.putAll(ORIGIN, ImmutableMap.of(NEAR, NEAR_COSTS,
+                                             FAR, FAR_COSTS));
+        store.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+        store.putAll(NEAR, ImmutableMap.of(ORIGIN, NEAR_COSTS));
+        store.updateMaxStored(NEAR, Duration.ofMinutes(10));
+        final CachingDistanceStoreManager cache
+                = new CachingDistanceStoreManager(store, 3);
+
+        cache.getMaxStored(ORIGIN);
+        cache.getMaxStored(NEAR);
+        cache.getMaxStored(ORIGIN);
+
+        Assert.assertEquals(3, cache.getStats().missCount());
+        Assert.assertEquals(2, cache.getStats().evictionCount());
+    }
+
+    @Test
+    public void testKeepsOriginHeavierThanSegmentShare() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        final ImmutableMap.Builder<PointLocation, WalkingCosts> builder
+                = ImmutableMap.builder();
+        for (int i = 0; i < 60; i++) {
+            builder.put(new Landmark(new GeoPoint(
+                    new GeoLongitude(String.valueOf(-122.3 - i * 0.001),
+                                     AngleUnit.DEGREES),
+                    new GeoLatitude("47.6", AngleUnit.DEGREES))),
+                        NEAR_COSTS);
+        }
+        store.putAll(ORIGIN, builder.build());
+        store.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+        final CachingDistanceStoreManager cache
+                = new CachingDistanceStoreManager(store, 100);
+
+        cache.getMaxStored(ORIGIN);
+        cache.getMaxStored(ORIGIN);
+
+        Assert.assertEquals(1, cache.getStats().missCount());
+        Assert.assertEquals(0, cache.getStats().evictionCount());
+    }
+
+    @Test
+    public void testWriteDuringLoadWins() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch written = new CountDownLatch(1);
+        final AtomicBoolean blocked = new AtomicBoolean();
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager() {
+
+            @Override
+            public Map<PointLocation, WalkingCosts> get(
+                    final PointLocation location, final Duration duration) {
+                final Map<PointLocation, WalkingCosts> costs
+                        = super.get(location, duration);
+                if (blocked.compareAndSet(false, true)) {
+                    loading.countDown();
+                    try {
+                        written.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return costs;
+            }
+        };
+        store.putAll(ORIGIN, ImmutableMap.of(NEAR, NEAR_COSTS));
+        store.updateMaxStored(ORIGIN, Duration.ofMinutes(5));
+        final CachingDistanceStoreManager cache
+                = new CachingDistanceStoreManager(store, 100);
+
+        final Thread reader = new Thread(() -> {
+            try {
+                cache.getMaxStored(ORIGIN);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        loading.await();
+        cache.putAll(ORIGIN, ImmutableMap.of(FAR, FAR_COSTS));
+        cache.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+        written.countDown();
+        reader.join();
+
+        Assert.assertEquals(Duration.ofMinutes(10),
+                            cache.getMaxStored(ORIGIN));
+        Assert.assertEquals(ImmutableMap.of(NEAR, NEAR_COSTS, FAR, FAR_COSTS),
+                            cache.get(ORIGIN, Duration.ofMinutes(10)));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class EstimatingDistanceClientTest {
+
+    private static final double WALKING_METERS_PER_SECOND = 1.3;
+    private static final double MAX_UNDERESTIMATE = 0.011;
+
+    @Test
+    public void testFastEstimatesBoundDistanceFromBelow() throws Exception {
+        final DistanceClient exactClient = new EstimatingDistanceClient(
+                WALKING_METERS_PER_SECOND, false);
+        final DistanceClient fastClient = new EstimatingDistanceClient(
+                WALKING_METERS_PER_SECOND, true);
+        final Random random = new Random(0);
+
+        for (int i = 0; i < 1000; i++) {
+            final double latitude = -80 + random.nextDouble() * 160;
+            final double longitude = -179 + random.nextDouble() * 358;
+            final PointLocation origin = makePoint(latitude, longitude);
+            final PointLocation destination = makePoint(
+                    latitude + (random.nextDouble() - 0.5) * 0.2,
+                    longitude + (random.nextDouble() - 0.5) * 0.2);
+
+            final double exactMeters = exactClient.getDistances(
+                    origin, ImmutableSet.of(destination)).get(destination)
+                    .getDistanceMeters();
+            final Map<PointLocation, WalkingCosts> fastCosts
+                    = fastClient.getDistances(
+                            origin, ImmutableSet.of(destination));
+            final WalkingCosts fast = fastCosts.get(destination);
+
+            Assert.assertTrue(fast.getDistanceMeters() <= exactMeters);
+            Assert.assertTrue(fast.getDistanceMeters()
+                                      >= exactMeters * (1 - MAX_UNDERESTIMATE));
+            final double exactSeconds
+                    = exactMeters / WALKING_METERS_PER_SECOND;
+            Assert.assertTrue(fast.getDuration().getSeconds()
+                                      <= exactSeconds);
+        }
+    }
+
+    @Test
+    public void testFastEstimatesBoundMeridianAtEquator() throws Exception {
+        final DistanceClient exactClient = new EstimatingDistanceClient(
+                WALKING_METERS_PER_SECOND, false);
+        final DistanceClient fastClient = new EstimatingDistanceClient(
+                WALKING_METERS_PER_SECOND, true);
+        final PointLocation origin = makePoint(0, 0);
+        final PointLocation destination = makePoint(0.05, 0);
+
+        final double exactMeters = exactClient.getDistances(
+                origin, ImmutableSet.of(destination)).get(destination)
+                .getDistanceMeters();
+        final double fastMeters = fastClient.getDistances(
+                origin, ImmutableSet.of(destination)).get(destination)
+                .getDistanceMeters();
+        Assert.assertTrue(fastMeters <= exactMeters);
+    }
+
+    private static PointLocation makePoint(final double latitude,
+                                           final double longitude) {
+        return new Landmark(new GeoPoint(
+                new GeoLongitude(String.valueOf(longitude), AngleUnit.DEGREES),
+                new GeoLatitude(String.valueOf(latitude), AngleUnit.DEGREES)));
+    }
+
+}
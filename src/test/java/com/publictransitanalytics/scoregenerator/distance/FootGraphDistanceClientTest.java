@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.environment.FootGraph;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class FootGraphDistanceClientTest {
+
+    private static final double WALKING_METERS_PER_SECOND = 1.0;
+    /* Length of a thousandth of a degree on the mean earth sphere. */
+    private static final double STEP_METERS = 111.195;
+
+    /* A U shaped path whose ends are a single step apart. */
+    private static final double[] LATITUDES = {0, 0, 0.001, 0.001};
+    private static final double[] LONGITUDES = {0, 0.001, 0.001, 0};
+
+    @Test
+    public void testFollowsPathInsteadOfStraightLine() throws Exception {
+        final DistanceClient client = new FootGraphDistanceClient(
+                makeGraph(), WALKING_METERS_PER_SECOND,
+                Duration.ofMinutes(10));
+        final PointLocation origin = makePoint(0, 0);
+        final PointLocation turn = makePoint(0, 0.001);
+        final PointLocation end = makePoint(0.001, 0);
+
+        final Map<PointLocation, WalkingCosts> costs = client.getDistances(
+                origin, ImmutableSet.of(turn, end));
+
+        Assert.assertEquals(STEP_METERS, costs.get(turn).getDistanceMeters(),
+                            0.1);
+        Assert.assertEquals(3 * STEP_METERS,
+                            costs.get(end).getDistanceMeters(), 0.1);
+        Assert.assertEquals(Duration.ofSeconds(334),
+                            costs.get(end).getDuration());
+    }
+
+    @Test
+    public void testOmitsDestinationsBeyondBudget() throws Exception {
+        final DistanceClient client = new FootGraphDistanceClient(
+                makeGraph(), WALKING_METERS_PER_SECOND,
+                Duration.ofSeconds(250));
+        final PointLocation origin = makePoint(0, 0);
+        final PointLocation corner = makePoint(0.001, 0.001);
+        final PointLocation end = makePoint(0.001, 0);
+        final PointLocation offGraph = makePoint(0.1, 0.1);
+
+        final Map<PointLocation, WalkingCosts> costs = client.getDistances(
+                origin, ImmutableSet.of(corner, end, offGraph));
+
+        Assert.assertEquals(ImmutableSet.of(corner), costs.keySet());
+        Assert.assertEquals(2 * STEP_METERS,
+                            costs.get(corner).getDistanceMeters(), 0.1);
+    }
+
+    private static FootGraph makeGraph() {
+        final double[] latitudes = new double[LATITUDES.length];
+        final double[] longitudes = new double[LONGITUDES.length];
+        for (int i = 0; i < LATITUDES.length; i++) {
+            latitudes[i] = Math.toRadians(LATITUDES[i]);
+            longitudes[i] = Math.toRadians(LONGITUDES[i]);
+        }
+        return new FootGraph(latitudes, longitudes, new int[]{0, 1, 2},
+                             new int[]{1, 2, 3});
+    }
+
+    private static PointLocation makePoint(final double latitude,
+                                           final double longitude) {
+        return new Landmark(new GeoPoint(
+                new GeoLongitude(String.valueOf(longitude), AngleUnit.DEGREES),
+                new GeoLatitude(String.valueOf(latitude), AngleUnit.DEGREES)));
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.testhelpers.PreloadedDistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class MappedDistanceStoreManagerTest {
+
+    private static final Landmark ORIGIN = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.3", AngleUnit.DEGREES),
+            new GeoLatitude("47.6", AngleUnit.DEGREES)));
+
+    private static final Landmark NEAR = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.301", AngleUnit.DEGREES),
+            new GeoLatitude("47.601", AngleUnit.DEGREES)));
+
+    private static final Landmark FAR = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.31", AngleUnit.DEGREES),
+            new GeoLatitude("47.61", AngleUnit.DEGREES)));
+
+    private static final BiMap<String, PointLocation> POINT_ID_MAP
+            = ImmutableBiMap.of(ORIGIN.getIdentifier(), ORIGIN,
+                                NEAR.getIdentifier(), NEAR,
+                                FAR.getIdentifier(), FAR);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadsImportedTimesWithinDuration() throws Exception {
+        final PreloadedDistanceStoreManager source = new PreloadedDistanceStoreManager();
+        source.putAll(ORIGIN, ImmutableMap.of(
+                NEAR, new WalkingCosts(Duration.ofMinutes(2), -1),
+                FAR, new WalkingCosts(Duration.ofMinutes(9), -1)));
+        source.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+
+        final Path file = folder.getRoot().toPath().resolve("matrix.bin");
+        new WalkingTimeMatrixWriter().write(file, POINT_ID_MAP, source);
+        final DistanceStoreManager mapped = new MappedDistanceStoreManager(
+                file, POINT_ID_MAP, new PreloadedDistanceStoreManager());
+
+        Assert.assertEquals(Duration.ofMinutes(10),
+                            mapped.getMaxStored(ORIGIN));
+        Assert.assertNull(mapped.getMaxStored(NEAR));
+        Assert.assertEquals(getDurations(source.get(ORIGIN, Duration.ofMinutes(
+                5))), getDurations(mapped.get(ORIGIN, Duration.ofMinutes(5))));
+        Assert.assertEquals(getDurations(source.get(ORIGIN, Duration.ofMinutes(
+                9))), getDurations(mapped.get(ORIGIN, Duration.ofMinutes(9))));
+        Assert.assertTrue(mapped.get(NEAR, Duration.ofMinutes(9)).isEmpty());
+    }
+
+    @Test
+    public void testDelegatesBeyondMappedDuration() throws Exception {
+        final PreloadedDistanceStoreManager source = new PreloadedDistanceStoreManager();
+        source.putAll(ORIGIN, ImmutableMap.of(
+                NEAR, new WalkingCosts(Duration.ofMinutes(2), -1)));
+        source.updateMaxStored(ORIGIN, Duration.ofMinutes(5));
+
+        final Path file = folder.getRoot().toPath().resolve("matrix.bin");
+        new WalkingTimeMatrixWriter().write(file, POINT_ID_MAP, source);
+        final PreloadedDistanceStoreManager overflow = new PreloadedDistanceStoreManager();
+        final DistanceStoreManager mapped = new MappedDistanceStoreManager(
+                file, POINT_ID_MAP, overflow);
+
+        mapped.putAll(ORIGIN, ImmutableMap.of(
+                FAR, new WalkingCosts(Duration.ofMinutes(9), -1)));
+        mapped.updateMaxStored(ORIGIN, Duration.ofMinutes(10));
+
+        Assert.assertEquals(Duration.ofMinutes(10),
+                            mapped.getMaxStored(ORIGIN));
+        Assert.assertEquals(ImmutableMap.of(NEAR, Duration.ofMinutes(2)),
+                            getDurations(mapped.get(
+                                    ORIGIN, Duration.ofMinutes(5))));
+        Assert.assertEquals(ImmutableMap.of(NEAR, Duration.ofMinutes(2),
+                                            FAR, Duration.ofMinutes(9)),
+                            getDurations(mapped.get(
+                                    ORIGIN, Duration.ofMinutes(10))));
+    }
+
+    @Test
+    public void testReadsOverflowMaxOncePerMappedOrigin() throws Exception {
+        final PreloadedDistanceStoreManager source = new PreloadedDistanceStoreManager();
+        source.putAll(ORIGIN, ImmutableMap.of(
+                NEAR, new WalkingCosts(Duration.ofMinutes(2), -1)));
+        source.updateMaxStored(ORIGIN, Duration.ofMinutes(5));
+
+        final Path file = folder.getRoot().toPath().resolve("matrix.bin");
+        new WalkingTimeMatrixWriter().write(file, POINT_ID_MAP, source);
+        final AtomicInteger overflowReads = new AtomicInteger();
+        final PreloadedDistanceStoreManager overflow
+                = new PreloadedDistanceStoreManager() {
+            @Override
+            public Duration getMaxStored(final PointLocation location) {
+                overflowReads.incrementAndGet();
+                return super.getMaxStored(location);
+            }
+        };
+        overflow.updateMaxStored(ORIGIN, Duration.ofMinutes(7));
+        final DistanceStoreManager mapped = new MappedDistanceStoreManager(
+                file, POINT_ID_MAP, overflow);
+
+        Assert.assertEquals(Duration.ofMinutes(7),
+                            mapped.getMaxStored(ORIGIN));
+        Assert.assertEquals(Duration.ofMinutes(7),
+                            mapped.getMaxStored(ORIGIN));
+        Assert.assertEquals(1, overflowReads.get());
+
+        mapped.updateMaxStored(ORIGIN, Duration.ofMinutes(12));
+        Assert.assertEquals(Duration.ofMinutes(12),
+                            mapped.getMaxStored(ORIGIN));
+        Assert.assertEquals(1, overflowReads.get());
+
+        Assert.assertNull(mapped.getMaxStored(NEAR));
+        Assert.assertEquals(2, overflowReads.get());
+    }
+
+    private static Map<PointLocation, Duration> getDurations(
+            final Map<PointLocation, WalkingCosts> costs) {
+        return costs.entrySet().stream().collect(Collectors.toMap(
+                Map.Entry::getKey, entry -> entry.getValue().getDuration()));
+    }
+
+}
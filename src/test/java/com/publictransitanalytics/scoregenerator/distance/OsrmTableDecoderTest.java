@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import java.io.StringReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class OsrmTableDecoderTest {
+
+    @Test
+    public void testReadsDurationsAndUnroutedDestinations() throws Exception {
+        final String response = "{\"durations\":[[12.5,null,0]],"
+                + "\"destinations\":[{\"location\":[-122.3,47.6]}],"
+                + "\"code\":\"Ok\"}";
+        final double[] durations = OsrmTableDecoder.readDurations(
+                new StringReader(response), 3);
+
+        Assert.assertEquals(12.5, durations[0], 0);
+        Assert.assertTrue(Double.isNaN(durations[1]));
+        Assert.assertEquals(0, durations[2], 0);
+    }
+
+    @Test(expected = DistanceClientException.class)
+    public void testFailedStatusThrows() throws Exception {
+        OsrmTableDecoder.readDurations(new StringReader(
+                "{\"code\":\"NoTable\",\"message\":\"no table\"}"), 1);
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class PipelinedOsrmDistanceClientTest {
+
+    private static final double ORIGIN_LONGITUDE = -122.3;
+    private static final double STEP_DEGREES = 0.001;
+    private static final int SECONDS_PER_STEP = 60;
+
+    private static final Landmark ORIGIN = makeLandmark(0);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile boolean failing;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/table/v1/foot/", this::handleTable);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testMergesConcurrentChunks() throws Exception {
+        final ImmutableMap.Builder<PointLocation, Integer> builder
+                = ImmutableMap.builder();
+        for (int i = 1; i <= 25; i++) {
+            builder.put(makeLandmark(i), i);
+        }
+        final Map<PointLocation, Integer> steps = builder.build();
+        final Set<PointLocation> destinations = steps.keySet();
+
+        final DistanceClient client = makeClient(2, 10);
+        final Map<PointLocation, WalkingCosts> costs
+                = client.getDistances(ORIGIN, destinations);
+
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(2, maxInFlight.get());
+        Assert.assertEquals(destinations, costs.keySet());
+        for (final Map.Entry<PointLocation, Integer> entry
+                     : steps.entrySet()) {
+            Assert.assertEquals(
+                    Duration.ofSeconds(entry.getValue() * SECONDS_PER_STEP),
+                    costs.get(entry.getKey()).getDuration());
+        }
+    }
+
+    @Test(expected = DistanceClientException.class)
+    public void testFailedChunkFailsRequest() throws Exception {
+        failing = true;
+        final DistanceClient client = makeClient(2, 10);
+        client.getDistances(ORIGIN, ImmutableSet.of(makeLandmark(1)));
+    }
+
+    private DistanceClient makeClient(final int maxInFlight,
+                                      final int maxConsidered) {
+        return new PipelinedOsrmDistanceClient(
+                PipelinedOsrmDistanceClient.buildHttpClient(maxInFlight),
+                "127.0.0.1", server.getAddress().getPort(),
+                (origin, destinations) -> new ForwardPointSequencer(
+                        origin, destinations), maxConsidered);
+    }
+
+    private void handleTable(final HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        final int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            Thread.sleep(200);
+            final String path = exchange.getRequestURI().getPath();
+            final String[] coordinates = path.substring(
+                    path.lastIndexOf('/') + 1).split(";");
+
+            final String body;
+            if (failing) {
+                body = "{\"code\":\"InvalidQuery\"}";
+            } else {
+                /* The origin is last, as ForwardPointSequencer orders it. */
+                final StringJoiner durations = new StringJoiner(",");
+                for (int i = 0; i < coordinates.length - 1; i++) {
+                    final double longitude = Double.valueOf(
+                            coordinates[i].split(",")[0]);
+                    final long steps = Math.round(
+                            (ORIGIN_LONGITUDE - longitude) / STEP_DEGREES);
+                    durations.add(String.valueOf(steps * SECONDS_PER_STEP));
+                }
+                body = String.format("{\"code\":\"Ok\",\"durations\":[[%s]]}",
+                                     durations);
+            }
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static Landmark makeLandmark(final int steps) {
+        return new Landmark(new GeoPoint(
+                new GeoLongitude(String.format(
+                        "%.3f", ORIGIN_LONGITUDE - steps * STEP_DEGREES),
+                                 AngleUnit.DEGREES),
+                new GeoLatitude("47.6", AngleUnit.DEGREES)));
+    }
+
+}
@@ -32,6 +32,7 @@ import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
 import com.publictransitanalytics.scoregenerator.location.Landmark;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.testhelpers.PreloadedDistanceClient;
+import com.publictransitanalytics.scoregenerator.testhelpers.PreloadedDistanceStoreManager;
 import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
@@ -41,7 +42,18 @@ import java.time.Month;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import junit.framework.Assert;
 import org.junit.Test;
 
@@ -86,7 +98,8 @@ public class RangedCachingReachabilityClientTest {
         final TimeTracker tracker = new ForwardTimeTracker();
 
         final ReachabilityClient client = new RangedCachingReachabilityClient(
-                storeManager, POINT_ID_MAP.values(), tracker, null, null);
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, null, null);
         final Map<PointLocation, WalkingCosts> result = client.getWalkingCosts(
                 LOCATION_1, LocalDateTime.of(1987, Month.MARCH, 8, 4, 39),
                 LocalDateTime.of(1987, Month.MARCH, 8, 4, 40));
@@ -120,8 +133,8 @@ public class RangedCachingReachabilityClientTest {
                                 60), -1.0)));
 
         final ReachabilityClient client = new RangedCachingReachabilityClient(
-                storeManager, POINT_ID_MAP.values(), tracker, distanceClient,
-                distanceEstimator);
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, distanceClient, distanceEstimator);
         final Map<PointLocation, WalkingCosts> result = client.getWalkingCosts(
                 LOCATION_1, LocalDateTime.of(1987, Month.MARCH, 8, 4, 39),
                 LocalDateTime.of(1987, Month.MARCH, 8, 4, 40));
@@ -169,8 +182,8 @@ public class RangedCachingReachabilityClientTest {
                                 60), -1.0)));
 
         final ReachabilityClient client = new RangedCachingReachabilityClient(
-                storeManager, POINT_ID_MAP.values(), tracker, distanceClient,
-                distanceEstimator);
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, distanceClient, distanceEstimator);
         final Map<PointLocation, WalkingCosts> result = client.getWalkingCosts(
                 LOCATION_1, LocalDateTime.of(1987, Month.MARCH, 8, 4, 39),
                 LocalDateTime.of(1987, Month.MARCH, 8, 4, 40));
@@ -219,8 +232,8 @@ public class RangedCachingReachabilityClientTest {
                                 75), -1.0)));
 
         final ReachabilityClient client = new RangedCachingReachabilityClient(
-                storeManager, POINT_ID_MAP.values(), tracker, distanceClient,
-                distanceEstimator);
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, distanceClient, distanceEstimator);
         final Map<PointLocation, WalkingCosts> result = client.getWalkingCosts(
                 LOCATION_1, LocalDateTime.of(1987, Month.MARCH, 8, 4, 39),
                 LocalDateTime.of(1987, Month.MARCH, 8, 4, 40));
@@ -262,8 +275,8 @@ public class RangedCachingReachabilityClientTest {
                                 75), -1.0)));
 
         final ReachabilityClient client = new RangedCachingReachabilityClient(
-                storeManager, POINT_ID_MAP.values(), tracker, null, 
-                distanceEstimator);
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, null, distanceEstimator);
         final Map<PointLocation, WalkingCosts> result = client.getWalkingCosts(
                 LOCATION_1, LocalDateTime.of(1987, Month.MARCH, 8, 4, 39),
                 LocalDateTime.of(1987, Month.MARCH, 8, 4, 40));
@@ -277,4 +290,124 @@ public class RangedCachingReachabilityClientTest {
         Assert.assertTrue(timeStoreSet.contains(location1TimeKey));
     }
 
+    /* The second query starts while the first fetch is blocked in the
+     * distance client, and the store never shows it a stored maximum. It runs
+     * on a one worker pool with the release forked behind it, so the release
+     * only runs once the second query blocks: either waiting for the first
+     * fetch, or in a fetch of its own that reaches the distance client. */
+    @Test
+    public void testSharesConcurrentFetches() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> second = new AtomicReference<>();
+        final DistanceStoreManager storeManager
+                = new PreloadedDistanceStoreManager() {
+
+            @Override
+            public Duration getMaxStored(final PointLocation location) {
+                if (Thread.currentThread() == second.get()) {
+                    return null;
+                }
+                return super.getMaxStored(location);
+            }
+        };
+        final TimeTracker tracker = new ForwardTimeTracker();
+        final Map<PointLocation, WalkingCosts> costs = ImmutableMap.of(
+                LOCATION_2, new WalkingCosts(Duration.ofSeconds(40), -1.0),
+                LOCATION_3, new WalkingCosts(Duration.ofSeconds(55), -1.0));
+
+        final AtomicInteger fetches = new AtomicInteger();
+        final DistanceClient distanceClient = new DistanceClient() {
+
+            @Override
+            public Map<PointLocation, WalkingCosts> getDistances(
+                    final PointLocation point,
+                    final Set<PointLocation> consideredPoints)
+                    throws InterruptedException {
+                fetches.incrementAndGet();
+                fetching.countDown();
+                release.await();
+                return costs;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final ReachabilityClient client = new RangedCachingReachabilityClient(
+                storeManager, new AllCandidateSelector(POINT_ID_MAP.values()),
+                tracker, distanceClient, new PreloadedDistanceClient(costs));
+        final LocalDateTime start = LocalDateTime.of(1987, Month.MARCH, 8, 4,
+                                                     39);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final Future<Map<PointLocation, WalkingCosts>> longer
+                    = executor.submit(() -> client.getWalkingCosts(
+                            LOCATION_1, start, start.plusSeconds(60)));
+            fetching.await();
+            final Future<Map<PointLocation, WalkingCosts>> shorter
+                    = pool.submit(() -> {
+                        second.set(Thread.currentThread());
+                        ForkJoinTask.adapt(release::countDown).fork();
+                        return client.getWalkingCosts(
+                                LOCATION_1, start, start.plusSeconds(50));
+                    });
+
+            Assert.assertEquals(costs, longer.get());
+            Assert.assertEquals(ImmutableMap.of(LOCATION_2, costs.get(
+                    LOCATION_2)), shorter.get());
+        } finally {
+            executor.shutdownNow();
+            pool.shutdown();
+        }
+        Assert.assertEquals(Duration.ofSeconds(60),
+                            storeManager.getMaxStored(LOCATION_1));
+        Assert.assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testFetchLetsPoolRunOtherTasks() throws Exception {
+        final Map<PointLocation, WalkingCosts> costs = ImmutableMap.of(
+                LOCATION_2, new WalkingCosts(Duration.ofSeconds(40), -1.0));
+        final CountDownLatch otherTaskRan = new CountDownLatch(1);
+        final AtomicBoolean sawOtherTask = new AtomicBoolean();
+        final DistanceClient distanceClient = new DistanceClient() {
+
+            @Override
+            public Map<PointLocation, WalkingCosts> getDistances(
+                    final PointLocation point,
+                    final Set<PointLocation> consideredPoints)
+                    throws InterruptedException {
+                sawOtherTask.set(otherTaskRan.await(10, TimeUnit.SECONDS));
+                return costs;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final ReachabilityClient client = new RangedCachingReachabilityClient(
+                new PreloadedDistanceStoreManager(),
+                new AllCandidateSelector(POINT_ID_MAP.values()),
+                new ForwardTimeTracker(), distanceClient,
+                new PreloadedDistanceClient(costs));
+        final LocalDateTime start = LocalDateTime.of(1987, Month.MARCH, 8, 4,
+                                                     39);
+
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final Future<Map<PointLocation, WalkingCosts>> fetch
+                    = pool.submit(() -> client.getWalkingCosts(
+                            LOCATION_1, start, start.plusSeconds(60)));
+            pool.submit(otherTaskRan::countDown);
+
+            Assert.assertEquals(costs, fetch.get());
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertTrue(sawOtherTask.get());
+    }
+
 }
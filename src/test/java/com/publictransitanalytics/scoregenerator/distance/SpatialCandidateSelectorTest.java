@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import java.time.Duration;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class SpatialCandidateSelectorTest {
+
+    private static final double WALKING_METERS_PER_SECOND = 1.3;
+
+    private static final Landmark ORIGIN = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.3", AngleUnit.DEGREES),
+            new GeoLatitude("47.6", AngleUnit.DEGREES)));
+
+    private static final Landmark NEARBY = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.305", AngleUnit.DEGREES),
+            new GeoLatitude("47.602", AngleUnit.DEGREES)));
+
+    private static final Landmark DISTANT = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.1", AngleUnit.DEGREES),
+            new GeoLatitude("47.7", AngleUnit.DEGREES)));
+
+    @Test
+    public void testExcludesDistantPoints() {
+        final CandidateSelector selector = new SpatialCandidateSelector(
+                ImmutableSet.of(ORIGIN, NEARBY, DISTANT),
+                WALKING_METERS_PER_SECOND);
+
+        final Set<PointLocation> candidates = selector.getCandidates(
+                ORIGIN, Duration.ofMinutes(10));
+        Assert.assertEquals(ImmutableSet.of(ORIGIN, NEARBY), candidates);
+    }
+
+    @Test
+    public void testIncludesEveryWalkablePoint() {
+        final Random random = new Random(0);
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add(new Landmark(new GeoPoint(
+                    new GeoLongitude(String.valueOf(
+                            -122.5 + random.nextDouble() * 0.4),
+                                     AngleUnit.DEGREES),
+                    new GeoLatitude(String.valueOf(
+                            47.4 + random.nextDouble() * 0.4),
+                                    AngleUnit.DEGREES))));
+        }
+        final Set<PointLocation> points = builder.build();
+        final CandidateSelector selector = new SpatialCandidateSelector(
+                points, WALKING_METERS_PER_SECOND);
+        final Duration duration = Duration.ofMinutes(20);
+
+        int origins = 0;
+        for (final PointLocation origin : points) {
+            if (origins++ == 50) {
+                break;
+            }
+            final Set<PointLocation> candidates
+                    = selector.getCandidates(origin, duration);
+            Assert.assertTrue(candidates.size() < points.size());
+            for (final PointLocation point : points) {
+                final double seconds = Math.floor(
+                        origin.getLocation().getDistanceMeters(
+                                point.getLocation())
+                        / WALKING_METERS_PER_SECOND);
+                if (seconds <= duration.getSeconds()) {
+                    Assert.assertTrue(candidates.contains(point));
+                }
+            }
+        }
+    }
+
+}
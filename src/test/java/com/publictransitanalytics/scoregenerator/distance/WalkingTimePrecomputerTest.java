@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.distance;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.testhelpers.PreloadedDistanceStoreManager;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class WalkingTimePrecomputerTest {
+
+    private static final Duration DURATION = Duration.ofMinutes(20);
+
+    private static final Landmark FIRST = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.3", AngleUnit.DEGREES),
+            new GeoLatitude("47.6", AngleUnit.DEGREES)));
+
+    private static final Landmark SECOND = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.301", AngleUnit.DEGREES),
+            new GeoLatitude("47.601", AngleUnit.DEGREES)));
+
+    private static final Landmark THIRD = new Landmark(new GeoPoint(
+            new GeoLongitude("-122.302", AngleUnit.DEGREES),
+            new GeoLatitude("47.602", AngleUnit.DEGREES)));
+
+    @Test
+    public void testResumesUnfinishedOrigins() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        store.updateMaxStored(FIRST, DURATION);
+        store.updateMaxStored(SECOND, Duration.ofMinutes(10));
+
+        final Set<PointLocation> requested = ConcurrentHashMap.newKeySet();
+        final ReachabilityClient client
+                = (location, currentTime, cutoffTime) -> {
+                    requested.add(location);
+                    store.updateMaxStored(location, Duration.between(
+                            currentTime, cutoffTime));
+                    return ImmutableMap.of();
+                };
+
+        final int failures = new WalkingTimePrecomputer(store, client, 2)
+                .precompute(ImmutableSet.of(FIRST, SECOND, THIRD), DURATION);
+
+        Assert.assertEquals(0, failures);
+        Assert.assertEquals(ImmutableSet.of(SECOND, THIRD), requested);
+        Assert.assertEquals(DURATION, store.getMaxStored(THIRD));
+    }
+
+    @Test
+    public void testCountsFailedOrigins() throws Exception {
+        final PreloadedDistanceStoreManager store
+                = new PreloadedDistanceStoreManager();
+        final ReachabilityClient client
+                = (location, currentTime, cutoffTime) -> {
+                    if (location.equals(SECOND)) {
+                        throw new DistanceClientException("unreachable");
+                    }
+                    store.updateMaxStored(location, Duration.between(
+                            currentTime, cutoffTime));
+                    return ImmutableMap.of();
+                };
+
+        final int failures = new WalkingTimePrecomputer(store, client, 2)
+                .precompute(ImmutableSet.of(FIRST, SECOND, THIRD), DURATION);
+
+        Assert.assertEquals(1, failures);
+        Assert.assertNull(store.getMaxStored(SECOND));
+    }
+
+}
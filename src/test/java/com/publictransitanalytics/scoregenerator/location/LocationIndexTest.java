@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.location;
+
+import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class LocationIndexTest {
+
+    private static final GeoPoint POINT = new GeoPoint(
+            new GeoLongitude("-122.32370", AngleUnit.DEGREES),
+            new GeoLatitude("47.654656", AngleUnit.DEGREES));
+
+    private static final TransitStop STOP = new TransitStop(
+            "-1", "Somewhere", POINT);
+
+    private static final Landmark LANDMARK = new Landmark(POINT);
+
+    @Test
+    public void testAssignsDenseIds() {
+        final LocationIndex index = new LocationIndex(
+                ImmutableList.of(STOP, LANDMARK));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(0, index.getId(STOP));
+        Assert.assertEquals(1, index.getId(LANDMARK));
+        Assert.assertSame(LANDMARK, index.getLocation(1));
+    }
+
+    @Test
+    public void testDuplicatesShareId() {
+        final LocationIndex index = new LocationIndex(
+                ImmutableList.of(STOP, LANDMARK, STOP));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(0, index.getId(STOP));
+    }
+
+    @Test(expected = ScoreGeneratorFatalException.class)
+    public void testRejectsUnindexedLocation() {
+        final LocationIndex index = new LocationIndex(
+                ImmutableList.of(STOP));
+        index.getId(LANDMARK);
+    }
+
+}
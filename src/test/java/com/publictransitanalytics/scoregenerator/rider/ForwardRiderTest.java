@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.rider;
 
 import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
 import com.publictransitanalytics.scoregenerator.schedule.TripId;
@@ -74,7 +75,8 @@ public class ForwardRiderTest {
         final LocalDateTime cutoffTime = LocalDateTime.of(2017, Month.FEBRUARY,
                                                           12, 10, 45, 0);
         final ForwardRider rider = new ForwardRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(!rider.canContinueTrip());
     }
 
@@ -90,7 +92,8 @@ public class ForwardRiderTest {
         final LocalDateTime cutoffTime
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 35, 0);
         final ForwardRider rider = new ForwardRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(!rider.canContinueTrip());
     }
 
@@ -108,7 +111,8 @@ public class ForwardRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 45, 0);
 
         final ForwardRider rider = new ForwardRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(rider.canContinueTrip());
     }
 
@@ -125,7 +129,8 @@ public class ForwardRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 40, 0);
 
         final ForwardRider rider = new ForwardRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(rider.canContinueTrip());
     }
 
@@ -143,12 +148,35 @@ public class ForwardRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 45, 0);
 
         final ForwardRider rider = new ForwardRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
 
-        final RiderStatus status = rider.continueTrip();
-        Assert.assertEquals(LATER_STOP_TIME, status.getTime());
-        Assert.assertEquals(LATER_STOP_ON_TRIP, status.getStop());
+        rider.continueTrip();
+        Assert.assertEquals(EpochSeconds.of(LATER_STOP_TIME), rider.getTime());
+        Assert.assertEquals(LATER_STOP_ON_TRIP, rider.getStop());
 
     }
 
+    @Test
+    public void testProgressesFromBoarding() {
+        final Trip trip = new Trip(
+                new TripId(TRIP_BASE_ID, TRIP_SERVICE_DAY), ROUTE_NAME,
+                ROUTE_NUMBER, ImmutableList.of(
+                        new VehicleEvent(STOP_ON_TRIP, STOP_TIME,
+                                         STOP_TIME),
+                        new VehicleEvent(LATER_STOP_ON_TRIP, LATER_STOP_TIME,
+                                         LATER_STOP_TIME)));
+
+        final LocalDateTime cutoffTime
+                = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 45, 0);
+
+        final ForwardRider rider = new ForwardRider(
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
+
+        Assert.assertEquals(0, rider.getProgress());
+        rider.continueTrip();
+        Assert.assertEquals(1, rider.getProgress());
+    }
+
 }
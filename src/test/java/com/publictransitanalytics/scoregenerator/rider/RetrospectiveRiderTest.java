@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.rider;
 
 import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
@@ -77,7 +78,8 @@ public class RetrospectiveRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 15, 0);
 
         final RetrospectiveRider rider = new RetrospectiveRider(
-                new EntryPoint(trip, STOP_TIME, 0), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 0),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(!rider.canContinueTrip());
     }
 
@@ -93,7 +95,8 @@ public class RetrospectiveRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 15, 0);
 
         final RetrospectiveRider rider = new RetrospectiveRider(
-                new EntryPoint(trip, STOP_TIME, 1), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 1),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(!rider.canContinueTrip());
     }
 
@@ -109,7 +112,8 @@ public class RetrospectiveRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 0, 0);
 
         final RetrospectiveRider rider = new RetrospectiveRider(
-                new EntryPoint(trip, STOP_TIME, 1), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 1),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(rider.canContinueTrip());
     }
 
@@ -125,7 +129,8 @@ public class RetrospectiveRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 5, 0);
 
         final RetrospectiveRider rider = new RetrospectiveRider(
-                new EntryPoint(trip, STOP_TIME, 1), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 1),
+                EpochSeconds.of(cutoffTime));
         Assert.assertTrue(rider.canContinueTrip());
     }
 
@@ -141,12 +146,34 @@ public class RetrospectiveRiderTest {
                 = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 0, 0);
 
         final RetrospectiveRider rider = new RetrospectiveRider(
-                new EntryPoint(trip, STOP_TIME, 1), cutoffTime);
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 1),
+                EpochSeconds.of(cutoffTime));
 
-        final RiderStatus status = rider.continueTrip();
-        Assert.assertEquals(EARLIER_STOP_TIME, status.getTime());
-        Assert.assertEquals(EARLIER_STOP_ON_TRIP, status.getStop());
+        rider.continueTrip();
+        Assert.assertEquals(EpochSeconds.of(EARLIER_STOP_TIME),
+                            rider.getTime());
+        Assert.assertEquals(EARLIER_STOP_ON_TRIP, rider.getStop());
 
     }
 
+    @Test
+    public void testProgressesFromBoarding() {
+        final Trip trip = new Trip(
+                TRIP_ID, ROUTE_NAME, ROUTE_NUMBER, ImmutableList.of(
+                        new VehicleEvent(EARLIER_STOP_ON_TRIP,
+                                         EARLIER_STOP_TIME, EARLIER_STOP_TIME),
+                        new VehicleEvent(STOP_ON_TRIP, STOP_TIME, STOP_TIME)));
+
+        final LocalDateTime cutoffTime
+                = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 0, 0);
+
+        final RetrospectiveRider rider = new RetrospectiveRider(
+                new EntryPoint(trip, EpochSeconds.of(STOP_TIME), 1),
+                EpochSeconds.of(cutoffTime));
+
+        Assert.assertEquals(0, rider.getProgress());
+        rider.continueTrip();
+        Assert.assertEquals(1, rider.getProgress());
+    }
+
 }
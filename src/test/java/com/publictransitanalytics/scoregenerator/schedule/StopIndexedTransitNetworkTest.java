@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class StopIndexedTransitNetworkTest {
+
+    private static final GeoPoint STOP_POINT = new GeoPoint(
+            new GeoLongitude("-122.32539", AngleUnit.DEGREES),
+            new GeoLatitude("47.63411", AngleUnit.DEGREES));
+
+    private static final TransitStop STOP = new TransitStop(
+            "-1", "Somewhere", STOP_POINT);
+    private static final TransitStop OTHER_STOP = new TransitStop(
+            "-2", "Elsewhere", STOP_POINT);
+    private static final TransitStop UNSERVED_STOP = new TransitStop(
+            "-3", "Nowhere", STOP_POINT);
+
+    private static final LocalDateTime EARLY_TIME
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 0, 0);
+    private static final LocalDateTime MIDDLE_TIME
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 10, 0);
+    private static final LocalDateTime LATE_TIME
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 10, 20, 0);
+
+    private static final LocalDate SERVICE_DAY
+            = LocalDate.of(2017, Month.FEBRUARY, 12);
+
+    private static final Trip EARLY_TRIP = new Trip(
+            new TripId("trip1", SERVICE_DAY), "Somewhere via Elsewhere", "-1",
+            ImmutableList.of(
+                    new VehicleEvent(STOP, EARLY_TIME, EARLY_TIME),
+                    new VehicleEvent(OTHER_STOP, MIDDLE_TIME, MIDDLE_TIME)));
+    private static final Trip LATE_TRIP = new Trip(
+            new TripId("trip2", SERVICE_DAY), "Somewhere via Elsewhere", "-1",
+            ImmutableList.of(
+                    new VehicleEvent(STOP, LATE_TIME, LATE_TIME)));
+
+    private static final TransitNetwork NETWORK
+            = new StopIndexedTransitNetwork(
+                    ImmutableSet.of(LATE_TRIP, EARLY_TRIP), false);
+
+    @Test
+    public void testWindowIsInclusive() {
+        final Set<EntryPoint> entryPoints = NETWORK.getEntryPoints(
+                STOP, EpochSeconds.of(EARLY_TIME), EpochSeconds.of(LATE_TIME));
+        Assert.assertEquals(
+                ImmutableSet.of(
+                        new EntryPoint(EARLY_TRIP, EpochSeconds.of(EARLY_TIME),
+                                       0),
+                        new EntryPoint(LATE_TRIP, EpochSeconds.of(LATE_TIME),
+                                       0)),
+                entryPoints);
+    }
+
+    @Test
+    public void testWindowExcludesOutsideTimes() {
+        final Set<EntryPoint> entryPoints = NETWORK.getEntryPoints(
+                STOP, EpochSeconds.of(MIDDLE_TIME),
+                EpochSeconds.of(MIDDLE_TIME.plusMinutes(5)));
+        Assert.assertTrue(entryPoints.isEmpty());
+    }
+
+    @Test
+    public void testKeepsSequence() {
+        final Set<EntryPoint> entryPoints = NETWORK.getEntryPoints(
+                OTHER_STOP, EpochSeconds.of(EARLY_TIME),
+                EpochSeconds.of(LATE_TIME));
+        Assert.assertEquals(
+                ImmutableSet.of(new EntryPoint(
+                        EARLY_TRIP, EpochSeconds.of(MIDDLE_TIME), 1)),
+                entryPoints);
+    }
+
+    @Test
+    public void testUnservedStopHasNoEntryPoints() {
+        Assert.assertTrue(NETWORK.getEntryPoints(UNSERVED_STOP).isEmpty());
+        Assert.assertTrue(NETWORK.getEntryPoints(
+                UNSERVED_STOP, EpochSeconds.of(EARLY_TIME),
+                EpochSeconds.of(LATE_TIME)).isEmpty());
+    }
+
+    @Test
+    public void testGetsAllEntryPoints() {
+        Assert.assertEquals(2, NETWORK.getEntryPoints(STOP).size());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class TripPatternIndexTest {
+
+    private static final GeoPoint STOP_POINT = new GeoPoint(
+            new GeoLongitude("-122.32539", AngleUnit.DEGREES),
+            new GeoLatitude("47.63411", AngleUnit.DEGREES));
+
+    private static final TransitStop FIRST_STOP = new TransitStop(
+            "-1", "Somewhere", STOP_POINT);
+    private static final TransitStop SECOND_STOP = new TransitStop(
+            "-2", "Elsewhere", STOP_POINT);
+    private static final TransitStop UNSERVED_STOP = new TransitStop(
+            "-3", "Nowhere", STOP_POINT);
+
+    private static final LocationIndex INDEX = new LocationIndex(
+            ImmutableList.of(FIRST_STOP, SECOND_STOP, UNSERVED_STOP));
+
+    private static final LocalDate SERVICE_DAY
+            = LocalDate.of(2017, Month.FEBRUARY, 12);
+
+    private static final Trip EARLY_TRIP = makeTrip("early", 10, 0, 10, 10);
+    private static final Trip LATE_TRIP = makeTrip("late", 10, 5, 10, 20);
+    private static final Trip EXPRESS_TRIP
+            = makeTrip("express", 10, 7, 10, 12);
+
+    private static Trip makeTrip(final String id, final int firstHour,
+                                 final int firstMinute, final int secondHour,
+                                 final int secondMinute) {
+        final LocalDateTime firstTime = time(firstHour, firstMinute);
+        final LocalDateTime secondTime = time(secondHour, secondMinute);
+        return new Trip(new TripId(id, SERVICE_DAY), "Elsewhere", "-1",
+                        ImmutableList.of(
+                                new VehicleEvent(FIRST_STOP, firstTime,
+                                                 firstTime),
+                                new VehicleEvent(SECOND_STOP, secondTime,
+                                                 secondTime)));
+    }
+
+    private static LocalDateTime time(final int hour, final int minute) {
+        return LocalDateTime.of(2017, Month.FEBRUARY, 12, hour, minute, 0);
+    }
+
+    @Test
+    public void testSplitsOvertakingTrips() {
+        final TripPatternIndex patterns = new TripPatternIndex(
+                ImmutableSet.of(EARLY_TRIP, LATE_TRIP, EXPRESS_TRIP), false,
+                INDEX);
+
+        Assert.assertEquals(2, patterns.size());
+        Assert.assertEquals(
+                2, patterns.getPatternStops(INDEX.getId(FIRST_STOP)).size());
+    }
+
+    @Test
+    public void testDoesNotServeUnusedStop() {
+        final TripPatternIndex patterns = new TripPatternIndex(
+                ImmutableSet.of(EARLY_TRIP, LATE_TRIP), false, INDEX);
+
+        Assert.assertTrue(patterns.isServed(INDEX.getId(SECOND_STOP)));
+        Assert.assertFalse(patterns.isServed(INDEX.getId(UNSERVED_STOP)));
+    }
+
+    @Test
+    public void testFindsEarliestForwardTrip() {
+        final TripPatternIndex patterns = new TripPatternIndex(
+                ImmutableSet.of(EARLY_TRIP, LATE_TRIP), false, INDEX);
+        final TripPattern pattern = patterns.getPattern(0);
+        final ForwardTimeTracker timeTracker = new ForwardTimeTracker();
+
+        final int trip = pattern.findEarliestTrip(
+                0, EpochSeconds.of(time(10, 2)),
+                EpochSeconds.of(time(11, 0)), timeTracker);
+        Assert.assertEquals(LATE_TRIP, pattern.getTrip(trip));
+        Assert.assertEquals(-1, pattern.findEarliestTrip(
+                0, EpochSeconds.of(time(10, 6)),
+                EpochSeconds.of(time(11, 0)), timeTracker));
+        Assert.assertEquals(-1, pattern.findEarliestTrip(
+                0, EpochSeconds.of(time(10, 2)),
+                EpochSeconds.of(time(10, 4)), timeTracker));
+    }
+
+    @Test
+    public void testFindsLatestBackwardTrip() {
+        final TripPatternIndex patterns = new TripPatternIndex(
+                ImmutableSet.of(EARLY_TRIP, LATE_TRIP), true, INDEX);
+        final TripPattern pattern = patterns.getPattern(0);
+        final BackwardTimeTracker timeTracker = new BackwardTimeTracker();
+
+        Assert.assertEquals(SECOND_STOP, pattern.getStop(0));
+        final int trip = pattern.findEarliestTrip(
+                0, EpochSeconds.of(time(10, 15)),
+                EpochSeconds.of(time(9, 0)), timeTracker);
+        Assert.assertEquals(EARLY_TRIP, pattern.getTrip(trip));
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.schedule;
+
+import com.google.common.collect.ImmutableList;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class TripTest {
+
+    private static final GeoPoint STOP_POINT = new GeoPoint(
+            new GeoLongitude("-122.32539", AngleUnit.DEGREES),
+            new GeoLatitude("47.63411", AngleUnit.DEGREES));
+
+    private static final TransitStop FIRST_STOP = new TransitStop(
+            "-1", "Somewhere", STOP_POINT);
+    private static final TransitStop SECOND_STOP = new TransitStop(
+            "-2", "Elsewhere", STOP_POINT);
+
+    private static final LocalDateTime FIRST_ARRIVAL
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 23, 50, 0);
+    private static final LocalDateTime FIRST_DEPARTURE
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 23, 51, 0);
+    private static final LocalDateTime SECOND_ARRIVAL
+            = LocalDateTime.of(2017, Month.FEBRUARY, 13, 0, 5, 0);
+
+    private static final List<VehicleEvent> SCHEDULE = ImmutableList.of(
+            new VehicleEvent(FIRST_STOP, FIRST_ARRIVAL, FIRST_DEPARTURE),
+            new VehicleEvent(SECOND_STOP, SECOND_ARRIVAL, SECOND_ARRIVAL));
+
+    private static final Trip TRIP = new Trip(
+            new TripId("trip1", LocalDate.of(2017, Month.FEBRUARY, 12)),
+            "Somewhere via Elsewhere", "-1", SCHEDULE);
+
+    @Test
+    public void testReadsColumns() {
+        Assert.assertEquals(2, TRIP.size());
+        Assert.assertEquals(SECOND_STOP, TRIP.getStop(1));
+        Assert.assertEquals(EpochSeconds.of(FIRST_DEPARTURE),
+                            TRIP.getDepartureSeconds(0));
+        Assert.assertEquals(EpochSeconds.of(SECOND_ARRIVAL),
+                            TRIP.getArrivalSeconds(1));
+    }
+
+    @Test
+    public void testMaterializesSchedule() {
+        Assert.assertEquals(SCHEDULE, TRIP.getSchedule());
+    }
+
+    @Test
+    public void testGetsInServiceTime() {
+        Assert.assertEquals(Duration.ofMinutes(15), TRIP.getInServiceTime());
+    }
+
+}
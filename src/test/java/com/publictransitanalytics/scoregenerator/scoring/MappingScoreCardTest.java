@@ -15,26 +15,33 @@
  */
 package com.publictransitanalytics.scoregenerator.scoring;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.SetMultimap;
 import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
 import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
 import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
 import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
 import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.Center;
 import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
 import com.publictransitanalytics.scoregenerator.location.LogicalCenter;
 import com.publictransitanalytics.scoregenerator.location.PointLocation;
 import com.publictransitanalytics.scoregenerator.location.Sector;
 import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
 import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
+import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingTable;
 import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.Map;
+import java.util.NavigableSet;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -53,12 +60,18 @@ public class MappingScoreCardTest {
             new GeoLongitude("-122.22443", AngleUnit.DEGREES),
             new GeoLatitude("47.734145", AngleUnit.DEGREES)));
 
+    private static final Duration SHORT_DURATION = Duration.ofMinutes(30);
+    private static final Duration LONG_DURATION = Duration.ofMinutes(60);
+    private static final NavigableSet<Duration> DURATIONS
+            = ImmutableSortedSet.of(SHORT_DURATION, LONG_DURATION);
+
     private static final SetMultimap<PointLocation, Sector> POINT_SECTOR_MAP
             = ImmutableSetMultimap.of(REACHED_POINT, REACHED_SECTOR);
 
     private static final Map<PointLocation, DynamicProgrammingRecord> FULL_STATE_MAP
             = ImmutableMap.of(REACHED_POINT, new DynamicProgrammingRecord(
-                              LocalDateTime.MIN, ModeInfo.NONE, null));
+                              EpochSeconds.of(LocalDateTime.MIN),
+                              ModeInfo.NONE, null));
 
     private static final PointLocation PHYSICAL_CENTER1 = new Landmark(
             new GeoPoint(new GeoLongitude("-122", AngleUnit.DEGREES),
@@ -77,9 +90,9 @@ public class MappingScoreCardTest {
                          new GeoLatitude("48.5", AngleUnit.DEGREES)));
 
     @Test
-    public void testScoresTask() {
+    public void testScoresTask() throws InterruptedException {
         final MappingScoreCard scoreCard = new MappingScoreCard(
-                1, POINT_SECTOR_MAP);
+                1, DURATIONS, POINT_SECTOR_MAP);
         final Center center = new Center(
                 LOGICAL_CENTER1, Collections.singleton(PHYSICAL_CENTER1));
 
@@ -92,16 +105,16 @@ public class MappingScoreCardTest {
     }
 
     @Test
-    public void testScoreEachTaskTime() {
+    public void testScoreEachTaskTime() throws InterruptedException {
         final MappingScoreCard scoreCard = new MappingScoreCard(
-                1, POINT_SECTOR_MAP);
+                1, DURATIONS, POINT_SECTOR_MAP);
         final Center center = new Center(
                 LOGICAL_CENTER1, Collections.singleton(PHYSICAL_CENTER1));
 
         final TaskIdentifier task1 = new TaskIdentifier(LocalDateTime.MIN,
                                                         center);
-        final TaskIdentifier task2 = new TaskIdentifier(LocalDateTime.MAX,
-                                                        center);
+        final TaskIdentifier task2 = new TaskIdentifier(
+                LocalDateTime.MIN.plusMinutes(1), center);
 
         scoreCard.scoreTask(task1, FULL_STATE_MAP);
         scoreCard.scoreTask(task2, FULL_STATE_MAP);
@@ -109,4 +122,68 @@ public class MappingScoreCardTest {
         Assert.assertEquals(2, scoreCard.getReachedCount(REACHED_SECTOR));
     } 
 
+    @Test
+    public void testScoresTable() throws InterruptedException {
+        final MappingScoreCard scoreCard = new MappingScoreCard(
+                1, DURATIONS, POINT_SECTOR_MAP);
+        final Center center = new Center(
+                LOGICAL_CENTER1, Collections.singleton(PHYSICAL_CENTER1));
+
+        final TaskIdentifier task = new TaskIdentifier(LocalDateTime.MIN,
+                                                       center);
+        final LocationIndex index = new LocationIndex(
+                ImmutableList.of(PHYSICAL_CENTER1, REACHED_POINT));
+        final DynamicProgrammingTable table
+                = new DynamicProgrammingTable(index);
+        table.set(index.getId(REACHED_POINT),
+                  EpochSeconds.of(LocalDateTime.MIN), ModeInfo.NONE,
+                  DynamicProgrammingTable.NO_PREDECESSOR);
+
+        scoreCard.scoreTask(task, table);
+        Assert.assertTrue(scoreCard.hasPath(REACHED_SECTOR));
+        Assert.assertEquals(1, scoreCard.getReachedCount(REACHED_SECTOR));
+    }
+
+    @Test
+    public void testBucketsByElapsedTime() throws InterruptedException {
+        final MappingScoreCard scoreCard = new MappingScoreCard(
+                1, DURATIONS, POINT_SECTOR_MAP);
+        final Center center = new Center(
+                LOGICAL_CENTER1, Collections.singleton(PHYSICAL_CENTER1));
+        final LocalDateTime time = LocalDateTime.of(2017, 1, 1, 12, 0);
+
+        final TaskIdentifier task = new TaskIdentifier(time, center);
+        scoreCard.scoreTask(task, ImmutableMap.of(
+                REACHED_POINT, new DynamicProgrammingRecord(
+                        EpochSeconds.of(time.plusMinutes(45)),
+                        ModeInfo.NONE, null)));
+
+        Assert.assertFalse(scoreCard.hasPath(REACHED_SECTOR, SHORT_DURATION));
+        Assert.assertEquals(0, scoreCard.getReachedCount(
+                REACHED_SECTOR, SHORT_DURATION));
+        Assert.assertTrue(scoreCard.hasPath(REACHED_SECTOR, LONG_DURATION));
+        Assert.assertEquals(1, scoreCard.getReachedCount(
+                REACHED_SECTOR, LONG_DURATION));
+    }
+
+    @Test
+    public void testBucketsBackwardElapsedTime() throws InterruptedException {
+        final MappingScoreCard scoreCard = new MappingScoreCard(
+                1, DURATIONS, POINT_SECTOR_MAP);
+        final Center center = new Center(
+                LOGICAL_CENTER1, Collections.singleton(PHYSICAL_CENTER1));
+        final LocalDateTime time = LocalDateTime.of(2017, 1, 1, 12, 0);
+
+        final TaskIdentifier task = new TaskIdentifier(time, center);
+        scoreCard.scoreTask(task, ImmutableMap.of(
+                REACHED_POINT, new DynamicProgrammingRecord(
+                        EpochSeconds.of(time.minusMinutes(20)),
+                        ModeInfo.NONE, null)));
+
+        Assert.assertEquals(1, scoreCard.getReachedCount(
+                REACHED_SECTOR, SHORT_DURATION));
+        Assert.assertEquals(1, scoreCard.getDurationScores(LONG_DURATION)
+                .getReachedCount(REACHED_SECTOR));
+    }
+
 }
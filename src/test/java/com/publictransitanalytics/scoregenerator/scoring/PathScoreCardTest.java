@@ -24,6 +24,7 @@ import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
 import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
 import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
 import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.location.Center;
 import com.publictransitanalytics.scoregenerator.location.Landmark;
 import com.publictransitanalytics.scoregenerator.location.LogicalCenter;
@@ -62,7 +63,8 @@ public class PathScoreCardTest {
 
     private static final Map<PointLocation, DynamicProgrammingRecord> FULL_STATE_MAP
             = ImmutableMap.of(REACHED_POINT, new DynamicProgrammingRecord(
-                              LocalDateTime.MIN, ModeInfo.NONE, null));
+                              EpochSeconds.of(LocalDateTime.MIN),
+                              ModeInfo.NONE, null));
 
     private static final PointLocation PHYSICAL_CENTER1 = new Landmark(
             new GeoPoint(new GeoLongitude("-122", AngleUnit.DEGREES),
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.scoring;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.SetMultimap;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.Landmark;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.workflow.DynamicProgrammingRecord;
+import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class RecordingScoreCardTest {
+
+    private static final PointLocation REACHED_POINT = new Landmark(
+            new GeoPoint(new GeoLongitude("-122.32370", AngleUnit.DEGREES),
+                         new GeoLatitude("47.654656", AngleUnit.DEGREES)));
+    private static final Sector REACHED_SECTOR = new Sector(new GeoBounds(
+            new GeoLongitude("-122.45970", AngleUnit.DEGREES),
+            new GeoLatitude("47.48172", AngleUnit.DEGREES),
+            new GeoLongitude("-122.22443", AngleUnit.DEGREES),
+            new GeoLatitude("47.734145", AngleUnit.DEGREES)));
+
+    private static final Duration DURATION = Duration.ofMinutes(30);
+    private static final NavigableSet<Duration> DURATIONS
+            = ImmutableSortedSet.of(DURATION);
+
+    private static final SetMultimap<PointLocation, Sector> POINT_SECTOR_MAP
+            = ImmutableSetMultimap.of(REACHED_POINT, REACHED_SECTOR);
+
+    private static final Landmark CENTER_POINT = new Landmark(
+            new GeoPoint(new GeoLongitude("-122", AngleUnit.DEGREES),
+                         new GeoLatitude("47", AngleUnit.DEGREES)));
+
+    private static final TaskIdentifier TASK = new TaskIdentifier(
+            LocalDateTime.MIN, new Center(
+                    CENTER_POINT, Collections.singleton(CENTER_POINT)));
+
+    @Test
+    public void testPassesScoresThrough() throws InterruptedException {
+        final CountScoreCard countScoreCard = new CountScoreCard(
+                1, DURATIONS, POINT_SECTOR_MAP);
+        final RecordingScoreCard scoreCard = new RecordingScoreCard(
+                countScoreCard, POINT_SECTOR_MAP);
+
+        scoreCard.scoreTask(TASK, ImmutableMap.of(
+                REACHED_POINT, new DynamicProgrammingRecord(
+                        EpochSeconds.of(LocalDateTime.MIN), ModeInfo.NONE,
+                        null)));
+        Assert.assertEquals(1, countScoreCard.getReachedCount(REACHED_SECTOR));
+        Assert.assertEquals(1, scoreCard.getReachedCount(REACHED_SECTOR));
+    }
+
+    @Test
+    public void testRecordsReachedSectors() throws InterruptedException {
+        final RecordingScoreCard scoreCard = new RecordingScoreCard(
+                new CountScoreCard(1, DURATIONS, POINT_SECTOR_MAP),
+                POINT_SECTOR_MAP);
+
+        scoreCard.scoreSectors(TASK,
+                               ImmutableMap.of(REACHED_SECTOR, DURATION));
+        final List<RecordingScoreCard.Contribution> contributions
+                = scoreCard.getContributions();
+        Assert.assertEquals(1, contributions.size());
+        Assert.assertEquals(TASK, contributions.get(0).getTask());
+        Assert.assertEquals(ImmutableMap.of(REACHED_SECTOR, DURATION),
+                            contributions.get(0).getReachedSectors());
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.testhelpers;
+
+import com.google.common.collect.ImmutableMap;
+import com.publictransitanalytics.scoregenerator.distance.DistanceStoreManager;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class PreloadedDistanceStoreManager implements DistanceStoreManager {
+
+    private final Map<PointLocation, Map<PointLocation, WalkingCosts>> costs
+            = new ConcurrentHashMap<>();
+    private final Map<PointLocation, Duration> maxStored
+            = new ConcurrentHashMap<>();
+
+    @Override
+    public Duration getMaxStored(final PointLocation location) {
+        return maxStored.get(location);
+    }
+
+    @Override
+    public void updateMaxStored(final PointLocation location,
+                                final Duration duration) {
+        maxStored.put(location, duration);
+    }
+
+    @Override
+    public Map<PointLocation, WalkingCosts> get(
+            final PointLocation location, final Duration duration) {
+        return costs.getOrDefault(location, ImmutableMap.of()).entrySet()
+                .stream().filter(entry -> entry.getValue().getDuration()
+                .compareTo(duration) <= 0).collect(Collectors.toMap(
+                Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Override
+    public void putAll(final PointLocation location,
+                       final Map<PointLocation, WalkingCosts> newCosts) {
+        costs.computeIfAbsent(location, key -> new ConcurrentHashMap<>())
+                .putAll(newCosts);
+    }
+
+}
@@ -15,8 +15,8 @@
  */
 package com.publictransitanalytics.scoregenerator.testhelpers;
 
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.rider.Rider;
-import com.publictransitanalytics.scoregenerator.rider.RiderStatus;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 
@@ -27,20 +27,33 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class PreloadedRider implements Rider {
 
-    private final List<RiderStatus> riderStatuses;
-    
-    private int calls;
+    private final List<TransitStop> stops;
+    private final List<Long> times;
+    private int position = -1;
 
     @Override
     public boolean canContinueTrip() {
-        return calls < riderStatuses.size();
+        return position + 1 < stops.size();
     }
 
     @Override
-    public RiderStatus continueTrip() {
-        final RiderStatus status = riderStatuses.get(calls);
-        calls++;
-        return status;
+    public void continueTrip() {
+        position++;
+    }
+
+    @Override
+    public TransitStop getStop() {
+        return stops.get(position);
+    }
+
+    @Override
+    public long getTime() {
+        return times.get(position);
+    }
+
+    @Override
+    public int getProgress() {
+        return position;
     }
 
 }
@@ -16,7 +16,6 @@
 package com.publictransitanalytics.scoregenerator.testhelpers;
 
 import com.publictransitanalytics.scoregenerator.rider.Rider;
-import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
 import com.publictransitanalytics.scoregenerator.rider.ScheduleReader;
 import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
@@ -39,7 +38,7 @@ public class PreloadedRiderBehaviorFactory implements RiderFactory {
 
     @Override
     public Rider getNewRider(final EntryPoint entryPoint, 
-                             final LocalDateTime cutoffTime) {
+                             final long cutoffTime) {
         return rider;
     }
 
@@ -18,7 +18,6 @@ package com.publictransitanalytics.scoregenerator.testhelpers;
 import com.publictransitanalytics.scoregenerator.location.TransitStop;
 import com.publictransitanalytics.scoregenerator.rider.ScheduleReader;
 import com.publictransitanalytics.scoregenerator.schedule.EntryPoint;
-import java.time.LocalDateTime;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 
@@ -33,8 +32,8 @@ public class PreloadedScheduleReader implements ScheduleReader {
 
     @Override
     public Set<EntryPoint> getEntryPoints(TransitStop position,
-                                          LocalDateTime currentTime,
-                                          LocalDateTime cutoffTime) {
+                                          long currentTime,
+                                          long cutoffTime) {
         return entryPoints;
     }
 
@@ -15,6 +15,7 @@
  */
 package com.publictransitanalytics.scoregenerator.testhelpers;
 
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import com.publictransitanalytics.scoregenerator.tracking.MovementPath;
 import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
 import java.time.Duration;
@@ -66,6 +67,27 @@ public class PreloadedTimeTracker implements TimeTracker {
         return true;
     }
 
+    @Override
+    public long adjust(final long time, final long adjustmentSeconds) {
+        return EpochSeconds.of(adjustedTime);
+    }
+
+    @Override
+    public boolean canAdjust(final long baseTime, final long adjustmentSeconds,
+                             final long cutoffTime) {
+        return canAdjust;
+    }
+
+    @Override
+    public boolean shouldReplace(final long baseTime, final long otherTime) {
+        return true;
+    }
+
+    @Override
+    public boolean meetsCutoff(final long time, final long cutoffTime) {
+        return true;
+    }
+
     @Override
     public Iterator<LocalDateTime> getTimeIterator(
             final NavigableSet<LocalDateTime> times) {
@@ -21,7 +21,6 @@ import com.publictransitanalytics.scoregenerator.schedule.TransitNetwork;
 import com.publictransitanalytics.scoregenerator.schedule.Trip;
 import java.util.Collections;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Set;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -38,8 +37,8 @@ public class PreloadedTransitNetwork implements TransitNetwork {
 
     @Override
     public Set<EntryPoint> getEntryPoints(
-            final TransitStop stop, final LocalDateTime startTime,
-            final LocalDateTime endTime) {
+            final TransitStop stop, final long startTime,
+            final long endTime) {
         return Collections.emptySet();
     }
 
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.testhelpers;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.SetMultimap;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.GridPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.schedule.StopIndexedTransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import com.publictransitanalytics.scoregenerator.schedule.TripId;
+import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCardFactory;
+import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import com.publictransitanalytics.scoregenerator.workflow.Calculation;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * A small random transit network over a square of Sectors, with grid points
+ * scattered among the stops and straight line walks between every pair of
+ * points. The same seed always builds the same network.
+ *
+ * @author Public Transit Analytics
+ */
+@Getter
+public class RandomTransitFixture {
+
+    public static final LocalDateTime BASE_TIME
+            = LocalDateTime.of(2017, Month.MARCH, 1, 8, 0);
+    public static final double WALKING_METERS_PER_SECOND = 1.3;
+
+    private static final double WEST_LONGITUDE = -122.3;
+    private static final double SOUTH_LATITUDE = 47.6;
+    private static final double SECTOR_DEGREES = 0.01;
+    private static final int SECTORS_PER_SIDE = 5;
+    private static final int STOP_COUNT = 30;
+    private static final int GRID_POINT_COUNT = 40;
+    private static final int ROUTE_COUNT = 12;
+
+    private final List<TransitStop> stops;
+    private final List<GridPoint> gridPoints;
+    private final Set<Trip> trips;
+    private final SetMultimap<PointLocation, Sector> pointSectorMap;
+    private final Set<Center> centers;
+    private final ReachabilityClient reachabilityClient;
+
+    public RandomTransitFixture(final long seed) {
+        final Random random = new Random(seed);
+        final Sector[][] sectors
+                = new Sector[SECTORS_PER_SIDE][SECTORS_PER_SIDE];
+        for (int i = 0; i < SECTORS_PER_SIDE; i++) {
+            for (int j = 0; j < SECTORS_PER_SIDE; j++) {
+                sectors[i][j] = new Sector(new GeoBounds(
+                        longitude(WEST_LONGITUDE + j * SECTOR_DEGREES),
+                        latitude(SOUTH_LATITUDE + i * SECTOR_DEGREES),
+                        longitude(WEST_LONGITUDE + (j + 1) * SECTOR_DEGREES),
+                        latitude(SOUTH_LATITUDE + (i + 1) * SECTOR_DEGREES)));
+            }
+        }
+
+        final ImmutableSetMultimap.Builder<PointLocation, Sector> sectorBuilder
+                = ImmutableSetMultimap.builder();
+        final Map<Sector, List<GridPoint>> sectorPoints = new HashMap<>();
+        final ImmutableList.Builder<TransitStop> stopBuilder
+                = ImmutableList.builder();
+        for (int i = 0; i < STOP_COUNT; i++) {
+            final int row = random.nextInt(SECTORS_PER_SIDE);
+            final int column = random.nextInt(SECTORS_PER_SIDE);
+            final TransitStop stop = new TransitStop(
+                    "s" + i, "Stop " + i,
+                    makePoint(random, row, column));
+            stopBuilder.add(stop);
+            sectorBuilder.put(stop, sectors[row][column]);
+        }
+        stops = stopBuilder.build();
+        final ImmutableList.Builder<GridPoint> gridPointBuilder
+                = ImmutableList.builder();
+        for (int i = 0; i < GRID_POINT_COUNT; i++) {
+            final int row = random.nextInt(SECTORS_PER_SIDE);
+            final int column = random.nextInt(SECTORS_PER_SIDE);
+            final GridPoint gridPoint = new GridPoint(
+                    makePoint(random, row, column), "g" + i);
+            gridPointBuilder.add(gridPoint);
+            sectorBuilder.put(gridPoint, sectors[row][column]);
+            sectorPoints.computeIfAbsent(sectors[row][column],
+                                         sector -> new ArrayList<>())
+                    .add(gridPoint);
+        }
+        gridPoints = gridPointBuilder.build();
+        pointSectorMap = sectorBuilder.build();
+
+        final ImmutableSet.Builder<Center> centerBuilder
+                = ImmutableSet.builder();
+        for (final Map.Entry<Sector, List<GridPoint>> entry
+                     : sectorPoints.entrySet()) {
+            centerBuilder.add(new Center(entry.getKey(),
+                                         ImmutableSet.copyOf(
+                                                 entry.getValue())));
+        }
+        centers = centerBuilder.build();
+
+        trips = makeTrips(random, stops);
+        reachabilityClient = makeWalks(
+                ImmutableList.<PointLocation>builder().addAll(stops)
+                        .addAll(gridPoints).build());
+    }
+
+    /**
+     * Builds a calculation that starts from every center of the fixture at
+     * each of the times.
+     */
+    public <S extends ScoreCard> Calculation<S> makeCalculation(
+            final boolean backward, final NavigableSet<LocalDateTime> times,
+            final Duration longestDuration,
+            final ScoreCardFactory<S> scoreCardFactory)
+            throws InterruptedException {
+        return new Calculation<>(
+                centers, times, longestDuration, longestDuration, backward,
+                backward ? new BackwardTimeTracker()
+                        : new ForwardTimeTracker(),
+                new StopIndexedTransitNetwork(trips, backward),
+                getStopIdMap(), ImmutableSet.copyOf(gridPoints),
+                pointSectorMap,
+                reachabilityClient, scoreCardFactory);
+    }
+
+    /**
+     * Builds a forward calculation at five start times five minutes apart,
+     * scored at 15 and 30 minutes and the longest duration.
+     */
+    public Calculation<TaskSectorsScoreCard> makeTaskSectorsCalculation(
+            final Duration longestDuration) throws InterruptedException {
+        final ImmutableSortedSet.Builder<LocalDateTime> times
+                = ImmutableSortedSet.naturalOrder();
+        for (int i = 0; i < 5; i++) {
+            times.add(BASE_TIME.plusMinutes(5 * i));
+        }
+        final NavigableSet<Duration> durations = ImmutableSortedSet.of(
+                Duration.ofMinutes(15), Duration.ofMinutes(30),
+                longestDuration);
+        return makeCalculation(
+                false, times.build(), longestDuration,
+                (taskCount, pointSectorMap) -> new TaskSectorsScoreCard(
+                        taskCount, durations, pointSectorMap));
+    }
+
+    public BiMap<String, TransitStop> getStopIdMap() {
+        final ImmutableBiMap.Builder<String, TransitStop> builder
+                = ImmutableBiMap.builder();
+        for (final TransitStop stop : stops) {
+            builder.put(stop.getIdentifier(), stop);
+        }
+        return builder.build();
+    }
+
+    private static Set<Trip> makeTrips(final Random random,
+                                       final List<TransitStop> stops) {
+        final ImmutableSet.Builder<Trip> builder = ImmutableSet.builder();
+        int tripNumber = 0;
+        for (int route = 0; route < ROUTE_COUNT; route++) {
+            final int length = 3 + random.nextInt(6);
+            final List<TransitStop> sequence = new ArrayList<>();
+            final int[] hops = new int[length];
+            for (int i = 0; i < length; i++) {
+                sequence.add(stops.get(random.nextInt(stops.size())));
+                hops[i] = 60 + random.nextInt(400);
+            }
+            final int tripCount = 1 + random.nextInt(8);
+            for (int trip = 0; trip < tripCount; trip++) {
+                LocalDateTime time = BASE_TIME.minusHours(1).plusSeconds(
+                        random.nextInt(3 * 3600));
+                final ImmutableList.Builder<VehicleEvent> events
+                        = ImmutableList.builder();
+                for (int i = 0; i < length; i++) {
+                    final LocalDateTime departure = time.plusSeconds(
+                            random.nextInt(3) * 30);
+                    events.add(new VehicleEvent(sequence.get(i), time,
+                                                departure));
+                    time = departure.plusSeconds(
+                            hops[i] + random.nextInt(60));
+                }
+                builder.add(new Trip(
+                        new TripId("t" + tripNumber, BASE_TIME.toLocalDate()),
+                        "r" + route, "r" + route, events.build()));
+                tripNumber++;
+            }
+        }
+        return builder.build();
+    }
+
+    private static ReachabilityClient makeWalks(
+            final List<PointLocation> points) {
+        final ImmutableMap.Builder<PointLocation, Map<PointLocation, WalkingCosts>> builder
+                = ImmutableMap.builder();
+        for (final PointLocation origin : points) {
+            final ImmutableMap.Builder<PointLocation, WalkingCosts> costs
+                    = ImmutableMap.builder();
+            for (final PointLocation destination : points) {
+                if (!origin.equals(destination)) {
+                    final double meters = origin.getLocation()
+                            .getDistanceMeters(destination.getLocation());
+                    costs.put(destination, new WalkingCosts(
+                              Duration.ofSeconds((long) Math.ceil(
+                                      meters / WALKING_METERS_PER_SECOND)),
+                              meters));
+                }
+            }
+            builder.put(origin, costs.build());
+        }
+        final Map<PointLocation, Map<PointLocation, WalkingCosts>> walks
+                = builder.build();
+        return (location, currentTime, cutoffTime) -> {
+            final Duration limit
+                    = Duration.between(currentTime, cutoffTime).abs();
+            final ImmutableMap.Builder<PointLocation, WalkingCosts> reachable
+                    = ImmutableMap.builder();
+            for (final Map.Entry<PointLocation, WalkingCosts> entry
+                         : walks.get(location).entrySet()) {
+                if (entry.getValue().getDuration().compareTo(limit) <= 0) {
+                    reachable.put(entry);
+                }
+            }
+            return reachable.build();
+        };
+    }
+
+    private static GeoPoint makePoint(final Random random, final int row,
+                                      final int column) {
+        return new GeoPoint(
+                longitude(WEST_LONGITUDE + (column + random.nextDouble())
+                                                   * SECTOR_DEGREES),
+                latitude(SOUTH_LATITUDE + (row + random.nextDouble())
+                                                  * SECTOR_DEGREES));
+    }
+
+    private static GeoLongitude longitude(final double degrees) {
+        return new GeoLongitude(String.valueOf(degrees), AngleUnit.DEGREES);
+    }
+
+    private static GeoLatitude latitude(final double degrees) {
+        return new GeoLatitude(String.valueOf(degrees), AngleUnit.DEGREES);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.testhelpers;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.scoring.SectorScoreCard;
+import com.publictransitanalytics.scoregenerator.workflow.TaskIdentifier;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SectorScoreCard that keeps the Sectors each task reached, so that tests can
+ * compare scores task by task.
+ *
+ * @author Public Transit Analytics
+ */
+public class TaskSectorsScoreCard extends SectorScoreCard {
+
+    private final Map<TaskIdentifier, Map<Sector, Duration>> tasks;
+
+    public TaskSectorsScoreCard(
+            final int taskCount, final NavigableSet<Duration> durations,
+            final SetMultimap<PointLocation, Sector> pointSectorMap) {
+        super(taskCount, durations, pointSectorMap);
+        tasks = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void scoreSectors(final TaskIdentifier task,
+                             final Map<Sector, Duration> reachedSectors) {
+        tasks.put(task, ImmutableMap.copyOf(reachedSectors));
+    }
+
+    @Override
+    public int getReachedCount(final Sector location,
+                               final Duration duration) {
+        int count = 0;
+        for (final Map<Sector, Duration> reachedSectors : tasks.values()) {
+            final Duration reachDuration = reachedSectors.get(location);
+            if (reachDuration != null
+                        && reachDuration.compareTo(duration) <= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasPath(final Sector location, final Duration duration) {
+        return getReachedCount(location, duration) > 0;
+    }
+
+    public Map<TaskIdentifier, Map<Sector, Duration>> getTasks() {
+        return ImmutableMap.copyOf(tasks);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.rider.ForwardRiderFactory;
+import com.publictransitanalytics.scoregenerator.rider.RiderFactory;
+import com.publictransitanalytics.scoregenerator.schedule.StopIndexedTransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import com.publictransitanalytics.scoregenerator.schedule.TripId;
+import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class FlatTransitRideVisitorTest {
+
+    private static final GeoPoint STOP_POINT = new GeoPoint(
+            new GeoLongitude("-122.32539", AngleUnit.DEGREES),
+            new GeoLatitude("47.63411", AngleUnit.DEGREES));
+
+    private static final TransitStop FIRST_STOP = new TransitStop(
+            "-1", "First", STOP_POINT);
+    private static final TransitStop SECOND_STOP = new TransitStop(
+            "-2", "Second", STOP_POINT);
+    private static final TransitStop THIRD_STOP = new TransitStop(
+            "-3", "Third", STOP_POINT);
+    private static final TransitStop FOURTH_STOP = new TransitStop(
+            "-4", "Fourth", STOP_POINT);
+
+    private static final LocalDate SERVICE_DAY
+            = LocalDate.of(2017, Month.FEBRUARY, 12);
+
+    private static final Trip TRIP = new Trip(
+            new TripId("trip", SERVICE_DAY), "Route", "1", ImmutableList.of(
+                    new VehicleEvent(FIRST_STOP, time(8, 0), time(8, 0)),
+                    new VehicleEvent(SECOND_STOP, time(8, 10), time(8, 10)),
+                    new VehicleEvent(THIRD_STOP, time(8, 20), time(8, 20)),
+                    new VehicleEvent(FOURTH_STOP, time(8, 30), time(8, 30))));
+
+    private static final RiderFactory RIDER_FACTORY = new ForwardRiderFactory(
+            new StopIndexedTransitNetwork(ImmutableSet.of(TRIP), false));
+
+    private static final long CUTOFF_TIME = EpochSeconds.of(time(9, 0));
+
+    @Test
+    public void testSkipsTripBoardedUpstream() throws Exception {
+        final BoardedTrips boardedTrips = new BoardedTrips();
+
+        final Set<ReachabilityOutput> upstream = ride(
+                FIRST_STOP, time(8, 0), boardedTrips);
+        final Set<ReachabilityOutput> downstream = ride(
+                THIRD_STOP, time(8, 15), boardedTrips);
+
+        Assert.assertEquals(ImmutableSet.of(SECOND_STOP, THIRD_STOP,
+                                            FOURTH_STOP),
+                            getLocations(upstream));
+        Assert.assertTrue(downstream.isEmpty());
+    }
+
+    @Test
+    public void testRidesUpToDownstreamBoarding() throws Exception {
+        final BoardedTrips boardedTrips = new BoardedTrips();
+
+        final Set<ReachabilityOutput> downstream = ride(
+                THIRD_STOP, time(8, 15), boardedTrips);
+        final Set<ReachabilityOutput> upstream = ride(
+                FIRST_STOP, time(8, 0), boardedTrips);
+
+        Assert.assertEquals(ImmutableSet.of(FOURTH_STOP),
+                            getLocations(downstream));
+        Assert.assertEquals(ImmutableSet.of(SECOND_STOP, THIRD_STOP),
+                            getLocations(upstream));
+    }
+
+    @Test
+    public void testSkippingKeepsReachTimes() throws Exception {
+        final Map<PointLocation, Long> unskipped = new HashMap<>();
+        addBest(unskipped, ride(FIRST_STOP, time(8, 0), new BoardedTrips()));
+        addBest(unskipped, ride(SECOND_STOP, time(8, 5),
+                                new BoardedTrips()));
+        addBest(unskipped, ride(THIRD_STOP, time(8, 15),
+                                new BoardedTrips()));
+
+        for (final boolean upstreamFirst : new boolean[]{true, false}) {
+            final BoardedTrips boardedTrips = new BoardedTrips();
+            final Map<PointLocation, Long> skipped = new HashMap<>();
+            if (upstreamFirst) {
+                addBest(skipped, ride(FIRST_STOP, time(8, 0), boardedTrips));
+            }
+            addBest(skipped, ride(THIRD_STOP, time(8, 15), boardedTrips));
+            addBest(skipped, ride(SECOND_STOP, time(8, 5), boardedTrips));
+            if (!upstreamFirst) {
+                addBest(skipped, ride(FIRST_STOP, time(8, 0), boardedTrips));
+            }
+            Assert.assertEquals(unskipped, skipped);
+        }
+        Assert.assertEquals(ImmutableMap.of(
+                SECOND_STOP, EpochSeconds.of(time(8, 10)),
+                THIRD_STOP, EpochSeconds.of(time(8, 20)),
+                FOURTH_STOP, EpochSeconds.of(time(8, 30))), unskipped);
+    }
+
+    private static Set<ReachabilityOutput> ride(
+            final TransitStop stop, final LocalDateTime currentTime,
+            final BoardedTrips boardedTrips) throws InterruptedException {
+        final FlatTransitRideVisitor visitor = new FlatTransitRideVisitor(
+                CUTOFF_TIME, CUTOFF_TIME, EpochSeconds.of(currentTime),
+                RIDER_FACTORY, boardedTrips);
+        stop.accept(visitor);
+        return visitor.getOutput();
+    }
+
+    private static Set<PointLocation> getLocations(
+            final Set<ReachabilityOutput> outputs) {
+        final ImmutableSet.Builder<PointLocation> builder
+                = ImmutableSet.builder();
+        for (final ReachabilityOutput output : outputs) {
+            builder.add(output.getLocation());
+        }
+        return builder.build();
+    }
+
+    private static void addBest(final Map<PointLocation, Long> best,
+                                final Set<ReachabilityOutput> outputs) {
+        for (final ReachabilityOutput output : outputs) {
+            best.merge(output.getLocation(), output.getReachTime(),
+                       Math::min);
+        }
+    }
+
+    private static LocalDateTime time(final int hour, final int minute) {
+        return LocalDateTime.of(2017, Month.FEBRUARY, 12, hour, minute, 0);
+    }
+
+}
@@ -16,6 +16,7 @@
 package com.publictransitanalytics.scoregenerator.walking;
 
 import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
@@ -75,4 +76,37 @@ public class BackwardTimeTrackerTest {
         Assert.assertEquals(Duration.ofMinutes(10), duration);
     }
 
+    @Test
+    public void testAdjustsSeconds() {
+        final BackwardTimeTracker adjuster = new BackwardTimeTracker();
+        final long adjusted = adjuster.adjust(
+                EpochSeconds.of(
+                        LocalDateTime.of(2017, Month.FEBRUARY, 1, 10, 0, 0)),
+                600);
+
+        Assert.assertEquals(LocalDateTime.of(2017, Month.FEBRUARY, 1,
+                                             9, 50, 0),
+                            EpochSeconds.toLocalDateTime(adjusted));
+    }
+
+    @Test
+    public void testCanAdjustSecondsToCutoff() {
+        final BackwardTimeTracker adjuster = new BackwardTimeTracker();
+        Assert.assertTrue(adjuster.canAdjust(
+                EpochSeconds.of(
+                        LocalDateTime.of(2017, Month.FEBRUARY, 1, 10, 0, 0)),
+                600, EpochSeconds.of(
+                        LocalDateTime.of(2017, Month.FEBRUARY, 1, 9, 50, 0))));
+    }
+
+    @Test
+    public void testCannotAdjustSecondsBeyondCutoff() {
+        final BackwardTimeTracker adjuster = new BackwardTimeTracker();
+        Assert.assertTrue(!adjuster.canAdjust(
+                EpochSeconds.of(
+                        LocalDateTime.of(2017, Month.FEBRUARY, 1, 10, 0, 0)),
+                601, EpochSeconds.of(
+                        LocalDateTime.of(2017, Month.FEBRUARY, 1, 9, 50, 0))));
+    }
+
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.ModeType;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.GridPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import com.publictransitanalytics.scoregenerator.visitors.FlatTransitRideVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class DynamicProgrammingAlgorithmTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final int SEEDS = 5;
+
+    @Test
+    public void testSplitEgressMatchesCombinedWalks() throws Exception {
+        final DynamicProgrammingAlgorithm algorithm
+                = new DynamicProgrammingAlgorithm(
+                        new SequentialRoundRelaxer());
+        /* Whether any grid point was reached by egress from a stop. */
+        boolean reachedGridPoint = false;
+        for (final boolean backward : new boolean[]{false, true}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                final RandomTransitFixture fixture
+                        = new RandomTransitFixture(seed);
+                final LocalDateTime time = backward
+                        ? RandomTransitFixture.BASE_TIME.plus(LONGEST_DURATION)
+                        : RandomTransitFixture.BASE_TIME;
+                final Calculation<TaskSectorsScoreCard> calculation
+                        = fixture.makeCalculation(
+                                backward, ImmutableSortedSet.of(time),
+                                LONGEST_DURATION, (taskCount, pointSectorMap)
+                                -> new TaskSectorsScoreCard(
+                                        taskCount, ImmutableSortedSet.of(
+                                                LONGEST_DURATION),
+                                        pointSectorMap));
+                final TimeTracker timeTracker = calculation.getTimeTracker();
+                final long startTime = EpochSeconds.of(time);
+                final long cutoffTime = timeTracker.adjust(
+                        startTime, EpochSeconds.of(LONGEST_DURATION));
+
+                for (final Center center : fixture.getCenters()) {
+                    final DynamicProgrammingTable split
+                            = new DynamicProgrammingTable(
+                                    calculation.getLocationIndex());
+                    algorithm.execute(
+                            split, startTime, cutoffTime,
+                            center.getPhysicalCenters(), timeTracker,
+                            LONGEST_DURATION, calculation.getTransferGraph(),
+                            calculation.getEgressClient(),
+                            calculation.getRiderFactory());
+                    final DynamicProgrammingTable combined
+                            = new DynamicProgrammingTable(
+                                    calculation.getLocationIndex());
+                    searchCombined(combined, startTime, cutoffTime,
+                                   center.getPhysicalCenters(),
+                                   calculation);
+
+                    final Map<PointLocation, Long> reachTimes
+                            = getReachTimes(combined);
+                    Assert.assertEquals(reachTimes, getReachTimes(split));
+                    reachedGridPoint |= split.asMap().entrySet().stream()
+                            .anyMatch(entry -> entry.getKey()
+                                      instanceof GridPoint
+                                      && entry.getValue().getPredecessor()
+                                      instanceof TransitStop);
+
+                    final TaskIdentifier task
+                            = new TaskIdentifier(time, center);
+                    final TaskSectorsScoreCard combinedScores
+                            = makeScoreCard(calculation);
+                    combinedScores.scoreTask(task, combined);
+                    final TaskSectorsScoreCard splitScores
+                            = makeScoreCard(calculation);
+                    splitScores.scoreTask(task, split);
+                    Assert.assertEquals(combinedScores.getTasks(),
+                                        splitScores.getTasks());
+                }
+            }
+        }
+        Assert.assertTrue(reachedGridPoint);
+    }
+
+    /**
+     * Searches the way the algorithm did before egress was split out: every
+     * round walks to every point from each location not reached on foot.
+     */
+    private static void searchCombined(
+            final DynamicProgrammingTable table, final long startTime,
+            final long cutoffTime,
+            final Set<? extends PointLocation> startLocations,
+            final Calculation<?> calculation) throws InterruptedException {
+        final LocationIndex index = table.getIndex();
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        final RoundRelaxer relaxer = new SequentialRoundRelaxer();
+
+        BitSet updateSet = new BitSet(index.size());
+        table.clear();
+        for (final PointLocation startLocation : startLocations) {
+            final int id = index.getId(startLocation);
+            table.set(id, startTime, ModeInfo.NONE,
+                      DynamicProgrammingTable.NO_PREDECESSOR);
+            updateSet.set(id);
+        }
+        while (!updateSet.isEmpty()) {
+            final BitSet nextUpdateSet = new BitSet(index.size());
+            relaxer.relaxRound(
+                    updateSet, nextUpdateSet, table, timeTracker,
+                    (priorId, boardedTrips) -> {
+                        final PointLocation location
+                                = index.getLocation(priorId);
+                        final long currentTime = table.getReachTime(priorId);
+                        final FlatTransitRideVisitor rideVisitor
+                                = new FlatTransitRideVisitor(
+                                        cutoffTime, cutoffTime, currentTime,
+                                        calculation.getRiderFactory(),
+                                        boardedTrips);
+                        location.accept(rideVisitor);
+                        if (table.getMode(priorId).getType().equals(
+                                ModeType.WALKING)) {
+                            return rideVisitor.getOutput();
+                        }
+                        final FlatWalkVisitor walkVisitor
+                                = new FlatWalkVisitor(
+                                        cutoffTime, currentTime,
+                                        calculation.getReachabilityClient(),
+                                        timeTracker);
+                        location.accept(walkVisitor);
+                        return Iterables.concat(rideVisitor.getOutput(),
+                                                walkVisitor.getOutput());
+                    });
+            updateSet = nextUpdateSet;
+        }
+    }
+
+    private static Map<PointLocation, Long> getReachTimes(
+            final DynamicProgrammingTable table) {
+        final ImmutableMap.Builder<PointLocation, Long> builder
+                = ImmutableMap.builder();
+        for (final Map.Entry<PointLocation, DynamicProgrammingRecord> entry
+                     : table.asMap().entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().getReachTime());
+        }
+        return builder.build();
+    }
+
+    private static TaskSectorsScoreCard makeScoreCard(
+            final Calculation<?> calculation) {
+        final ImmutableSortedSet.Builder<Duration> durations
+                = ImmutableSortedSet.naturalOrder();
+        for (long i = 1; i <= LONGEST_DURATION.getSeconds(); i++) {
+            durations.add(Duration.ofSeconds(i));
+        }
+        return new TaskSectorsScoreCard(1, durations.build(),
+                                        calculation.getPointSectorMap());
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.ModeType;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class DynamicProgrammingTableTest {
+
+    private static final GeoPoint POINT = new GeoPoint(
+            new GeoLongitude("-122.32370", AngleUnit.DEGREES),
+            new GeoLatitude("47.654656", AngleUnit.DEGREES));
+
+    private static final TransitStop FIRST = new TransitStop(
+            "-1", "First", POINT);
+    private static final TransitStop SECOND = new TransitStop(
+            "-2", "Second", POINT);
+    private static final TransitStop THIRD = new TransitStop(
+            "-3", "Third", POINT);
+    private static final TransitStop UNREACHED = new TransitStop(
+            "-4", "Unreached", POINT);
+
+    private static final LocationIndex INDEX = new LocationIndex(
+            ImmutableList.of(FIRST, SECOND, THIRD, UNREACHED));
+
+    private static final ModeInfo WALK = new ModeInfo(
+            ModeType.WALKING, null,
+            new WalkingCosts(Duration.ofMinutes(5), 400));
+
+    private static final long START_TIME = 1000;
+
+    @Test
+    public void testKeepsReachedOrder() {
+        final DynamicProgrammingTable table = makeTable();
+        table.set(INDEX.getId(THIRD), START_TIME + 300, WALK,
+                  INDEX.getId(FIRST));
+
+        Assert.assertEquals(3, table.getReachedCount());
+        Assert.assertEquals(ImmutableList.of(INDEX.getId(FIRST),
+                                             INDEX.getId(SECOND),
+                                             INDEX.getId(THIRD)),
+                            getReached(table));
+        Assert.assertEquals(START_TIME + 300,
+                            table.getReachTime(INDEX.getId(THIRD)));
+    }
+
+    @Test
+    public void testClearForgetsReached() {
+        final DynamicProgrammingTable table = makeTable();
+        table.clear();
+
+        Assert.assertEquals(0, table.getReachedCount());
+        Assert.assertFalse(table.isReached(INDEX.getId(FIRST)));
+        Assert.assertTrue(table.asMap().isEmpty());
+
+        table.set(INDEX.getId(SECOND), START_TIME, ModeInfo.NONE,
+                  DynamicProgrammingTable.NO_PREDECESSOR);
+        Assert.assertEquals(ImmutableList.of(INDEX.getId(SECOND)),
+                            getReached(table));
+    }
+
+    @Test
+    public void testCopiesForwardEntriesMeetingCutoff() {
+        final DynamicProgrammingTable table = makeTable();
+        final DynamicProgrammingTable copy
+                = new DynamicProgrammingTable(INDEX);
+        copy.set(INDEX.getId(THIRD), START_TIME, ModeInfo.NONE,
+                 DynamicProgrammingTable.NO_PREDECESSOR);
+
+        copy.copyMeetingCutoff(table, START_TIME + 200,
+                               new ForwardTimeTracker());
+
+        Assert.assertEquals(ImmutableList.of(INDEX.getId(FIRST)),
+                            getReached(copy));
+        Assert.assertFalse(copy.isReached(INDEX.getId(THIRD)));
+        Assert.assertEquals(2, table.getReachedCount());
+    }
+
+    @Test
+    public void testCopyKeepsEntriesAtCutoff() {
+        final DynamicProgrammingTable table = makeTable();
+        final DynamicProgrammingTable copy
+                = new DynamicProgrammingTable(INDEX);
+
+        copy.copyMeetingCutoff(table, START_TIME + 300,
+                               new ForwardTimeTracker());
+
+        Assert.assertEquals(table.asMap(), copy.asMap());
+    }
+
+    @Test
+    public void testRetainsBackwardEntriesMeetingCutoff() {
+        final DynamicProgrammingTable table
+                = new DynamicProgrammingTable(INDEX);
+        table.set(INDEX.getId(FIRST), START_TIME, ModeInfo.NONE,
+                  DynamicProgrammingTable.NO_PREDECESSOR);
+        table.set(INDEX.getId(SECOND), START_TIME - 300, WALK,
+                  INDEX.getId(FIRST));
+        table.set(INDEX.getId(THIRD), START_TIME - 100, WALK,
+                  INDEX.getId(FIRST));
+
+        table.retainMeetingCutoff(START_TIME - 200,
+                                  new BackwardTimeTracker());
+
+        Assert.assertEquals(ImmutableList.of(INDEX.getId(FIRST),
+                                             INDEX.getId(THIRD)),
+                            getReached(table));
+        Assert.assertFalse(table.isReached(INDEX.getId(SECOND)));
+
+        table.set(INDEX.getId(SECOND), START_TIME - 50, WALK,
+                  INDEX.getId(FIRST));
+        Assert.assertEquals(3, table.getReachedCount());
+    }
+
+    @Test
+    public void testMapViewsRecords() {
+        final DynamicProgrammingTable table = makeTable();
+        final Map<PointLocation, DynamicProgrammingRecord> map
+                = table.asMap();
+
+        Assert.assertEquals(ImmutableMap.of(
+                FIRST, new DynamicProgrammingRecord(
+                        START_TIME, ModeInfo.NONE, null),
+                SECOND, new DynamicProgrammingRecord(
+                        START_TIME + 300, WALK, FIRST)), map);
+        Assert.assertNull(map.get(UNREACHED));
+        Assert.assertFalse(map.containsKey(UNREACHED));
+        Assert.assertEquals(ImmutableSet.of(FIRST, SECOND), map.keySet());
+    }
+
+    @Test
+    public void testMapViewFollowsTable() {
+        final DynamicProgrammingTable table = makeTable();
+        final Map<PointLocation, DynamicProgrammingRecord> map
+                = table.asMap();
+
+        table.retainMeetingCutoff(START_TIME + 200, new ForwardTimeTracker());
+
+        Assert.assertEquals(1, map.size());
+        Assert.assertNull(map.get(SECOND));
+    }
+
+    private static DynamicProgrammingTable makeTable() {
+        final DynamicProgrammingTable table
+                = new DynamicProgrammingTable(INDEX);
+        table.set(INDEX.getId(FIRST), START_TIME, ModeInfo.NONE,
+                  DynamicProgrammingTable.NO_PREDECESSOR);
+        table.set(INDEX.getId(SECOND), START_TIME + 300, WALK,
+                  INDEX.getId(FIRST));
+        return table;
+    }
+
+    private static List<Integer> getReached(
+            final DynamicProgrammingTable table) {
+        final List<Integer> reached = new ArrayList<>();
+        table.forEachReached(reached::add);
+        return reached;
+    }
+
+}
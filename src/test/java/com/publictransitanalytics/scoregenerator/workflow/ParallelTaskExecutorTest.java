@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class ParallelTaskExecutorTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+
+    @Test
+    public void testSubmitsMostExpensiveFirst() throws Exception {
+        final Calculation<TaskSectorsScoreCard> calculation
+                = new RandomTransitFixture(0).makeCalculation(
+                        false, ImmutableSortedSet.of(
+                                RandomTransitFixture.BASE_TIME),
+                        LONGEST_DURATION, (taskCount, pointSectorMap)
+                        -> new TaskSectorsScoreCard(
+                                taskCount, ImmutableSortedSet.of(
+                                        LONGEST_DURATION), pointSectorMap));
+        final Random random = new Random(0);
+        final Map<TaskGroupIdentifier, Double> costs = new HashMap<>();
+        for (final TaskGroupIdentifier taskGroup
+                     : calculation.getTaskGroups()) {
+            costs.put(taskGroup, random.nextDouble());
+        }
+        final List<TaskGroupIdentifier> expected
+                = new ArrayList<>(costs.keySet());
+        expected.sort(Comparator.comparing(costs::get).reversed());
+
+        final List<TaskGroupIdentifier> executed
+                = Collections.synchronizedList(new ArrayList<>());
+        /* A single worker runs submitted groups in submission order. */
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            new ParallelTaskExecutor<TaskSectorsScoreCard>(
+                    (rangeCalculation, taskGroup, scoreCard)
+                    -> executed.add(taskGroup), pool,
+                    (rangeCalculation, taskGroup) -> costs.get(taskGroup),
+                    ImmutableMap.of()).calculate(
+                            ImmutableSet.of(calculation));
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertTrue(expected.size() > 1);
+        Assert.assertEquals(expected, executed);
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.ModeType;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import com.publictransitanalytics.scoregenerator.schedule.TripId;
+import com.publictransitanalytics.scoregenerator.schedule.TripPatternIndex;
+import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
+import com.publictransitanalytics.scoregenerator.walking.BackwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.WalkingCosts;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class RaptorAlgorithmTest {
+
+    private static final GeoPoint STOP_POINT = new GeoPoint(
+            new GeoLongitude("-122.32539", AngleUnit.DEGREES),
+            new GeoLatitude("47.63411", AngleUnit.DEGREES));
+
+    private static final TransitStop ORIGIN = new TransitStop(
+            "-1", "Origin", STOP_POINT);
+    private static final TransitStop TRANSFER = new TransitStop(
+            "-2", "Transfer", STOP_POINT);
+    private static final TransitStop TERMINAL = new TransitStop(
+            "-3", "Terminal", STOP_POINT);
+    private static final TransitStop WALK_END = new TransitStop(
+            "-4", "Walk End", STOP_POINT);
+
+    private static final LocationIndex INDEX = new LocationIndex(
+            ImmutableList.of(ORIGIN, TRANSFER, TERMINAL, WALK_END));
+
+    private static final LocalDate SERVICE_DAY
+            = LocalDate.of(2017, Month.FEBRUARY, 12);
+
+    /* Two rides through the transfer stop beat the direct trip both ways:
+     * they arrive at the terminal earlier and leave the origin later. */
+    private static final Set<Trip> TRIPS = ImmutableSet.of(
+            makeTrip("first", ORIGIN, time(8, 0), TRANSFER, time(8, 10)),
+            makeTrip("second", TRANSFER, time(8, 15), TERMINAL, time(8, 25)),
+            makeTrip("direct", ORIGIN, time(7, 55), TERMINAL, time(8, 50)));
+
+    private static final ReachabilityClient WALKS = makeWalks(
+            TERMINAL, WALK_END, Duration.ofMinutes(5));
+
+    @Test
+    public void testTransfersForEarlierArrival() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(), false, ORIGIN, time(8, 0), time(9, 0));
+
+        assertReached(table, TRANSFER, time(8, 10), ORIGIN);
+        assertReached(table, TERMINAL, time(8, 25), TRANSFER);
+        assertReached(table, WALK_END, time(8, 30), TERMINAL);
+        Assert.assertEquals(ModeType.WALKING, table.getMode(
+                INDEX.getId(WALK_END)).getType());
+    }
+
+    @Test
+    public void testRideLimitKeepsDirectTrip() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(1), false, ORIGIN, time(7, 50),
+                time(9, 0));
+
+        assertReached(table, TRANSFER, time(8, 10), ORIGIN);
+        assertReached(table, TERMINAL, time(8, 50), ORIGIN);
+        assertReached(table, WALK_END, time(8, 55), TERMINAL);
+    }
+
+    /* Each pattern reaches the stop where the other has a faster connection
+     * to the walk end, so whichever pattern is scanned first, the second could
+     * board at a label from the same round without per-round labels. */
+    @Test
+    public void testRideLimitBoardsAtPreviousRoundLabels() throws Exception {
+        final Set<Trip> trips = ImmutableSet.of(
+                makeTrip("terminalFirst", ORIGIN, time(8, 0), TERMINAL,
+                         time(8, 5), TRANSFER, time(8, 40), WALK_END,
+                         time(8, 50)),
+                makeTrip("terminalFirstEarly", ORIGIN, time(7, 30), TERMINAL,
+                         time(7, 35), TRANSFER, time(8, 20), WALK_END,
+                         time(8, 30)),
+                makeTrip("transferFirst", ORIGIN, time(8, 0), TRANSFER,
+                         time(8, 5), TERMINAL, time(8, 40), WALK_END,
+                         time(8, 50)),
+                makeTrip("transferFirstEarly", ORIGIN, time(7, 30), TRANSFER,
+                         time(7, 35), TERMINAL, time(8, 20), WALK_END,
+                         time(8, 30)));
+        final ReachabilityClient noWalks
+                = (location, currentTime, cutoffTime) -> ImmutableMap.of();
+
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(1), false, ORIGIN, time(7, 50),
+                time(9, 0), trips, noWalks);
+
+        assertReached(table, TERMINAL, time(8, 5), ORIGIN);
+        assertReached(table, TRANSFER, time(8, 5), ORIGIN);
+        assertReached(table, WALK_END, time(8, 50), ORIGIN);
+
+        final DynamicProgrammingTable twoRideTable = search(
+                new RaptorAlgorithm(2), false, ORIGIN, time(7, 50),
+                time(9, 0), trips, noWalks);
+
+        Assert.assertEquals(EpochSeconds.of(time(8, 30)),
+                            twoRideTable.getReachTime(
+                                    INDEX.getId(WALK_END)));
+    }
+
+    @Test
+    public void testNoRidesOnlyWalks() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(0), false, TERMINAL, time(8, 0),
+                time(9, 0));
+
+        Assert.assertEquals(2, table.getReachedCount());
+        assertReached(table, WALK_END, time(8, 5), TERMINAL);
+    }
+
+    @Test
+    public void testDropsArrivalsAfterCutoff() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(), false, ORIGIN, time(7, 50),
+                time(8, 28));
+
+        assertReached(table, TERMINAL, time(8, 25), TRANSFER);
+        Assert.assertFalse(table.isReached(INDEX.getId(WALK_END)));
+
+        final DynamicProgrammingTable earlyTable = search(
+                new RaptorAlgorithm(), false, ORIGIN, time(7, 50),
+                time(8, 20));
+
+        assertReached(earlyTable, TRANSFER, time(8, 10), ORIGIN);
+        Assert.assertFalse(earlyTable.isReached(INDEX.getId(TERMINAL)));
+    }
+
+    @Test
+    public void testBackwardTransfersForLaterDeparture() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(), true, WALK_END, time(9, 0),
+                time(7, 0));
+
+        assertReached(table, TERMINAL, time(8, 55), WALK_END);
+        assertReached(table, TRANSFER, time(8, 15), TERMINAL);
+        assertReached(table, ORIGIN, time(8, 0), TRANSFER);
+    }
+
+    @Test
+    public void testBackwardRideLimitKeepsDirectTrip() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(1), true, TERMINAL, time(9, 0),
+                time(7, 0));
+
+        assertReached(table, TRANSFER, time(8, 15), TERMINAL);
+        assertReached(table, ORIGIN, time(7, 55), TERMINAL);
+    }
+
+    @Test
+    public void testBackwardDropsDeparturesBeforeCutoff() throws Exception {
+        final DynamicProgrammingTable table = search(
+                new RaptorAlgorithm(), true, TERMINAL, time(9, 0),
+                time(7, 58));
+
+        assertReached(table, ORIGIN, time(8, 0), TRANSFER);
+
+        final DynamicProgrammingTable lateTable = search(
+                new RaptorAlgorithm(), true, TERMINAL, time(9, 0),
+                time(8, 5));
+
+        assertReached(lateTable, TRANSFER, time(8, 15), TERMINAL);
+        Assert.assertFalse(lateTable.isReached(INDEX.getId(ORIGIN)));
+    }
+
+    private static DynamicProgrammingTable search(
+            final RaptorAlgorithm algorithm, final boolean backward,
+            final PointLocation start, final LocalDateTime startTime,
+            final LocalDateTime cutoffTime) throws InterruptedException {
+        return search(algorithm, backward, start, startTime, cutoffTime,
+                      TRIPS, WALKS);
+    }
+
+    private static DynamicProgrammingTable search(
+            final RaptorAlgorithm algorithm, final boolean backward,
+            final PointLocation start, final LocalDateTime startTime,
+            final LocalDateTime cutoffTime, final Set<Trip> trips,
+            final ReachabilityClient walks) throws InterruptedException {
+        final TimeTracker timeTracker = backward ? new BackwardTimeTracker()
+                : new ForwardTimeTracker();
+        final DynamicProgrammingTable table
+                = new DynamicProgrammingTable(INDEX);
+        algorithm.execute(table, EpochSeconds.of(startTime),
+                          EpochSeconds.of(cutoffTime),
+                          Collections.singleton(start), timeTracker, walks,
+                          new TripPatternIndex(trips, backward, INDEX));
+        return table;
+    }
+
+    private static void assertReached(
+            final DynamicProgrammingTable table, final PointLocation location,
+            final LocalDateTime reachTime, final PointLocation predecessor) {
+        final int id = INDEX.getId(location);
+        Assert.assertTrue(table.isReached(id));
+        Assert.assertEquals(EpochSeconds.of(reachTime),
+                            table.getReachTime(id));
+        Assert.assertEquals(INDEX.getId(predecessor),
+                            table.getPredecessor(id));
+    }
+
+    private static ReachabilityClient makeWalks(
+            final PointLocation from, final PointLocation to,
+            final Duration duration) {
+        final Map<PointLocation, Map<PointLocation, WalkingCosts>> walks
+                = ImmutableMap.of(
+                        from, ImmutableMap.of(
+                                to, new WalkingCosts(duration, 0)),
+                        to, ImmutableMap.of(
+                                from, new WalkingCosts(duration, 0)));
+        return (location, currentTime, cutoffTime) -> walks.getOrDefault(
+                location, ImmutableMap.of());
+    }
+
+    private static Trip makeTrip(final String id, final TransitStop first,
+                                 final LocalDateTime firstTime,
+                                 final TransitStop second,
+                                 final LocalDateTime secondTime) {
+        return new Trip(new TripId(id, SERVICE_DAY), id, id,
+                        ImmutableList.of(
+                                new VehicleEvent(first, firstTime, firstTime),
+                                new VehicleEvent(second, secondTime,
+                                                 secondTime)));
+    }
+
+    private static Trip makeTrip(final String id, final TransitStop first,
+                                 final LocalDateTime firstTime,
+                                 final TransitStop second,
+                                 final LocalDateTime secondTime,
+                                 final TransitStop third,
+                                 final LocalDateTime thirdTime,
+                                 final TransitStop fourth,
+                                 final LocalDateTime fourthTime) {
+        return new Trip(new TripId(id, SERVICE_DAY), id, id,
+                        ImmutableList.of(
+                                new VehicleEvent(first, firstTime, firstTime),
+                                new VehicleEvent(second, secondTime,
+                                                 secondTime),
+                                new VehicleEvent(third, thirdTime, thirdTime),
+                                new VehicleEvent(fourth, fourthTime,
+                                                 fourthTime)));
+    }
+
+    private static LocalDateTime time(final int hour, final int minute) {
+        return LocalDateTime.of(2017, Month.FEBRUARY, 12, hour, minute, 0);
+    }
+
+}
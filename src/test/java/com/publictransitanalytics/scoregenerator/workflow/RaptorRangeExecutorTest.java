@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.scoring.ScoreCard;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class RaptorRangeExecutorTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final Environment ENVIRONMENT
+            = new Environment(null, LONGEST_DURATION);
+    private static final int SEEDS = 5;
+
+    @Test
+    public void testMatchesProgressiveSearch() throws Exception {
+        for (final boolean backward : new boolean[]{false, true}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                final RandomTransitFixture fixture
+                        = new RandomTransitFixture(seed);
+                final Map<TaskIdentifier, Map<Sector, Duration>> expected
+                        = scoreSectors(new ProgressiveRangeExecutor(
+                                new DynamicProgrammingAlgorithm(
+                                        new SequentialRoundRelaxer()),
+                                ENVIRONMENT), fixture, backward);
+
+                Assert.assertEquals(expected, scoreSectors(
+                        new RaptorRangeExecutor(new RaptorAlgorithm(),
+                                                ENVIRONMENT, false),
+                        fixture, backward));
+                Assert.assertEquals(expected, scoreSectors(
+                        new RaptorRangeExecutor(new RaptorAlgorithm(),
+                                                ENVIRONMENT, true),
+                        fixture, backward));
+            }
+        }
+    }
+
+    @Test
+    public void testProfileKeepsPathsFromOneDeparture() throws Exception {
+        for (final boolean backward : new boolean[]{false, true}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                final RandomTransitFixture fixture
+                        = new RandomTransitFixture(seed);
+                final Calculation<StateScoreCard> calculation
+                        = fixture.makeCalculation(
+                                backward, getTimes(backward),
+                                LONGEST_DURATION, (taskCount, sectors)
+                                -> new StateScoreCard(taskCount));
+                final RangeExecutor executor = new RaptorRangeExecutor(
+                        new RaptorAlgorithm(), ENVIRONMENT, true);
+                for (final TaskGroupIdentifier taskGroup
+                             : calculation.getTaskGroups()) {
+                    executor.executeRange(calculation, taskGroup,
+                                          calculation.getScoreCard());
+                }
+
+                final DynamicProgrammingTable table
+                        = new DynamicProgrammingTable(
+                                calculation.getLocationIndex());
+                for (final Map.Entry<TaskIdentifier, Map<PointLocation, DynamicProgrammingRecord>> entry
+                             : calculation.getScoreCard().getStates()
+                        .entrySet()) {
+                    final TaskIdentifier task = entry.getKey();
+                    final long startTime = EpochSeconds.of(task.getTime());
+                    new RaptorAlgorithm().execute(
+                            table, startTime,
+                            calculation.getTimeTracker().adjust(
+                                    startTime,
+                                    EpochSeconds.of(LONGEST_DURATION)),
+                            task.getCenter().getPhysicalCenters(),
+                            calculation.getTimeTracker(),
+                            calculation.getReachabilityClient(),
+                            calculation.getPatternIndex());
+                    Assert.assertEquals(ImmutableMap.copyOf(table.asMap()),
+                                        entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static Map<TaskIdentifier, Map<Sector, Duration>> scoreSectors(
+            final RangeExecutor executor, final RandomTransitFixture fixture,
+            final boolean backward) throws InterruptedException {
+        final NavigableSet<Duration> durations = getSecondDurations();
+        final Calculation<TaskSectorsScoreCard> calculation
+                = fixture.makeCalculation(
+                        backward, getTimes(backward), LONGEST_DURATION,
+                        (taskCount, pointSectorMap) -> new TaskSectorsScoreCard(
+                                taskCount, durations, pointSectorMap));
+        for (final TaskGroupIdentifier taskGroup
+                     : calculation.getTaskGroups()) {
+            executor.executeRange(calculation, taskGroup,
+                                  calculation.getScoreCard());
+        }
+        return calculation.getScoreCard().getTasks();
+    }
+
+    /**
+     * Buckets every second, so that equal scores mean equal reach times.
+     */
+    private static NavigableSet<Duration> getSecondDurations() {
+        final ImmutableSortedSet.Builder<Duration> builder
+                = ImmutableSortedSet.naturalOrder();
+        for (long i = 1; i <= LONGEST_DURATION.getSeconds(); i++) {
+            builder.add(Duration.ofSeconds(i));
+        }
+        return builder.build();
+    }
+
+    private static NavigableSet<LocalDateTime> getTimes(
+            final boolean backward) {
+        final LocalDateTime firstTime = backward
+                ? RandomTransitFixture.BASE_TIME.plus(LONGEST_DURATION)
+                : RandomTransitFixture.BASE_TIME;
+        final ImmutableSortedSet.Builder<LocalDateTime> builder
+                = ImmutableSortedSet.naturalOrder();
+        for (int i = 0; i < 20; i++) {
+            builder.add(firstTime.plusMinutes(2 * i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * ScoreCard that keeps every record it is given, predecessors included.
+     */
+    private static class StateScoreCard extends ScoreCard {
+
+        private final Map<TaskIdentifier, Map<PointLocation, DynamicProgrammingRecord>> states;
+
+        StateScoreCard(final int taskCount) {
+            super(taskCount);
+            states = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public int getReachedCount(final Sector location) {
+            return 0;
+        }
+
+        @Override
+        public boolean hasPath(final Sector location) {
+            return false;
+        }
+
+        @Override
+        public void scoreTask(
+                final TaskIdentifier task,
+                final Map<PointLocation, DynamicProgrammingRecord> stateMap) {
+            states.put(task, ImmutableMap.copyOf(stateMap));
+        }
+
+        Map<TaskIdentifier, Map<PointLocation, DynamicProgrammingRecord>> getStates() {
+            return states;
+        }
+
+    }
+
+}
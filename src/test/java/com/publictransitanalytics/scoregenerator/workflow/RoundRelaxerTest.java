@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import com.publictransitanalytics.scoregenerator.visitors.FlatTransitRideVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.ModeInfo;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class RoundRelaxerTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final int SEEDS = 5;
+
+    @Test
+    public void testForkJoinMatchesSequential() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final RoundRelaxer sequential = new SequentialRoundRelaxer();
+            final RoundRelaxer forkJoin = new ForkJoinRoundRelaxer(pool);
+            for (final boolean backward : new boolean[]{false, true}) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    assertSameRounds(new RandomTransitFixture(seed), backward,
+                                     sequential, forkJoin);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRoundFromPoolWorkerStaysOnWorker() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final LocationIndex index = new RandomTransitFixture(0)
+                    .makeCalculation(
+                            false, ImmutableSortedSet.of(
+                                    RandomTransitFixture.BASE_TIME),
+                            LONGEST_DURATION,
+                            (taskCount, pointSectorMap)
+                            -> new TaskSectorsScoreCard(
+                                    taskCount, ImmutableSortedSet.of(
+                                            LONGEST_DURATION),
+                                    pointSectorMap))
+                    .getLocationIndex();
+            final DynamicProgrammingTable table
+                    = new DynamicProgrammingTable(index);
+            final BitSet updateSet = new BitSet(index.size());
+            updateSet.set(0, index.size());
+            final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            final RoundRelaxer relaxer = new ForkJoinRoundRelaxer(pool);
+
+            final Thread worker = pool.submit(() -> {
+                relaxer.relaxRound(
+                        updateSet, new BitSet(index.size()), table,
+                        new ForwardTimeTracker(), (priorId, boardedTrips) -> {
+                            threads.add(Thread.currentThread());
+                            return Collections.emptyList();
+                        });
+                return Thread.currentThread();
+            }).get();
+
+            Assert.assertEquals(Collections.singleton(worker), threads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the transit rounds and the egress phase from every grid point at
+     * once, so that rounds span several fork/join chunks, handing both
+     * relaxers the same state before each round.
+     */
+    private static void assertSameRounds(
+            final RandomTransitFixture fixture, final boolean backward,
+            final RoundRelaxer expectedRelaxer,
+            final RoundRelaxer actualRelaxer) throws InterruptedException {
+        final LocalDateTime time = backward
+                ? RandomTransitFixture.BASE_TIME.plus(LONGEST_DURATION)
+                : RandomTransitFixture.BASE_TIME;
+        final Calculation<TaskSectorsScoreCard> calculation
+                = fixture.makeCalculation(
+                        backward, ImmutableSortedSet.of(time),
+                        LONGEST_DURATION,
+                        (taskCount, pointSectorMap) -> new TaskSectorsScoreCard(
+                                taskCount, ImmutableSortedSet.of(
+                                        LONGEST_DURATION), pointSectorMap));
+        final LocationIndex index = calculation.getLocationIndex();
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        final long startTime = EpochSeconds.of(time);
+        final long cutoffTime = timeTracker.adjust(
+                startTime, EpochSeconds.of(LONGEST_DURATION));
+
+        final DynamicProgrammingTable expectedTable
+                = new DynamicProgrammingTable(index);
+        final DynamicProgrammingTable actualTable
+                = new DynamicProgrammingTable(index);
+        BitSet updateSet = new BitSet(index.size());
+        for (final Center center : fixture.getCenters()) {
+            for (final PointLocation point : center.getPhysicalCenters()) {
+                final int id = index.getId(point);
+                expectedTable.set(id, startTime, ModeInfo.NONE,
+                                  DynamicProgrammingTable.NO_PREDECESSOR);
+                actualTable.set(id, startTime, ModeInfo.NONE,
+                                DynamicProgrammingTable.NO_PREDECESSOR);
+                updateSet.set(id);
+            }
+        }
+        final BitSet changedSet = (BitSet) updateSet.clone();
+
+        int rounds = 0;
+        while (!updateSet.isEmpty()) {
+            final BitSet expectedUpdates = new BitSet(index.size());
+            final BitSet actualUpdates = new BitSet(index.size());
+            expectedRelaxer.relaxRound(
+                    updateSet, expectedUpdates, expectedTable, timeTracker,
+                    makeRelaxation(expectedTable, cutoffTime, calculation));
+            actualRelaxer.relaxRound(
+                    updateSet, actualUpdates, actualTable, timeTracker,
+                    makeRelaxation(actualTable, cutoffTime, calculation));
+
+            Assert.assertEquals(expectedUpdates, actualUpdates);
+            Assert.assertEquals(ImmutableMap.copyOf(expectedTable.asMap()),
+                                ImmutableMap.copyOf(actualTable.asMap()));
+            changedSet.or(expectedUpdates);
+            updateSet = expectedUpdates;
+            rounds++;
+        }
+        Assert.assertTrue(rounds > 1);
+
+        new DynamicProgrammingAlgorithm(expectedRelaxer).expandEgress(
+                changedSet, expectedTable, cutoffTime, timeTracker,
+                calculation.getEgressClient());
+        new DynamicProgrammingAlgorithm(actualRelaxer).expandEgress(
+                changedSet, actualTable, cutoffTime, timeTracker,
+                calculation.getEgressClient());
+        Assert.assertEquals(ImmutableMap.copyOf(expectedTable.asMap()),
+                            ImmutableMap.copyOf(actualTable.asMap()));
+    }
+
+    private static LocationRelaxation makeRelaxation(
+            final DynamicProgrammingTable table, final long cutoffTime,
+            final Calculation<?> calculation) {
+        final LocationIndex index = table.getIndex();
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        return (priorId, boardedTrips) -> {
+            final long currentTime = table.getReachTime(priorId);
+            final FlatTransitRideVisitor visitor = new FlatTransitRideVisitor(
+                    cutoffTime, cutoffTime, currentTime,
+                    calculation.getRiderFactory(), boardedTrips);
+            index.getLocation(priorId).accept(visitor);
+            return Iterables.concat(
+                    visitor.getOutput(),
+                    calculation.getTransferGraph().getTransfers(
+                            priorId, currentTime, cutoffTime, timeTracker));
+        };
+    }
+
+}
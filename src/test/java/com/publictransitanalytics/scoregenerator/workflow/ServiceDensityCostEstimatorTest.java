@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.publictransitanalytics.scoregenerator.geography.AngleUnit;
+import com.publictransitanalytics.scoregenerator.geography.GeoBounds;
+import com.publictransitanalytics.scoregenerator.geography.GeoLatitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoLongitude;
+import com.publictransitanalytics.scoregenerator.geography.GeoPoint;
+import com.publictransitanalytics.scoregenerator.location.Center;
+import com.publictransitanalytics.scoregenerator.location.GridPoint;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.schedule.StopIndexedTransitNetwork;
+import com.publictransitanalytics.scoregenerator.schedule.Trip;
+import com.publictransitanalytics.scoregenerator.schedule.TripId;
+import com.publictransitanalytics.scoregenerator.schedule.VehicleEvent;
+import com.publictransitanalytics.scoregenerator.scoring.CountScoreCard;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import com.publictransitanalytics.scoregenerator.walking.ForwardTimeTracker;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class ServiceDensityCostEstimatorTest {
+
+    private static final LocalDateTime TIME
+            = LocalDateTime.of(2017, Month.FEBRUARY, 12, 8, 0, 0);
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+
+    private static final TransitStop DENSE_STOP = new TransitStop(
+            "-1", "Dense", point("47.600", "-122.300"));
+    private static final TransitStop NEARBY_STOP = new TransitStop(
+            "-2", "Nearby", point("47.602", "-122.300"));
+    private static final TransitStop SPARSE_STOP = new TransitStop(
+            "-3", "Sparse", point("47.650", "-122.300"));
+
+    private static final GridPoint DENSE_POINT = new GridPoint(
+            point("47.6005", "-122.300"), "g1");
+    private static final GridPoint OTHER_DENSE_POINT = new GridPoint(
+            point("47.6015", "-122.300"), "g2");
+    private static final GridPoint SPARSE_POINT = new GridPoint(
+            point("47.6505", "-122.300"), "g3");
+    private static final GridPoint FAR_POINT = new GridPoint(
+            point("47.700", "-122.300"), "g4");
+
+    private static final Center DENSE_CENTER = makeCenter(
+            "47.595", DENSE_POINT, OTHER_DENSE_POINT);
+    private static final Center SPARSE_CENTER = makeCenter(
+            "47.645", SPARSE_POINT);
+    private static final Center FAR_CENTER = makeCenter("47.695", FAR_POINT);
+
+    @Test
+    public void testOrdersByNearbyService() throws Exception {
+        final Trip first = makeTrip("first", DENSE_STOP, SPARSE_STOP);
+        final Trip second = makeTrip("second", DENSE_STOP, NEARBY_STOP);
+        final Trip third = makeTrip("third", NEARBY_STOP, DENSE_STOP);
+        final Set<Center> centers = ImmutableSet.of(
+                FAR_CENTER, SPARSE_CENTER, DENSE_CENTER);
+        final Calculation<CountScoreCard> calculation = new Calculation<>(
+                centers, ImmutableSortedSet.of(TIME), LONGEST_DURATION,
+                LONGEST_DURATION, false, new ForwardTimeTracker(),
+                new StopIndexedTransitNetwork(
+                        ImmutableSet.of(first, second, third), false),
+                ImmutableBiMap.of(DENSE_STOP.getIdentifier(), DENSE_STOP,
+                                  NEARBY_STOP.getIdentifier(), NEARBY_STOP,
+                                  SPARSE_STOP.getIdentifier(), SPARSE_STOP),
+                ImmutableSet.of(DENSE_POINT, OTHER_DENSE_POINT, SPARSE_POINT,
+                                FAR_POINT),
+                ImmutableSetMultimap.of(), (location, current, cutoff)
+                -> ImmutableMap.of(), (taskCount, pointSectorMap)
+                -> new CountScoreCard(taskCount, ImmutableSortedSet.of(
+                        LONGEST_DURATION), pointSectorMap));
+        final TaskCostEstimator estimator
+                = new ServiceDensityCostEstimator(500);
+
+        /* Both dense points are near both dense stops, which count once. */
+        Assert.assertEquals(6, estimator.getCost(
+                calculation, new TaskGroupIdentifier(DENSE_CENTER)), 0);
+        Assert.assertEquals(2, estimator.getCost(
+                calculation, new TaskGroupIdentifier(SPARSE_CENTER)), 0);
+        Assert.assertEquals(1, estimator.getCost(
+                calculation, new TaskGroupIdentifier(FAR_CENTER)), 0);
+    }
+
+    @Test
+    public void testMatchesDistanceScan() throws Exception {
+        final double radiusMeters = 800;
+        for (int seed = 0; seed < 5; seed++) {
+            final RandomTransitFixture fixture
+                    = new RandomTransitFixture(seed);
+            final Calculation<TaskSectorsScoreCard> calculation
+                    = fixture.makeCalculation(
+                            false, ImmutableSortedSet.of(TIME),
+                            LONGEST_DURATION, (taskCount, pointSectorMap)
+                            -> new TaskSectorsScoreCard(
+                                    taskCount, ImmutableSortedSet.of(
+                                            LONGEST_DURATION),
+                                    pointSectorMap));
+            final TaskCostEstimator estimator
+                    = new ServiceDensityCostEstimator(radiusMeters);
+            for (final TaskGroupIdentifier taskGroup
+                         : calculation.getTaskGroups()) {
+                Assert.assertEquals(
+                        scanCost(calculation, taskGroup, radiusMeters),
+                        estimator.getCost(calculation, taskGroup), 0);
+            }
+        }
+    }
+
+    /**
+     * Measures every departure against every physical center.
+     */
+    private static double scanCost(final Calculation<?> calculation,
+                                   final TaskGroupIdentifier taskGroup,
+                                   final double radiusMeters) {
+        double cost = 1;
+        for (final Trip trip : calculation.getTransitNetwork().getTrips()) {
+            for (final TransitStop stop : trip.getStops()) {
+                for (final PointLocation center
+                             : taskGroup.getCenter().getPhysicalCenters()) {
+                    if (center.getLocation().getDistanceMeters(
+                            stop.getLocation()) <= radiusMeters) {
+                        cost++;
+                        break;
+                    }
+                }
+            }
+        }
+        return cost;
+    }
+
+    private static Trip makeTrip(final String id, final TransitStop from,
+                                 final TransitStop to) {
+        return new Trip(new TripId(id, TIME.toLocalDate()), "Route", "1",
+                        ImmutableList.of(
+                                new VehicleEvent(from, TIME, TIME),
+                                new VehicleEvent(to, TIME.plusMinutes(10),
+                                                 TIME.plusMinutes(10))));
+    }
+
+    private static Center makeCenter(final String southLatitude,
+                                     final GridPoint... points) {
+        final double south = Double.parseDouble(southLatitude);
+        return new Center(new Sector(new GeoBounds(
+                new GeoLongitude("-122.305", AngleUnit.DEGREES),
+                new GeoLatitude(southLatitude, AngleUnit.DEGREES),
+                new GeoLongitude("-122.295", AngleUnit.DEGREES),
+                new GeoLatitude(String.valueOf(south + 0.01),
+                                AngleUnit.DEGREES))),
+                          ImmutableSet.copyOf(points));
+    }
+
+    private static GeoPoint point(final String latitude,
+                                  final String longitude) {
+        return new GeoPoint(new GeoLongitude(longitude, AngleUnit.DEGREES),
+                            new GeoLatitude(latitude, AngleUnit.DEGREES));
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class ShardedTaskExecutorTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final Environment ENVIRONMENT
+            = new Environment(null, LONGEST_DURATION);
+    private static final int SHARD_COUNT = 4;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testWorkerMarksClaimedShardsDone() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        final Calculation<TaskSectorsScoreCard> calculation
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        /* Another process holds the even shards. */
+        for (int shard = 0; shard < SHARD_COUNT; shard += 2) {
+            Files.createFile(getMarker(directory, shard, "claim"));
+        }
+
+        makeExecutor(calculation, directory, false).calculate(
+                ImmutableSet.of(calculation));
+
+        final ShardPlan plan = new ShardPlan(directory, SHARD_COUNT, false);
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            Assert.assertTrue(Files.exists(
+                    getMarker(directory, shard, "claim")));
+            Assert.assertEquals(shard % 2 == 1, Files.exists(
+                                getMarker(directory, shard, "done")));
+        }
+        Assert.assertFalse(calculation.getScoreCard().getTasks().isEmpty());
+        for (final TaskIdentifier task
+                     : calculation.getScoreCard().getTasks().keySet()) {
+            Assert.assertEquals(1, plan.getShard(
+                                new TaskGroupIdentifier(task.getCenter()))
+                                % 2);
+        }
+    }
+
+    @Test
+    public void testCoordinatorReplaysWorkerShards() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        for (int shard = 0; shard < SHARD_COUNT; shard += 2) {
+            Files.createFile(getMarker(directory, shard, "claim"));
+        }
+        final Calculation<TaskSectorsScoreCard> worker
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        makeExecutor(worker, directory, false).calculate(
+                ImmutableSet.of(worker));
+
+        /* Releasing the claims hands the even shards to the coordinator. */
+        for (int shard = 0; shard < SHARD_COUNT; shard += 2) {
+            Files.delete(getMarker(directory, shard, "claim"));
+        }
+        final Calculation<TaskSectorsScoreCard> coordinator
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        makeExecutor(coordinator, directory, true).calculate(
+                ImmutableSet.of(coordinator));
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            Assert.assertTrue(Files.exists(
+                    getMarker(directory, shard, "done")));
+        }
+
+        final Calculation<TaskSectorsScoreCard> expected
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        new ParallelTaskExecutor<TaskSectorsScoreCard>(
+                makeRangeExecutor(), pool, (calculation, taskGroup) -> 1,
+                ImmutableMap.of()).calculate(ImmutableSet.of(expected));
+        Assert.assertEquals(expected.getScoreCard().getTasks(),
+                            coordinator.getScoreCard().getTasks());
+    }
+
+    private ShardedTaskExecutor<TaskSectorsScoreCard> makeExecutor(
+            final Calculation<TaskSectorsScoreCard> calculation,
+            final Path directory, final boolean coordinator) {
+        return new ShardedTaskExecutor<>(
+                makeRangeExecutor(), pool, (rangeCalculation, taskGroup) -> 1,
+                ImmutableMap.of(calculation, "network"),
+                new ShardPlan(directory, SHARD_COUNT, coordinator),
+                Duration.ZERO);
+    }
+
+    private static RangeExecutor makeRangeExecutor() {
+        return new RaptorRangeExecutor(new RaptorAlgorithm(), ENVIRONMENT,
+                                       true);
+    }
+
+    private static Path getMarker(final Path directory, final int shard,
+                                  final String type) {
+        return directory.resolve(String.format("shard-%d.%s", shard, type));
+    }
+
+}
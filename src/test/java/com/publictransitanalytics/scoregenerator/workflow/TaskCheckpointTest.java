@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.publictransitanalytics.scoregenerator.ScoreGeneratorFatalException;
+import com.publictransitanalytics.scoregenerator.location.Sector;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class TaskCheckpointTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final Environment ENVIRONMENT
+            = new Environment(null, LONGEST_DURATION);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestoresCompletedGroups() throws Exception {
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        final Calculation<TaskSectorsScoreCard> calculation
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        run(calculation, new TaskCheckpoint(file, Duration.ZERO));
+
+        final Calculation<TaskSectorsScoreCard> restored
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        Assert.assertEquals(restored.getTaskGroups(),
+                            new TaskCheckpoint(file, Duration.ZERO)
+                            .restore(restored));
+        Assert.assertFalse(calculation.getScoreCard().getTasks().isEmpty());
+        Assert.assertEquals(calculation.getScoreCard().getTasks(),
+                            restored.getScoreCard().getTasks());
+    }
+
+    @Test
+    public void testDropsTruncatedLastRecord() throws Exception {
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        final Calculation<TaskSectorsScoreCard> calculation
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        run(calculation, new TaskCheckpoint(file, Duration.ZERO));
+
+        final List<String> lines = new ArrayList<>(
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        Assert.assertTrue(lines.size() > 1);
+        final String lastLine = lines.remove(lines.size() - 1);
+        final List<String> truncatedLines = new ArrayList<>(lines);
+        truncatedLines.add(lastLine.substring(0, lastLine.length() / 2));
+        Files.write(file, truncatedLines, StandardCharsets.UTF_8);
+
+        final Calculation<TaskSectorsScoreCard> restored
+                = fixture.makeTaskSectorsCalculation(LONGEST_DURATION);
+        final Set<TaskGroupIdentifier> completed
+                = new TaskCheckpoint(file, Duration.ZERO).restore(restored);
+        Assert.assertEquals(lines.size(), completed.size());
+        Assert.assertEquals(restored.getTaskGroups().size() - 1,
+                            completed.size());
+        Assert.assertEquals(lines, Files.readAllLines(
+                file, StandardCharsets.UTF_8));
+
+        final Map<TaskIdentifier, Map<Sector, Duration>> expected
+                = Maps.filterKeys(calculation.getScoreCard().getTasks(),
+                                  task -> completed.contains(
+                                          new TaskGroupIdentifier(
+                                                  task.getCenter())));
+        Assert.assertEquals(expected, restored.getScoreCard().getTasks());
+    }
+
+    @Test(expected = ScoreGeneratorFatalException.class)
+    public void testRejectsMalformedEarlierRecord() throws Exception {
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        run(fixture.makeTaskSectorsCalculation(LONGEST_DURATION),
+            new TaskCheckpoint(file, Duration.ZERO));
+
+        final List<String> lines = new ArrayList<>(
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        lines.set(0, lines.get(0).substring(0, lines.get(0).length() / 2));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        new TaskCheckpoint(file, Duration.ZERO).restore(
+                fixture.makeTaskSectorsCalculation(LONGEST_DURATION));
+    }
+
+    private static void run(
+            final Calculation<TaskSectorsScoreCard> calculation,
+            final TaskCheckpoint checkpoint) throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            new ParallelTaskExecutor<TaskSectorsScoreCard>(
+                    new RaptorRangeExecutor(new RaptorAlgorithm(),
+                                            ENVIRONMENT, true),
+                    pool, (rangeCalculation, taskGroup) -> 1,
+                    ImmutableMap.of(calculation, checkpoint)).calculate(
+                            ImmutableSet.of(calculation));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
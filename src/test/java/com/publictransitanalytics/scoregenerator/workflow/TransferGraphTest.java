@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 Public Transit Analytics.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.publictransitanalytics.scoregenerator.workflow;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.publictransitanalytics.scoregenerator.EpochSeconds;
+import com.publictransitanalytics.scoregenerator.distance.FilteringReachabilityClient;
+import com.publictransitanalytics.scoregenerator.distance.ReachabilityClient;
+import com.publictransitanalytics.scoregenerator.location.GridPoint;
+import com.publictransitanalytics.scoregenerator.location.LocationIndex;
+import com.publictransitanalytics.scoregenerator.location.PointLocation;
+import com.publictransitanalytics.scoregenerator.location.TransitStop;
+import com.publictransitanalytics.scoregenerator.testhelpers.RandomTransitFixture;
+import com.publictransitanalytics.scoregenerator.testhelpers.TaskSectorsScoreCard;
+import com.publictransitanalytics.scoregenerator.visitors.FlatWalkVisitor;
+import com.publictransitanalytics.scoregenerator.visitors.ReachabilityOutput;
+import com.publictransitanalytics.scoregenerator.walking.TimeTracker;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Public Transit Analytics
+ */
+public class TransferGraphTest {
+
+    private static final Duration LONGEST_DURATION = Duration.ofMinutes(45);
+    private static final Duration SHORT_CUTOFF = Duration.ofMinutes(10);
+    private static final Duration TRANSFER_BUDGET = Duration.ofMinutes(5);
+    private static final int SEEDS = 3;
+
+    @Test
+    public void testMatchesReachabilityClient() throws Exception {
+        for (final boolean backward : new boolean[]{false, true}) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                final RandomTransitFixture fixture
+                        = new RandomTransitFixture(seed);
+                final Calculation<TaskSectorsScoreCard> calculation
+                        = makeCalculation(fixture, backward);
+                final ReachabilityClient client = getTransferClient(fixture);
+                final TransferGraph graph = new TransferGraph(
+                        calculation.getLocationIndex(),
+                        ImmutableSet.copyOf(fixture.getStops()), client,
+                        calculation.getTimeTracker(), getTime(backward),
+                        LONGEST_DURATION);
+
+                for (final TransitStop stop : fixture.getStops()) {
+                    for (final Duration cutoff : new Duration[]{
+                        SHORT_CUTOFF, LONGEST_DURATION}) {
+                        Assert.assertEquals(
+                                walk(stop, cutoff, calculation, client),
+                                getTransfers(graph, stop, cutoff,
+                                             calculation));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testKeepsTransfersWithinBudget() throws Exception {
+        for (final boolean backward : new boolean[]{false, true}) {
+            final RandomTransitFixture fixture = new RandomTransitFixture(0);
+            final Calculation<TaskSectorsScoreCard> calculation
+                    = makeCalculation(fixture, backward);
+            final ReachabilityClient client = getTransferClient(fixture);
+            final TransferGraph graph = new TransferGraph(
+                    calculation.getLocationIndex(),
+                    ImmutableSet.copyOf(fixture.getStops()), client,
+                    calculation.getTimeTracker(), getTime(backward),
+                    TRANSFER_BUDGET);
+
+            boolean droppedWalk = false;
+            for (final TransitStop stop : fixture.getStops()) {
+                final Set<ReachabilityOutput> walks = walk(
+                        stop, LONGEST_DURATION, calculation, client);
+                final Set<ReachabilityOutput> expected = walks.stream()
+                        .filter(output -> output.getModeInfo().getWalkCosts()
+                                .getDuration().compareTo(TRANSFER_BUDGET) <= 0)
+                        .collect(Collectors.toSet());
+                droppedWalk |= expected.size() < walks.size();
+                Assert.assertEquals(expected, getTransfers(
+                                    graph, stop, LONGEST_DURATION,
+                                    calculation));
+            }
+            Assert.assertTrue(droppedWalk);
+        }
+    }
+
+    @Test
+    public void testWalksFromOtherLocationsThroughClient() throws Exception {
+        for (final boolean backward : new boolean[]{false, true}) {
+            final RandomTransitFixture fixture = new RandomTransitFixture(0);
+            final Calculation<TaskSectorsScoreCard> calculation
+                    = makeCalculation(fixture, backward);
+            final ReachabilityClient client = getTransferClient(fixture);
+            final TransferGraph graph = new TransferGraph(
+                    calculation.getLocationIndex(),
+                    ImmutableSet.copyOf(fixture.getStops()), client,
+                    calculation.getTimeTracker(), getTime(backward),
+                    TRANSFER_BUDGET);
+
+            /* Walks from a search's start are not held to the budget. */
+            for (final GridPoint point : fixture.getGridPoints()) {
+                Assert.assertEquals(
+                        walk(point, LONGEST_DURATION, calculation, client),
+                        getTransfers(graph, point, LONGEST_DURATION,
+                                     calculation));
+            }
+        }
+    }
+
+    @Test
+    public void testBuildsRowsOnFirstUse() throws Exception {
+        final RandomTransitFixture fixture = new RandomTransitFixture(0);
+        final Calculation<TaskSectorsScoreCard> calculation
+                = makeCalculation(fixture, false);
+        final ReachabilityClient transferClient = getTransferClient(fixture);
+        final AtomicInteger requests = new AtomicInteger();
+        final ReachabilityClient client = (location, current, cutoff) -> {
+            requests.incrementAndGet();
+            return transferClient.getWalkingCosts(location, current, cutoff);
+        };
+        final TransferGraph graph = new TransferGraph(
+                calculation.getLocationIndex(),
+                ImmutableSet.copyOf(fixture.getStops()), client,
+                calculation.getTimeTracker(), getTime(false),
+                LONGEST_DURATION);
+        Assert.assertEquals(0, requests.get());
+
+        final TransitStop stop = fixture.getStops().get(0);
+        getTransfers(graph, stop, LONGEST_DURATION, calculation);
+        getTransfers(graph, stop, SHORT_CUTOFF, calculation);
+        Assert.assertEquals(1, requests.get());
+    }
+
+    private static Set<ReachabilityOutput> getTransfers(
+            final TransferGraph graph, final PointLocation location,
+            final Duration cutoff, final Calculation<?> calculation)
+            throws InterruptedException {
+        final LocationIndex index = calculation.getLocationIndex();
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        final long currentTime = EpochSeconds.of(
+                getTime(calculation.isBackward()));
+        return ImmutableSet.copyOf(graph.getTransfers(
+                index.getId(location), currentTime,
+                timeTracker.adjust(currentTime, EpochSeconds.of(cutoff)),
+                timeTracker));
+    }
+
+    private static Set<ReachabilityOutput> walk(
+            final PointLocation location, final Duration cutoff,
+            final Calculation<?> calculation,
+            final ReachabilityClient client) throws InterruptedException {
+        final TimeTracker timeTracker = calculation.getTimeTracker();
+        final long currentTime = EpochSeconds.of(
+                getTime(calculation.isBackward()));
+        final FlatWalkVisitor visitor = new FlatWalkVisitor(
+                timeTracker.adjust(currentTime, EpochSeconds.of(cutoff)),
+                currentTime, client, timeTracker);
+        location.accept(visitor);
+        return visitor.getOutput();
+    }
+
+    /**
+     * Walks to locations that can continue a journey, as the calculation
+     * gives its transfer graph.
+     */
+    private static ReachabilityClient getTransferClient(
+            final RandomTransitFixture fixture) {
+        return new FilteringReachabilityClient(
+                fixture.getReachabilityClient(),
+                ImmutableSet.copyOf(fixture.getGridPoints()));
+    }
+
+    private static LocalDateTime getTime(final boolean backward) {
+        return backward ? RandomTransitFixture.BASE_TIME.plus(LONGEST_DURATION)
+                : RandomTransitFixture.BASE_TIME;
+    }
+
+    private static Calculation<TaskSectorsScoreCard> makeCalculation(
+            final RandomTransitFixture fixture, final boolean backward)
+            throws InterruptedException {
+        return fixture.makeCalculation(
+                backward, ImmutableSortedSet.of(getTime(backward)),
+                LONGEST_DURATION, (taskCount, pointSectorMap)
+                -> new TaskSectorsScoreCard(taskCount, ImmutableSortedSet.of(
+                        LONGEST_DURATION), pointSectorMap));
+    }
+
+}